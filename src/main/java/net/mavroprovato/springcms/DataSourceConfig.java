@@ -0,0 +1,84 @@
+package net.mavroprovato.springcms;
+
+import com.zaxxer.hikari.HikariDataSource;
+import net.mavroprovato.springcms.datasource.ReadWriteRoutingDataSource;
+import net.mavroprovato.springcms.datasource.ReplicaLagMonitor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Configures a replica for the read only transactions. It is enabled when the replica URL is set, otherwise the data
+ * source is configured by Spring Boot as usual. The primary is configured with the {@code spring.datasource}
+ * properties, and the replica with the {@code cms.datasource.replica} properties, which are bound to its connection
+ * pool.
+ */
+@Configuration
+@ConditionalOnProperty("cms.datasource.replica.jdbc-url")
+public class DataSourceConfig {
+
+    /**
+     * Create the primary connection pool.
+     *
+     * @param properties The data source properties.
+     * @return The primary connection pool.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+
+        return dataSource;
+    }
+
+    /**
+     * Create the replica connection pool.
+     *
+     * @return The replica connection pool.
+     */
+    @Bean
+    @ConfigurationProperties("cms.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+
+        return dataSource;
+    }
+
+    /**
+     * Create the replica lag monitor.
+     *
+     * @param maxLag The maximum replication lag, in milliseconds.
+     * @param checkInterval The interval between the lag checks, in milliseconds.
+     * @return The replica lag monitor.
+     */
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Value("${cms.datasource.replica.max-lag:2000}") long maxLag,
+                                               @Value("${cms.datasource.replica.lag-check-interval:1000}")
+                                                       long checkInterval) {
+        return new ReplicaLagMonitor(replicaDataSource(), maxLag, checkInterval);
+    }
+
+    /**
+     * Create the data source that is used by the application. The connection is fetched from the primary or the
+     * replica when the first statement is executed, according to the current transaction.
+     *
+     * @param properties The data source properties.
+     * @param replicaLagMonitor The replica lag monitor.
+     * @return The data source.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, ReplicaLagMonitor replicaLagMonitor) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryDataSource(properties), replicaDataSource(), replicaLagMonitor));
+    }
+}
@@ -0,0 +1,15 @@
+package net.mavroprovato.springcms;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables scheduled tasks. Scheduling is only enabled for the web application, so that the command line commands
+ * terminate when they have completed.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnWebApplication
+public class SchedulingConfig {
+}
@@ -0,0 +1,257 @@
+package net.mavroprovato.springcms.command;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * A statistical model of the generated content. The words are drawn from a synthetic vocabulary with a Zipf
+ * distribution, as the words of natural language are, so the search index has a realistic term distribution. The
+ * model is created from a seed, and every generated post has its own random generator that is derived from the seed
+ * and the post number, so the generated content does not depend on the batch size, or on the order in which the posts
+ * are generated.
+ */
+final class CorpusModel {
+
+    /**
+     * The distributions of the number of words in the post bodies.
+     */
+    enum BodySize {
+        /** Every body has the configured number of words */
+        FIXED,
+        /** The number of words is uniformly distributed around the configured number, by the spread fraction */
+        UNIFORM,
+        /** The number of words is log-normally distributed, with the configured median and the spread as sigma */
+        LOG_NORMAL
+    }
+
+    /** The syllables that the words are made of */
+    private static final String[] SYLLABLES = {
+            "a", "ka", "ra", "ta", "na", "ma", "sa", "la", "po", "to", "no", "ro", "mi", "ki", "li", "si", "te",
+            "re", "de", "ne", "be", "lu", "tu", "mu", "ru", "ven", "tor", "lan", "mer", "dis", "con", "pre", "ex",
+            "ing", "ent", "al", "er", "on", "is", "or", "um", "us", "ic", "ar", "ol", "and", "est", "ur"
+    };
+
+    /** The seed of the model */
+    private final long seed;
+
+    /** The vocabulary, the most frequent word first */
+    private final String[] vocabulary;
+
+    /** The cumulative probabilities of the vocabulary words */
+    private final double[] wordDistribution;
+
+    /** The distribution of the number of words in the post bodies */
+    private final BodySize bodySize;
+
+    /** The number of words in the post bodies: the value, the mean or the median, depending on the distribution */
+    private final int bodyWords;
+
+    /** The spread of the number of words in the post bodies */
+    private final double bodySpread;
+
+    /**
+     * Create the model.
+     *
+     * @param seed The seed.
+     * @param vocabularySize The number of words in the vocabulary.
+     * @param wordSkew The exponent of the Zipf distribution of the words.
+     * @param bodySize The distribution of the number of words in the post bodies.
+     * @param bodyWords The number of words in the post bodies.
+     * @param bodySpread The spread of the number of words in the post bodies.
+     */
+    CorpusModel(long seed, int vocabularySize, double wordSkew, BodySize bodySize, int bodyWords,
+                double bodySpread) {
+        this.seed = seed;
+        this.vocabulary = vocabulary(new Random(seed), vocabularySize);
+        this.wordDistribution = zipfDistribution(vocabularySize, wordSkew);
+        this.bodySize = bodySize;
+        this.bodyWords = bodyWords;
+        this.bodySpread = bodySpread;
+    }
+
+    /**
+     * Return a random generator for a post. It depends only on the model seed and the post number.
+     *
+     * @param post The post number.
+     * @return The random generator.
+     */
+    Random random(long post) {
+        // Spread the seeds of consecutive posts, so that their sequences are not correlated
+        return new Random(new SplittableRandom(seed + post * 0x9E3779B97F4A7C15L).nextLong());
+    }
+
+    /**
+     * Return a random generator for the choices that do not depend on a batch, like the popularity of the tags.
+     *
+     * @param purpose A number that distinguishes the random generators of the model.
+     * @return The random generator.
+     */
+    Random shared(int purpose) {
+        return new Random(seed * 31 + purpose);
+    }
+
+    /**
+     * Generate a title.
+     *
+     * @param random The random generator.
+     * @return The title.
+     */
+    String title(Random random) {
+        return capitalize(words(random, 3 + random.nextInt(7)));
+    }
+
+    /**
+     * Generate a post body. The number of words follows the configured distribution, and the words are grouped in
+     * sentences and paragraphs.
+     *
+     * @param random The random generator.
+     * @return The post body.
+     */
+    String body(Random random) {
+        return text(random, bodyWordCount(random));
+    }
+
+    /**
+     * Generate a comment. Most comments are short, but a few of them are long.
+     *
+     * @param random The random generator.
+     * @return The comment.
+     */
+    String comment(Random random) {
+        return text(random, 5 + (int) Math.min(Math.exp(3 + random.nextGaussian()), 500));
+    }
+
+    /**
+     * Generate text, as sentences that are grouped in paragraphs.
+     *
+     * @param random The random generator.
+     * @param wordCount The number of words.
+     * @return The text.
+     */
+    private String text(Random random, int wordCount) {
+        StringBuilder text = new StringBuilder();
+        int paragraphSentences = 3 + random.nextInt(5);
+        while (wordCount > 0) {
+            if (text.length() > 0) {
+                if (paragraphSentences == 0) {
+                    text.append("\n\n");
+                    paragraphSentences = 3 + random.nextInt(5);
+                } else {
+                    text.append(' ');
+                }
+            }
+            int sentenceWords = Math.min(wordCount, 5 + random.nextInt(16));
+            text.append(capitalize(words(random, sentenceWords))).append('.');
+            wordCount -= sentenceWords;
+            paragraphSentences--;
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Return the number of words of a post body.
+     *
+     * @param random The random generator.
+     * @return The number of words.
+     */
+    private int bodyWordCount(Random random) {
+        switch (bodySize) {
+            case UNIFORM:
+                int range = (int) Math.round(bodyWords * bodySpread);
+                return Math.max(1, bodyWords - range + random.nextInt(2 * range + 1));
+            case LOG_NORMAL:
+                return Math.max(1, (int) Math.round(bodyWords * Math.exp(bodySpread * random.nextGaussian())));
+            default:
+                return bodyWords;
+        }
+    }
+
+    /**
+     * Generate words, separated by spaces.
+     *
+     * @param random The random generator.
+     * @param count The number of words.
+     * @return The words.
+     */
+    private String words(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(' ');
+            }
+            words.append(vocabulary[sample(random, wordDistribution)]);
+        }
+
+        return words.toString();
+    }
+
+    /**
+     * Return the cumulative probabilities of a Zipf distribution. The probability of rank k is proportional to
+     * 1 / (k + 1) ^ skew.
+     *
+     * @param size The number of ranks.
+     * @param skew The exponent of the distribution.
+     * @return The cumulative probabilities.
+     */
+    static double[] zipfDistribution(int size, double skew) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int k = 0; k < size; k++) {
+            sum += 1 / Math.pow(k + 1, skew);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < size; k++) {
+            cumulative[k] /= sum;
+        }
+
+        return cumulative;
+    }
+
+    /**
+     * Return a random rank from a distribution.
+     *
+     * @param random The random generator.
+     * @param cumulative The cumulative probabilities of the distribution.
+     * @return The rank.
+     */
+    static int sample(Random random, double[] cumulative) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+
+        return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+    }
+
+    /**
+     * Create the vocabulary. The words are made of syllables, and the frequent words are shorter.
+     *
+     * @param random The random generator.
+     * @param size The number of words.
+     * @return The vocabulary.
+     */
+    private static String[] vocabulary(Random random, int size) {
+        Set<String> words = new LinkedHashSet<>();
+        while (words.size() < size) {
+            int syllables = 1 + random.nextInt(2 + (int) Math.log10(words.size() + 1));
+            StringBuilder word = new StringBuilder();
+            for (int i = 0; i < syllables; i++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words.add(word.toString());
+        }
+
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * Capitalize the first letter of text.
+     *
+     * @param text The text.
+     * @return The capitalized text.
+     */
+    private static String capitalize(String text) {
+        return text.isEmpty() ? text : Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+}
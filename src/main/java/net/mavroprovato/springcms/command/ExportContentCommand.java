@@ -0,0 +1,76 @@
+package net.mavroprovato.springcms.command;
+
+import net.mavroprovato.springcms.service.ExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.annotation.ComponentScan;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A command line command that exports all posts and pages, along with their comments, tags and categories, to a JSON
+ * lines file that the import command can read. The file is compressed with gzip if its name ends with .gz, or if the
+ * gzip option is passed.
+ */
+@ComponentScan("net.mavroprovato.springcms")
+public class ExportContentCommand implements ApplicationRunner {
+
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(ExportContentCommand.class);
+
+    /** The export service */
+    private final ExportService exportService;
+
+    /**
+     * Create the export command.
+     *
+     * @param exportService The export service.
+     */
+    @Autowired
+    public ExportContentCommand(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!args.containsOption("file")) {
+            logger.error("The file argument is required.");
+            return;
+        }
+        Path file = Paths.get(args.getOptionValues("file").get(0));
+        boolean gzip = args.containsOption("gzip") || file.getFileName().toString().endsWith(".gz");
+
+        long start = System.nanoTime();
+        long count;
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(file))) {
+            count = exportService.export(outputStream, gzip);
+        }
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        logger.info("{} posts and pages exported to {} in {} s: {} records/s.", count, file,
+                String.format("%.1f", seconds), String.format("%.0f", count / seconds));
+    }
+
+    /**
+     * The entry point of the command.
+     *
+     * @param args The command line arguments.
+     */
+    public static void main(String... args) {
+        SpringApplication command = new SpringApplication(ExportContentCommand.class);
+        command.setWebApplicationType(WebApplicationType.NONE);
+        command.run(args);
+    }
+}
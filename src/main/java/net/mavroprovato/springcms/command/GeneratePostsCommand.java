@@ -1,14 +1,17 @@
 package net.mavroprovato.springcms.command;
 
 import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.Comment;
 import net.mavroprovato.springcms.entity.ContentStatus;
 import net.mavroprovato.springcms.entity.Post;
 import net.mavroprovato.springcms.entity.Tag;
 import net.mavroprovato.springcms.entity.User;
 import net.mavroprovato.springcms.repository.CategoryRepository;
-import net.mavroprovato.springcms.repository.PostRepository;
 import net.mavroprovato.springcms.repository.TagRepository;
 import net.mavroprovato.springcms.repository.UserRepository;
+import net.mavroprovato.springcms.service.ArchiveCountService;
+import net.mavroprovato.springcms.service.CounterService;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,7 +20,10 @@ import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.WebApplicationType;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
@@ -27,11 +33,26 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 /**
- * A command line command that generates test posts.
+ * A command line command that generates test posts and comments. The text is generated from a statistical model
+ * (see {@link CorpusModel}), the popularity of the tags and the categories is skewed, and the number of comments per
+ * post follows a Zipf distribution. The same seed and dates generate the same content, so that benchmark runs are
+ * comparable.
  */
 @ComponentScan("net.mavroprovato.springcms")
 public class GeneratePostsCommand implements ApplicationRunner {
@@ -54,8 +75,41 @@ public class GeneratePostsCommand implements ApplicationRunner {
     /** The default number of categories to apply to a content item */
     private static final int DEFAULT_CATEGORY_COUNT = 2;
 
-    /** The post repository */
-    private final PostRepository postRepository;
+    /** The default number of content items that are written with each batch */
+    private static final int DEFAULT_BATCH_SIZE = Post.ID_ALLOCATION_SIZE;
+
+    /** The default number of threads that generate the content items */
+    private static final int DEFAULT_THREADS = 1;
+
+    /** The default number of words in the vocabulary */
+    private static final int DEFAULT_VOCABULARY_SIZE = 20000;
+
+    /** The default exponent of the Zipf distribution of the words, close to the one of the English language */
+    private static final double DEFAULT_WORD_SKEW = 1.07;
+
+    /** The default distribution of the number of words in the post bodies */
+    private static final CorpusModel.BodySize DEFAULT_BODY_SIZE = CorpusModel.BodySize.LOG_NORMAL;
+
+    /** The default number of words in the post bodies */
+    private static final int DEFAULT_BODY_WORDS = 400;
+
+    /** The default spread of the number of words in the post bodies */
+    private static final double DEFAULT_BODY_SPREAD = 0.8;
+
+    /** The default maximum number of comments per content item */
+    private static final int DEFAULT_MAX_COMMENTS = 100;
+
+    /** The default exponent of the Zipf distribution of the number of comments per content item */
+    private static final double DEFAULT_COMMENT_SKEW = 1.5;
+
+    /** The default exponent of the Zipf distribution of the tag and category popularity */
+    private static final double DEFAULT_TAXONOMY_SKEW = 1.0;
+
+    /** The number of distinct commenters */
+    private static final int COMMENTERS = 1000;
+
+    /** The number of generated content items after which the progress is logged */
+    private static final int PROGRESS_INTERVAL = 10000;
 
     /** The tag repository */
     private final TagRepository tagRepository;
@@ -66,6 +120,18 @@ public class GeneratePostsCommand implements ApplicationRunner {
     /** The user repository */
     private final UserRepository userRepository;
 
+    /** The entity manager */
+    private final EntityManager entityManager;
+
+    /** The template for the transactions of the batches */
+    private final TransactionTemplate transactionTemplate;
+
+    /** The counter service */
+    private final CounterService counterService;
+
+    /** The archive count service */
+    private final ArchiveCountService archiveCountService;
+
     /**
      * Value class to hold the options passed through the command line arguments
      */
@@ -75,29 +141,95 @@ public class GeneratePostsCommand implements ApplicationRunner {
         OffsetDateTime endDate = DEFAULT_END_DATE;
         int tagCount = DEFAULT_TAG_COUNT;
         int categoryCount = DEFAULT_CATEGORY_COUNT;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        int threads = DEFAULT_THREADS;
+        long seed = ThreadLocalRandom.current().nextLong();
+        int vocabularySize = DEFAULT_VOCABULARY_SIZE;
+        double wordSkew = DEFAULT_WORD_SKEW;
+        CorpusModel.BodySize bodySize = DEFAULT_BODY_SIZE;
+        int bodyWords = DEFAULT_BODY_WORDS;
+        double bodySpread = DEFAULT_BODY_SPREAD;
+        int maxComments = DEFAULT_MAX_COMMENTS;
+        double commentSkew = DEFAULT_COMMENT_SKEW;
+        double taxonomySkew = DEFAULT_TAXONOMY_SKEW;
+    }
+
+    /**
+     * The identifiers of the tags, categories and authors that are assigned to the generated content items, along
+     * with the distributions that they are drawn from.
+     */
+    private static final class Pools {
+        /** The tag identifiers, the most popular first */
+        final List<Integer> tagIds;
+        /** The cumulative probabilities of the tags */
+        final double[] tagDistribution;
+        /** The category identifiers, the most popular first */
+        final List<Integer> categoryIds;
+        /** The cumulative probabilities of the categories */
+        final double[] categoryDistribution;
+        /** The author identifiers */
+        final List<Integer> authorIds;
+        /** The cumulative probabilities of the number of comments per content item */
+        final double[] commentDistribution;
+        /** The cumulative probabilities of the commenters */
+        final double[] commenterDistribution;
+
+        /**
+         * Create the pools. The order of the tags and the categories, which sets their popularity, is random.
+         *
+         * @param options The command options.
+         * @param model The corpus model.
+         * @param tagIds The tag identifiers.
+         * @param categoryIds The category identifiers.
+         * @param authorIds The author identifiers.
+         */
+        Pools(Options options, CorpusModel model, List<Integer> tagIds, List<Integer> categoryIds,
+              List<Integer> authorIds) {
+            this.tagIds = new ArrayList<>(tagIds);
+            Collections.sort(this.tagIds);
+            Collections.shuffle(this.tagIds, model.shared(1));
+            this.tagDistribution = CorpusModel.zipfDistribution(tagIds.size(), options.taxonomySkew);
+            this.categoryIds = new ArrayList<>(categoryIds);
+            Collections.sort(this.categoryIds);
+            Collections.shuffle(this.categoryIds, model.shared(2));
+            this.categoryDistribution = CorpusModel.zipfDistribution(categoryIds.size(), options.taxonomySkew);
+            this.authorIds = new ArrayList<>(authorIds);
+            Collections.sort(this.authorIds);
+            this.commentDistribution = CorpusModel.zipfDistribution(options.maxComments + 1, options.commentSkew);
+            this.commenterDistribution = CorpusModel.zipfDistribution(COMMENTERS, 1.0);
+        }
     }
 
     /**
      * Create the generate content command.
      *
-     * @param postRepository The post repository.
      * @param tagRepository The tag repository.
      * @param categoryRepository The category repository.
+     * @param userRepository The user repository.
+     * @param entityManager The entity manager.
+     * @param transactionManager The transaction manager.
+     * @param counterService The counter service.
+     * @param archiveCountService The archive count service.
      */
     @Autowired
-    public GeneratePostsCommand(PostRepository postRepository, TagRepository tagRepository,
-                                CategoryRepository categoryRepository, UserRepository userRepository) {
-        this.postRepository = postRepository;
+    public GeneratePostsCommand(TagRepository tagRepository, CategoryRepository categoryRepository,
+                                UserRepository userRepository, EntityManager entityManager,
+                                PlatformTransactionManager transactionManager, CounterService counterService,
+                                ArchiveCountService archiveCountService) {
         this.tagRepository = tagRepository;
         this.categoryRepository = categoryRepository;
         this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.counterService = counterService;
+        this.archiveCountService = archiveCountService;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void run(ApplicationArguments args) {
+    public void run(ApplicationArguments args) throws InterruptedException, ExecutionException {
         // Parse the command line options
         Options options = parseArguments(args);
         if (options == null) {
@@ -105,35 +237,106 @@ public class GeneratePostsCommand implements ApplicationRunner {
             return;
         }
 
-        // Generate the content items
-        logger.info("Generating {} content items between {} and {}.", options.count, options.startDate,
-                options.endDate);
-        for (int i = 0; i < options.count; i++) {
-            Post post = new Post();
-            post.setTitle("Test Title");
-            post.setContent("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor " +
-                    "incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud exercitation " +
-                    "ullamco laboris nisi ut aliquip ex ea commodo consequat. Duis aute irure dolor in reprehenderit " +
-                    "in voluptate velit esse cillum dolore eu fugiat nulla pariatur. Excepteur sint occaecat " +
-                    "cupidatat non proident, sunt in culpa qui officia deserunt mollit anim id est laborum.");
-            post.setStatus(ContentStatus.PUBLISHED);
-            post.setPublishedAt(randomDateTime(options.startDate, options.endDate));
-            for (Tag tag: getRandomTags(options.tagCount)) {
-                post.getTags().add(tag);
+        // Load the identifiers of the tags, categories and authors once, the posts reference them by identifier
+        CorpusModel model = new CorpusModel(options.seed, options.vocabularySize, options.wordSkew,
+                options.bodySize, options.bodyWords, options.bodySpread);
+        Pools pools = new Pools(options, model,
+                tagRepository.findAll().stream().map(Tag::getId).collect(Collectors.toList()),
+                categoryRepository.findAll().stream().map(Category::getId).collect(Collectors.toList()),
+                userRepository.findAll().stream().map(User::getId).collect(Collectors.toList()));
+        if (pools.authorIds.isEmpty()) {
+            throw new IllegalStateException("No users are defined.");
+        }
+
+        // Generate the content items in batches, each batch in its own transaction
+        logger.info("Generating {} content items between {} and {} with seed {}, in batches of {} with {} threads.",
+                options.count, options.startDate, options.endDate, options.seed, options.batchSize, options.threads);
+        AtomicLong rows = new AtomicLong();
+        AtomicInteger generated = new AtomicInteger();
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(options.threads);
+        try {
+            List<Future<?>> batches = new ArrayList<>();
+            for (int first = 0; first < options.count; first += options.batchSize) {
+                int batchStart = first;
+                int batchEnd = Math.min(first + options.batchSize, options.count);
+                batches.add(executor.submit(() -> {
+                    rows.addAndGet(transactionTemplate.execute(
+                            status -> generateBatch(options, model, pools, batchStart, batchEnd)));
+                    int total = generated.addAndGet(batchEnd - batchStart);
+                    if (total / PROGRESS_INTERVAL != (total - batchEnd + batchStart) / PROGRESS_INTERVAL) {
+                        logger.info("{} content items generated.", total);
+                    }
+                }));
             }
-            for (Category category: getRandomCategories(options.categoryCount)) {
-                post.getCategories().add(category);
+            for (Future<?> batch : batches) {
+                batch.get();
             }
-            post.setAuthor(getRandomAuthor());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        logger.info("{} content items ({} rows) generated in {} s: {} content items/s, {} rows/s.",
+                options.count, rows.get(), String.format("%.1f", seconds),
+                String.format("%.0f", options.count / seconds), String.format("%.0f", rows.get() / seconds));
 
-            // Save the post
-            postRepository.save(post);
+        // The counters are not maintained while the batches are written, so that concurrent batches do not contend
+        // for the rows of the popular tags and categories. Count them once, now that all the posts are written.
+        counterService.repair();
+        archiveCountService.rebuild();
+    }
 
-            // Set the slug
-            post.setSlug("test-title-" + post.getId());
-            postRepository.save(post);
+    /**
+     * Generate a batch of posts, along with their comments. The rows are written with JDBC batches of the batch size,
+     * and then the entities are detached, so that the persistence context does not grow.
+     *
+     * @param options The command options.
+     * @param model The corpus model.
+     * @param pools The identifiers of the tags, categories and authors.
+     * @param start The number of the first post of the batch.
+     * @param end The number of the post after the last post of the batch.
+     * @return The number of rows that were inserted.
+     */
+    private long generateBatch(Options options, CorpusModel model, Pools pools, int start, int end) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(options.batchSize);
+        long rows = 0;
+        for (int i = start; i < end; i++) {
+            Random random = model.random(i);
+            Post post = new Post();
+            post.setTitle(model.title(random));
+            post.setSlug(slug(post.getTitle(), options.seed, i));
+            post.setContent(model.body(random));
+            post.setStatus(ContentStatus.PUBLISHED);
+            post.setPublishedAt(randomDateTime(random, options.startDate, options.endDate));
+            for (Integer tagId : randomSubset(random, pools.tagIds, pools.tagDistribution, options.tagCount)) {
+                post.getTags().add(entityManager.getReference(Tag.class, tagId));
+            }
+            for (Integer categoryId : randomSubset(random, pools.categoryIds, pools.categoryDistribution,
+                    options.categoryCount)) {
+                post.getCategories().add(entityManager.getReference(Category.class, categoryId));
+            }
+            post.setAuthor(entityManager.getReference(User.class,
+                    pools.authorIds.get(random.nextInt(pools.authorIds.size()))));
+            entityManager.persist(post);
+            rows += 1 + post.getTags().size() + post.getCategories().size();
+
+            int commentCount = CorpusModel.sample(random, pools.commentDistribution);
+            for (int j = 0; j < commentCount; j++) {
+                int commenter = CorpusModel.sample(random, pools.commenterDistribution) + 1;
+                Comment comment = new Comment();
+                comment.setName("Reader " + commenter);
+                comment.setEmail("reader" + commenter + "@example.com");
+                comment.setComment(model.comment(random));
+                comment.setPost(post);
+                entityManager.persist(comment);
+            }
+            rows += commentCount;
         }
-        logger.info("Content items generated.");
+        entityManager.flush();
+        entityManager.clear();
+
+        return rows;
     }
 
     /**
@@ -145,19 +348,11 @@ public class GeneratePostsCommand implements ApplicationRunner {
     private Options parseArguments(ApplicationArguments args) {
         Options options = new Options();
         // Parse the count argument.
-        if (args.containsOption("count")) {
-            try {
-                options.count = Integer.parseInt(args.getOptionValues("count").get(0));
-            } catch (NumberFormatException e) {
-                logger.error("Cannot parse the count argument ({}) as an integer.",
-                        args.getOptionValues("count").get(0));
-                return null;
-            }
-            if (options.count <= 0) {
-                logger.error("Count must be a positive integer.");
-                return null;
-            }
+        Integer count = parseInteger(args, "count", "count", 1, options.count);
+        if (count == null) {
+            return null;
         }
+        options.count = count;
 
         // Parse the start date argument
         if (args.containsOption("start-date")) {
@@ -189,112 +384,196 @@ public class GeneratePostsCommand implements ApplicationRunner {
             return null;
         }
 
-        // Parse the tag count argument.
-        if (args.containsOption("tag-count")) {
+        // Parse the taxonomy and batching arguments.
+        Integer tagCount = parseInteger(args, "tag-count", "tag count", 1, options.tagCount);
+        Integer categoryCount = parseInteger(args, "category-count", "category count", 1, options.categoryCount);
+        Integer batchSize = parseInteger(args, "batch-size", "batch size", 1, options.batchSize);
+        Integer threads = parseInteger(args, "threads", "threads", 1, options.threads);
+        if (tagCount == null || categoryCount == null || batchSize == null || threads == null) {
+            return null;
+        }
+        options.tagCount = tagCount;
+        options.categoryCount = categoryCount;
+        options.batchSize = batchSize;
+        options.threads = threads;
+
+        // Parse the seed argument.
+        if (args.containsOption("seed")) {
             try {
-                options.tagCount = Integer.parseInt(args.getOptionValues("tag-count").get(0));
+                options.seed = Long.parseLong(args.getOptionValues("seed").get(0));
             } catch (NumberFormatException e) {
-                logger.error("Cannot parse the tag count argument ({}) as an integer.",
-                        args.getOptionValues("tag-count").get(0));
-                return null;
-            }
-            if (options.tagCount <= 0) {
-                logger.error("Tag count must be a positive integer.");
+                logger.error("Cannot parse the seed argument ({}) as an integer.",
+                        args.getOptionValues("seed").get(0));
                 return null;
             }
         }
 
-        // Parse the category count argument.
-        if (args.containsOption("category-count")) {
+        // Parse the body size distribution argument.
+        if (args.containsOption("body-size")) {
             try {
-                options.categoryCount = Integer.parseInt(args.getOptionValues("category-count").get(0));
-            } catch (NumberFormatException e) {
-                logger.error("Cannot parse the category count argument ({}) as an integer.",
-                        args.getOptionValues("category-count").get(0));
-                return null;
-            }
-            if (options.categoryCount <= 0) {
-                logger.error("Category count must be a positive integer.");
+                options.bodySize = CorpusModel.BodySize.valueOf(
+                        args.getOptionValues("body-size").get(0).toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                logger.error("Body size ({}) must be one of fixed, uniform or log-normal.",
+                        args.getOptionValues("body-size").get(0));
                 return null;
             }
         }
 
+        // Parse the corpus model arguments.
+        Integer vocabularySize = parseInteger(args, "vocabulary-size", "vocabulary size", 1, options.vocabularySize);
+        Integer bodyWords = parseInteger(args, "body-words", "body words", 1, options.bodyWords);
+        Integer maxComments = parseInteger(args, "max-comments", "max comments", 0, options.maxComments);
+        Double wordSkew = parseDouble(args, "word-skew", "word skew", options.wordSkew);
+        Double bodySpread = parseDouble(args, "body-spread", "body spread", options.bodySpread);
+        Double commentSkew = parseDouble(args, "comment-skew", "comment skew", options.commentSkew);
+        Double taxonomySkew = parseDouble(args, "taxonomy-skew", "taxonomy skew", options.taxonomySkew);
+        if (vocabularySize == null || bodyWords == null || maxComments == null || wordSkew == null ||
+                bodySpread == null || commentSkew == null || taxonomySkew == null) {
+            return null;
+        }
+        options.vocabularySize = vocabularySize;
+        options.bodyWords = bodyWords;
+        options.maxComments = maxComments;
+        options.wordSkew = wordSkew;
+        options.bodySpread = bodySpread;
+        options.commentSkew = commentSkew;
+        options.taxonomySkew = taxonomySkew;
+
         return options;
     }
 
     /**
-     * Generate an iterable with random tags from the database.
+     * Parse an integer argument.
      *
-     * @param count The number of random tags to fetch.
-     * @return An iterable with random tags from the database.
+     * @param args The command line arguments.
+     * @param option The name of the argument.
+     * @param description The description of the argument, for the error messages.
+     * @param minimum The minimum value of the argument.
+     * @param defaultValue The value to return if the argument is missing.
+     * @return The value of the argument, or null if a parsing error has occurred.
      */
-    private Iterable<? extends Tag> getRandomTags(int count) {
-        List<Tag> allTags = tagRepository.findAll();
-        int postTagCount = Math.min(count, allTags.size());
-        List<Tag> postTags = new ArrayList<>();
-
-        for (int i = 0; i < postTagCount; i++) {
-            postTags.add(allTags.remove(ThreadLocalRandom.current().nextInt(allTags.size())));
+    private static Integer parseInteger(ApplicationArguments args, String option, String description, int minimum,
+                                        int defaultValue) {
+        if (!args.containsOption(option)) {
+            return defaultValue;
+        }
+        String value = args.getOptionValues(option).get(0);
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.error("Cannot parse the {} argument ({}) as an integer.", description, value);
+            return null;
+        }
+        if (parsed < minimum) {
+            logger.error("The {} must be an integer that is at least {}.", description, minimum);
+            return null;
         }
 
-        return postTags;
+        return parsed;
     }
 
     /**
-     * Generate an iterable with random categories from the database.
+     * Parse a non negative decimal argument.
      *
-     * @param count The number of random categories to fetch.
-     * @return An iterable with random categories from the database.
+     * @param args The command line arguments.
+     * @param option The name of the argument.
+     * @param description The description of the argument, for the error messages.
+     * @param defaultValue The value to return if the argument is missing.
+     * @return The value of the argument, or null if a parsing error has occurred.
      */
-    private Iterable<? extends Category> getRandomCategories(int count) {
-        List<Category> allCategories = categoryRepository.findAll();
-        int postCategoryCount = Math.min(count, allCategories.size());
-        List<Category> postCategories = new ArrayList<>();
+    private static Double parseDouble(ApplicationArguments args, String option, String description,
+                                      double defaultValue) {
+        if (!args.containsOption(option)) {
+            return defaultValue;
+        }
+        String value = args.getOptionValues(option).get(0);
+        double parsed;
+        try {
+            parsed = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            logger.error("Cannot parse the {} argument ({}) as a number.", description, value);
+            return null;
+        }
+        if (!(parsed >= 0)) {
+            logger.error("The {} must be a non negative number.", description);
+            return null;
+        }
+
+        return parsed;
+    }
 
-        for (int i = 0; i < postCategoryCount; i++) {
-            postCategories.add(allCategories.remove(ThreadLocalRandom.current().nextInt(allCategories.size())));
+    /**
+     * Return random distinct elements of a list, drawn from a distribution.
+     *
+     * @param random The random generator.
+     * @param pool The list.
+     * @param distribution The cumulative probabilities of the list elements.
+     * @param count The number of elements to return.
+     * @return The random elements, at most as many as the elements of the list.
+     */
+    private static List<Integer> randomSubset(Random random, List<Integer> pool, double[] distribution, int count) {
+        int subsetCount = Math.min(count, pool.size());
+        List<Integer> subset = new ArrayList<>(subsetCount);
+        while (subset.size() < subsetCount) {
+            Integer element = pool.get(CorpusModel.sample(random, distribution));
+            if (!subset.contains(element)) {
+                subset.add(element);
+            }
         }
 
-        return postCategories;
+        return subset;
+    }
+
+    /**
+     * Return the slug of a generated post. It includes the seed and the post number, so that it is unique.
+     *
+     * @param title The post title.
+     * @param seed The seed.
+     * @param number The post number.
+     * @return The slug.
+     */
+    private static String slug(String title, long seed, int number) {
+        return title.toLowerCase(Locale.ROOT).replace(' ', '-') + "-" +
+                Long.toUnsignedString(seed, Character.MAX_RADIX) + "-" + number;
     }
 
     /**
      * Return a random date between two dates.
      *
+     * @param random The random generator.
      * @param startDate The minimum date.
      * @param endDate The maximum date.
      * @return The random date time.
      */
-    private OffsetDateTime randomDateTime(OffsetDateTime startDate, OffsetDateTime endDate) {
+    private static OffsetDateTime randomDateTime(Random random, OffsetDateTime startDate, OffsetDateTime endDate) {
         long min = startDate.toEpochSecond();
         long max = endDate.toEpochSecond();
-        long random = ThreadLocalRandom.current().nextLong(min, max);
-
-        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(random), ZoneId.of("UTC"));
-    }
-
-    /**
-     * Return a random author from the list of users.
-     *
-     * @return The random author.
-     */
-    private User getRandomAuthor() {
-        List<User> allUsers = userRepository.findAll();
-        if (allUsers.isEmpty()) {
-            throw new IllegalStateException("No users are defined.");
-        }
+        long seconds = min + (long) (random.nextDouble() * (max - min));
 
-        return allUsers.get(ThreadLocalRandom.current().nextInt(allUsers.size()));
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(seconds), ZoneId.of("UTC"));
     }
 
     /**
-     * The entry point of the command.
+     * The entry point of the command. The search index is not updated as the posts are written. The search index
+     * builder indexes the posts that were updated after its last checkpoint, so the generated posts are indexed
+     * incrementally, without a rebuild. The counters and the archive counts are not maintained either: the counters
+     * are repaired and the archive counts are rebuilt once all the posts are written. The inserts are ordered by table,
+     * so that each flush is written with as few JDBC batches as possible.
      *
      * @param args The command line arguments.
      */
     public static void main(String... args) {
         SpringApplication command = new SpringApplication(GeneratePostsCommand.class);
         command.setWebApplicationType(WebApplicationType.NONE);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.jpa.properties.hibernate.search.indexing_strategy", "manual");
+        properties.put("spring.jpa.properties.hibernate.order_inserts", "true");
+        properties.put("spring.jpa.properties.hibernate.order_updates", "true");
+        properties.put("cms.counters.maintain", "false");
+        properties.put("cms.archive.maintain", "false");
+        command.setDefaultProperties(properties);
         command.run(args);
     }
 }
@@ -0,0 +1,572 @@
+package net.mavroprovato.springcms.command;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.Comment;
+import net.mavroprovato.springcms.entity.ContentStatus;
+import net.mavroprovato.springcms.entity.ImportCheckpoint;
+import net.mavroprovato.springcms.entity.Page;
+import net.mavroprovato.springcms.entity.Post;
+import net.mavroprovato.springcms.entity.Role;
+import net.mavroprovato.springcms.entity.Tag;
+import net.mavroprovato.springcms.entity.User;
+import net.mavroprovato.springcms.repository.CategoryRepository;
+import net.mavroprovato.springcms.repository.ImportCheckpointRepository;
+import net.mavroprovato.springcms.repository.TagRepository;
+import net.mavroprovato.springcms.repository.UserRepository;
+import net.mavroprovato.springcms.service.UserService;
+import net.mavroprovato.springcms.transfer.CommentRecord;
+import net.mavroprovato.springcms.transfer.JsonLinesPostReader;
+import net.mavroprovato.springcms.transfer.PostRecord;
+import net.mavroprovato.springcms.transfer.PostRecordReader;
+import net.mavroprovato.springcms.transfer.RecordType;
+import net.mavroprovato.springcms.transfer.TermRecord;
+import net.mavroprovato.springcms.transfer.WxrPostReader;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A command line command that imports posts and their comments, and pages, from a JSON lines or a WordPress export
+ * (WXR) file.
+ * The file is read one record at a time, and the records are written in chunks, each in its own transaction, with
+ * JDBC batches. The progress is stored along with each chunk, so an interrupted import resumes after the last chunk
+ * that was committed. The tags, the categories and the authors are resolved by slug and user name, and they are
+ * created if they do not exist. The term records of the JSON lines files create the tags and the categories that
+ * they declare, whether posts use them or not. The search index is not updated as the posts are written, the imported
+ * posts are indexed incrementally once the command has completed.
+ */
+@ComponentScan("net.mavroprovato.springcms")
+public class ImportContentCommand implements ApplicationRunner {
+
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(ImportContentCommand.class);
+
+    /** The default number of posts that are committed in each transaction */
+    private static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /** The default JDBC batch size */
+    private static final int DEFAULT_BATCH_SIZE = Post.ID_ALLOCATION_SIZE;
+
+    /**
+     * The supported file formats.
+     */
+    private enum Format {
+        /** JSON lines, one post per line */
+        JSONL,
+        /** WordPress export */
+        WXR
+    }
+
+    /**
+     * Value class to hold the options passed through the command line arguments
+     */
+    private static final class Options {
+        Path file;
+        Format format;
+        int chunkSize = DEFAULT_CHUNK_SIZE;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        boolean restart;
+    }
+
+    /**
+     * The number of imported and skipped records.
+     */
+    private static final class Counts {
+        /** The number of tags and categories of the term records */
+        long terms;
+        /** The number of imported posts */
+        long posts;
+        /** The number of imported comments */
+        long comments;
+        /** The number of posts that were skipped because they exist or they are invalid */
+        long skippedPosts;
+        /** The number of comments that were skipped because they are invalid */
+        long skippedComments;
+
+        /**
+         * Add the counts of a chunk.
+         *
+         * @param chunk The counts of the chunk.
+         */
+        void add(Counts chunk) {
+            terms += chunk.terms;
+            posts += chunk.posts;
+            comments += chunk.comments;
+            skippedPosts += chunk.skippedPosts;
+            skippedComments += chunk.skippedComments;
+        }
+    }
+
+    /** The tag repository */
+    private final TagRepository tagRepository;
+
+    /** The category repository */
+    private final CategoryRepository categoryRepository;
+
+    /** The user repository */
+    private final UserRepository userRepository;
+
+    /** The import checkpoint repository */
+    private final ImportCheckpointRepository importCheckpointRepository;
+
+    /** The user service */
+    private final UserService userService;
+
+    /** The entity manager */
+    private final EntityManager entityManager;
+
+    /** The object mapper */
+    private final ObjectMapper objectMapper;
+
+    /** The bean validator */
+    private final Validator validator;
+
+    /** The template for the transactions of the chunks */
+    private final TransactionTemplate transactionTemplate;
+
+    /** The tag identifiers, keyed by slug */
+    private final Map<String, Integer> tagIds = new HashMap<>();
+
+    /** The category identifiers, keyed by slug */
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+
+    /** The user identifiers, keyed by user name */
+    private final Map<String, Integer> userIds = new HashMap<>();
+
+    /**
+     * Create the import command.
+     *
+     * @param tagRepository The tag repository.
+     * @param categoryRepository The category repository.
+     * @param userRepository The user repository.
+     * @param importCheckpointRepository The import checkpoint repository.
+     * @param userService The user service.
+     * @param entityManager The entity manager.
+     * @param objectMapper The object mapper.
+     * @param validator The bean validator.
+     * @param transactionManager The transaction manager.
+     */
+    @Autowired
+    public ImportContentCommand(TagRepository tagRepository, CategoryRepository categoryRepository,
+                                UserRepository userRepository, ImportCheckpointRepository importCheckpointRepository,
+                                UserService userService, EntityManager entityManager, ObjectMapper objectMapper,
+                                Validator validator, PlatformTransactionManager transactionManager) {
+        this.tagRepository = tagRepository;
+        this.categoryRepository = categoryRepository;
+        this.userRepository = userRepository;
+        this.importCheckpointRepository = importCheckpointRepository;
+        this.userService = userService;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        // Parse the command line options
+        Options options = parseArguments(args);
+        if (options == null) {
+            // An error occurred during parsing
+            return;
+        }
+
+        // Find where the previous import of the file stopped
+        String source = options.file.toAbsolutePath().normalize().toString();
+        long position = options.restart ? 0 : importCheckpointRepository.findById(source)
+                .map(ImportCheckpoint::getPosition).orElse(0L);
+        if (position > 0) {
+            logger.info("Resuming the import of {} after {} records.", source, position);
+        }
+
+        // Load the existing tags, categories and users
+        tagRepository.findAll().forEach(t -> tagIds.put(t.getSlug(), t.getId()));
+        categoryRepository.findAll().forEach(c -> categoryIds.put(c.getSlug(), c.getId()));
+        userRepository.findAll().forEach(u -> userIds.put(u.getUserName(), u.getId()));
+
+        Counts counts = new Counts();
+        long start = System.nanoTime();
+        try (PostRecordReader reader = open(options)) {
+            for (long skipped = 0; skipped < position && reader.hasNext(); skipped++) {
+                reader.next();
+            }
+            List<PostRecord> chunk = new ArrayList<>(options.chunkSize);
+            while (reader.hasNext()) {
+                chunk.add(reader.next());
+                if (chunk.size() == options.chunkSize || !reader.hasNext()) {
+                    long chunkEnd = position + chunk.size();
+                    counts.add(transactionTemplate.execute(
+                            status -> importChunk(options, source, chunk, chunkEnd)));
+                    position = chunkEnd;
+                    chunk.clear();
+                    logger.info("{} records imported.", position);
+                }
+            }
+        }
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        logger.info("{} tags and categories declared.", counts.terms);
+        logger.info("{} posts and {} comments imported in {} s: {} rows/s. Skipped {} posts and {} comments.",
+                counts.posts, counts.comments, String.format("%.1f", seconds),
+                String.format("%.0f", (counts.posts + counts.comments) / seconds), counts.skippedPosts,
+                counts.skippedComments);
+        // The imported posts are indexed incrementally by the search index builder, once the command has completed
+    }
+
+    /**
+     * Import a chunk of posts, and store the position after the chunk. The posts that already exist, with the same
+     * slug, are skipped, so that a file can be imported again.
+     *
+     * @param options The command options.
+     * @param source The import source.
+     * @param chunk The posts.
+     * @param chunkEnd The position of the source after the chunk.
+     * @return The counts of the chunk.
+     */
+    private Counts importChunk(Options options, String source, List<PostRecord> chunk, long chunkEnd) {
+        Session session = entityManager.unwrap(Session.class);
+        session.setJdbcBatchSize(options.batchSize);
+        Counts counts = new Counts();
+        Set<String> existingSlugs = existingSlugs(chunk);
+
+        for (PostRecord record : chunk) {
+            if (record.getType() == RecordType.TERMS) {
+                // Create the terms that do not exist, even if no post uses them
+                record.getTags().forEach(this::resolveTag);
+                record.getCategories().forEach(this::resolveCategory);
+                counts.terms += record.getTags().size() + record.getCategories().size();
+                continue;
+            }
+            String slug = slug(record);
+            if (slug != null && !existingSlugs.add(slug)) {
+                logger.warn("A post with the slug {} exists, skipping it.", slug);
+                counts.skippedPosts++;
+                continue;
+            }
+            Post post = new Post();
+            post.setTitle(record.getTitle());
+            post.setSlug(slug);
+            post.setContent(record.getContent() == null ? "" : record.getContent());
+            post.setStatus(record.getStatus() == null ? ContentStatus.PUBLISHED : record.getStatus());
+            post.setPublishedAt(record.getPublishedAt());
+            if (post.getStatus() == ContentStatus.PUBLISHED && post.getPublishedAt() == null) {
+                post.setPublishedAt(OffsetDateTime.now());
+            }
+            post.setAuthor(entityManager.getReference(User.class, resolveAuthor(record)));
+            if (record.getType() == RecordType.PAGE) {
+                if (importPage(record, post)) {
+                    counts.posts++;
+                } else {
+                    counts.skippedPosts++;
+                }
+                continue;
+            }
+            for (TermRecord tag : record.getTags()) {
+                post.getTags().add(entityManager.getReference(Tag.class, resolveTag(tag)));
+            }
+            for (TermRecord category : record.getCategories()) {
+                post.getCategories().add(entityManager.getReference(Category.class, resolveCategory(category)));
+            }
+            if (!validator.validate(post).isEmpty()) {
+                logger.warn("The post {} is not valid, skipping it.", record.getTitle());
+                counts.skippedPosts++;
+                continue;
+            }
+            entityManager.persist(post);
+            counts.posts++;
+
+            for (CommentRecord commentRecord : record.getComments()) {
+                Comment comment = new Comment();
+                comment.setName(commentRecord.getName());
+                comment.setEmail(commentRecord.getEmail());
+                comment.setWebSite(commentRecord.getWebSite() == null || commentRecord.getWebSite().isEmpty() ?
+                        null : commentRecord.getWebSite());
+                comment.setComment(commentRecord.getComment());
+                comment.setPost(post);
+                comment.setCreatedAt(commentRecord.getCreatedAt());
+                if (!validator.validate(comment).isEmpty()) {
+                    counts.skippedComments++;
+                    continue;
+                }
+                entityManager.persist(comment);
+                counts.comments++;
+            }
+        }
+
+        ImportCheckpoint checkpoint = importCheckpointRepository.findById(source)
+                .orElseGet(() -> new ImportCheckpoint(source));
+        checkpoint.setPosition(chunkEnd);
+        importCheckpointRepository.save(checkpoint);
+        entityManager.flush();
+        entityManager.clear();
+
+        return counts;
+    }
+
+    /**
+     * Import a page. The page is created from the post that holds the common content fields, since pages have no
+     * terms or comments.
+     *
+     * @param record The page.
+     * @param post The post with the content fields.
+     * @return True if the page was imported, false if it is not valid.
+     */
+    private boolean importPage(PostRecord record, Post post) {
+        Page page = new Page();
+        page.setTitle(post.getTitle());
+        page.setSlug(post.getSlug());
+        page.setContent(post.getContent());
+        page.setStatus(post.getStatus());
+        page.setPublishedAt(post.getPublishedAt());
+        page.setAuthor(post.getAuthor());
+        page.setOrder(record.getOrder() == null ? 0 : record.getOrder());
+        if (!validator.validate(page).isEmpty()) {
+            logger.warn("The page {} is not valid, skipping it.", record.getTitle());
+            return false;
+        }
+        entityManager.persist(page);
+
+        return true;
+    }
+
+    /**
+     * Return the slugs of a chunk of posts that already exist.
+     *
+     * @param chunk The posts.
+     * @return The existing slugs.
+     */
+    @SuppressWarnings("unchecked")
+    private Set<String> existingSlugs(List<PostRecord> chunk) {
+        List<String> slugs = chunk.stream()
+                .filter(record -> record.getType() != RecordType.TERMS)
+                .map(ImportContentCommand::slug)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (slugs.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        return new HashSet<String>(entityManager.createNativeQuery("SELECT slug FROM content WHERE slug IN :slugs")
+                .setParameter("slugs", slugs)
+                .getResultList());
+    }
+
+    /**
+     * Return the slug of a post. Posts without a slug get one from their title.
+     *
+     * @param record The post.
+     * @return The slug.
+     */
+    private static String slug(PostRecord record) {
+        return record.getSlug() == null || record.getSlug().isEmpty() ?
+                TermRecord.slugify(record.getTitle()) : record.getSlug();
+    }
+
+    /**
+     * Return the identifier of the author of a post. The author is created if it does not exist, with a random
+     * password, which must be reset before the author can log in.
+     *
+     * @param record The post.
+     * @return The author identifier.
+     */
+    private int resolveAuthor(PostRecord record) {
+        String userName = record.getAuthor() == null || record.getAuthor().isEmpty() ? "imported" :
+                record.getAuthor();
+        return userIds.computeIfAbsent(userName, name -> {
+            User user = new User();
+            user.setUserName(name);
+            user.setEmail(record.getAuthorEmail() == null || record.getAuthorEmail().isEmpty() ?
+                    name + "@imported.invalid" : record.getAuthorEmail());
+            user.setName(record.getAuthorName());
+            user.setPassword(UUID.randomUUID().toString());
+            user.setRole(Role.AUTHOR);
+            userService.save(user);
+            logger.info("Created the author {}.", name);
+
+            return user.getId();
+        });
+    }
+
+    /**
+     * Return the identifier of a tag. The tag is created if it does not exist.
+     *
+     * @param record The tag.
+     * @return The tag identifier.
+     */
+    private int resolveTag(TermRecord record) {
+        return resolveTerm(record, tagIds, slug -> {
+            Tag tag = new Tag();
+            tag.setName(record.getName());
+            tag.setSlug(slug);
+            tag.setDescription(record.getDescription());
+            entityManager.persist(tag);
+
+            return tag.getId();
+        });
+    }
+
+    /**
+     * Return the identifier of a category. The category is created if it does not exist.
+     *
+     * @param record The category.
+     * @return The category identifier.
+     */
+    private int resolveCategory(TermRecord record) {
+        return resolveTerm(record, categoryIds, slug -> {
+            Category category = new Category();
+            category.setName(record.getName());
+            category.setSlug(slug);
+            category.setDescription(record.getDescription());
+            entityManager.persist(category);
+
+            return category.getId();
+        });
+    }
+
+    /**
+     * Return the identifier of a tag or a category by slug.
+     *
+     * @param record The tag or category.
+     * @param ids The identifiers of the known terms, keyed by slug.
+     * @param creator Creates a term with a slug, and returns its identifier.
+     * @return The term identifier.
+     */
+    private static int resolveTerm(TermRecord record, Map<String, Integer> ids, Function<String, Integer> creator) {
+        String slug = record.getSlug();
+        if (slug == null) {
+            throw new IllegalArgumentException("The term " + record.getName() + " has no slug.");
+        }
+
+        return ids.computeIfAbsent(slug, creator);
+    }
+
+    /**
+     * Open the import file. Files with the .gz extension are decompressed.
+     *
+     * @param options The command options.
+     * @return The post record reader.
+     * @throws IOException If the file cannot be opened.
+     */
+    private PostRecordReader open(Options options) throws IOException {
+        InputStream inputStream = new BufferedInputStream(Files.newInputStream(options.file));
+        if (options.file.getFileName().toString().endsWith(".gz")) {
+            inputStream = new GZIPInputStream(inputStream, 64 * 1024);
+        }
+        if (options.format == Format.WXR) {
+            return new WxrPostReader(inputStream);
+        }
+
+        return new JsonLinesPostReader(objectMapper, new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse the command line arguments.
+     *
+     * @param args The command line arguments.
+     * @return The parsed command line arguments as options, or null if a parsing error has occurred.
+     */
+    private Options parseArguments(ApplicationArguments args) {
+        Options options = new Options();
+        // Parse the file argument
+        if (!args.containsOption("file")) {
+            logger.error("The file argument is required.");
+            return null;
+        }
+        options.file = Paths.get(args.getOptionValues("file").get(0));
+        if (!Files.isReadable(options.file)) {
+            logger.error("The file {} cannot be read.", options.file);
+            return null;
+        }
+
+        // Parse the format argument, or detect it from the file extension
+        String fileName = options.file.getFileName().toString().toLowerCase(Locale.ROOT);
+        String format = args.containsOption("format") ? args.getOptionValues("format").get(0) :
+                fileName.endsWith(".xml") || fileName.endsWith(".xml.gz") ? "wxr" : "jsonl";
+        try {
+            options.format = Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.error("Format ({}) must be one of jsonl or wxr.", format);
+            return null;
+        }
+
+        // Parse the chunk size and batch size arguments
+        for (String option : Arrays.asList("chunk-size", "batch-size")) {
+            if (!args.containsOption(option)) {
+                continue;
+            }
+            int value;
+            try {
+                value = Integer.parseInt(args.getOptionValues(option).get(0));
+            } catch (NumberFormatException e) {
+                logger.error("Cannot parse the {} argument ({}) as an integer.", option,
+                        args.getOptionValues(option).get(0));
+                return null;
+            }
+            if (value <= 0) {
+                logger.error("The {} argument must be a positive integer.", option);
+                return null;
+            }
+            if (option.equals("chunk-size")) {
+                options.chunkSize = value;
+            } else {
+                options.batchSize = value;
+            }
+        }
+
+        // Parse the restart argument
+        options.restart = args.containsOption("restart");
+
+        return options;
+    }
+
+    /**
+     * The entry point of the command. The search index is not updated as the posts are written, the imported posts are
+     * indexed once the command has completed.
+     *
+     * @param args The command line arguments.
+     */
+    public static void main(String... args) {
+        SpringApplication command = new SpringApplication(ImportContentCommand.class);
+        command.setWebApplicationType(WebApplicationType.NONE);
+        command.setDefaultProperties(Collections.singletonMap(
+                "spring.jpa.properties.hibernate.search.indexing_strategy", "manual"));
+        command.run(args);
+    }
+}
@@ -0,0 +1,239 @@
+package net.mavroprovato.springcms.component;
+
+import net.mavroprovato.springcms.entity.ArchiveCount;
+import net.mavroprovato.springcms.entity.ContentStatus;
+import net.mavroprovato.springcms.entity.Post;
+import net.mavroprovato.springcms.event.EntityChangedEvent;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.tuple.entity.EntityMetamodel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Objects;
+
+/**
+ * Keeps the archive counts up to date when posts are written. When a post is published, unpublished, deleted or has
+ * its publication date changed, the counts of the affected months are adjusted in the same transaction. The counts are
+ * written with SQL, so an {@link EntityChangedEvent} is published for each adjusted month once the transaction
+ * commits, for the caches that display the archives. The maintainer can be turned off for bulk writes, which then
+ * rebuild the counts once they complete.
+ */
+@Component
+public class ArchiveCountMaintainer implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener {
+
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(ArchiveCountMaintainer.class);
+
+    /** The statement that adds a delta to the count of a month */
+    private static final String UPDATE_COUNT_SQL =
+            "INSERT INTO archive_count (archive_year, archive_month, post_count) VALUES (?, ?, ?) " +
+            "ON CONFLICT (archive_year, archive_month) " +
+            "DO UPDATE SET post_count = archive_count.post_count + EXCLUDED.post_count";
+
+    /** The entity manager factory */
+    private final EntityManagerFactory entityManagerFactory;
+
+    /** The application event publisher */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** True if the archive counts are maintained as posts are written */
+    private final boolean enabled;
+
+    /**
+     * Create the archive count maintainer.
+     *
+     * @param entityManagerFactory The entity manager factory.
+     * @param eventPublisher The application event publisher.
+     * @param enabled True if the archive counts are maintained as posts are written.
+     */
+    @Autowired
+    public ArchiveCountMaintainer(EntityManagerFactory entityManagerFactory, ApplicationEventPublisher eventPublisher,
+                                  @Value("${cms.archive.maintain:true}") boolean enabled) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Register the maintainer as a Hibernate listener, if it is enabled.
+     */
+    @PostConstruct
+    public void registerListeners() {
+        if (!enabled) {
+            logger.info("The archive counts are not maintained, they must be rebuilt after writing.");
+            return;
+        }
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (isPost(event.getPersister())) {
+            adjust(event.getSession(), null, archiveMonth(event.getPersister(), event.getState()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (isPost(event.getPersister())) {
+            if (event.getOldState() == null) {
+                logger.warn("Post {} was updated without a snapshot, the archive counts will be fixed by the next " +
+                        "rebuild.", event.getId());
+                return;
+            }
+            adjust(event.getSession(), archiveMonth(event.getPersister(), event.getOldState()),
+                    archiveMonth(event.getPersister(), event.getState()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (isPost(event.getPersister())) {
+            adjust(event.getSession(), archiveMonth(event.getPersister(), event.getDeletedState()), null);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    /**
+     * Check if the persister is the post persister.
+     *
+     * @param persister The persister.
+     * @return True if the persister is the post persister.
+     */
+    private static boolean isPost(EntityPersister persister) {
+        return Post.class.isAssignableFrom(persister.getMappedClass());
+    }
+
+    /**
+     * Return the month under which a post is counted in the archives.
+     *
+     * @param persister The post persister.
+     * @param state The post state.
+     * @return The month, or null if the post is not counted in the archives.
+     */
+    private static YearMonth archiveMonth(EntityPersister persister, Object[] state) {
+        EntityMetamodel metamodel = persister.getEntityMetamodel();
+        Object status = state[metamodel.getPropertyIndex("status")];
+        OffsetDateTime publishedAt = (OffsetDateTime) state[metamodel.getPropertyIndex("publishedAt")];
+        if (status != ContentStatus.PUBLISHED || publishedAt == null) {
+            return null;
+        }
+
+        return YearMonth.from(publishedAt.withOffsetSameInstant(ZoneOffset.UTC));
+    }
+
+    /**
+     * Move a post from one month to another in the archive counts. The counts are updated just before the transaction
+     * commits.
+     *
+     * @param session The session.
+     * @param before The month that the post was counted under, or null if it was not counted.
+     * @param after The month that the post is now counted under, or null if it is no longer counted.
+     */
+    private void adjust(EventSource session, YearMonth before, YearMonth after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> s.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_COUNT_SQL)) {
+                if (before != null) {
+                    addDelta(statement, before, -1);
+                }
+                if (after != null) {
+                    addDelta(statement, after, 1);
+                }
+                statement.executeBatch();
+            }
+        }));
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> {
+            if (success) {
+                if (before != null) {
+                    publish(before);
+                }
+                if (after != null) {
+                    publish(after);
+                }
+            }
+        });
+    }
+
+    /**
+     * Publish the update of the count of a month. The count is not loaded, so the event has no entity.
+     *
+     * @param month The month.
+     */
+    private void publish(YearMonth month) {
+        eventPublisher.publishEvent(new EntityChangedEvent(this, EntityChangedEvent.Type.UPDATE, ArchiveCount.class,
+                new ArchiveCount.Key(month.getYear(), month.getMonthValue()), null, Collections.emptyMap()));
+    }
+
+    /**
+     * Add a delta for the count of a month to the batch.
+     *
+     * @param statement The update statement.
+     * @param month The month.
+     * @param delta The delta.
+     * @throws SQLException If the parameters cannot be set.
+     */
+    private static void addDelta(PreparedStatement statement, YearMonth month, long delta) throws SQLException {
+        statement.setInt(1, month.getYear());
+        statement.setInt(2, month.getMonthValue());
+        statement.setLong(3, delta);
+        statement.addBatch();
+    }
+}
@@ -1,46 +1,790 @@
 package net.mavroprovato.springcms.component;
 
-import net.mavroprovato.springcms.command.GeneratePostsCommand;
+import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.Post;
+import net.mavroprovato.springcms.entity.Tag;
+import net.mavroprovato.springcms.entity.User;
+import net.mavroprovato.springcms.event.EntityChangedEvent;
+import net.mavroprovato.springcms.repository.ContentDeletionRepository;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.util.Version;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.SearchFactory;
+import org.hibernate.search.engine.ProjectionConstants;
+import org.hibernate.search.filter.FullTextFilterImplementor;
+import org.hibernate.search.indexes.spi.IndexManager;
 import org.hibernate.search.jpa.FullTextEntityManager;
 import org.hibernate.search.jpa.Search;
+import org.hibernate.search.metadata.FieldDescriptor;
+import org.hibernate.search.spi.SearchIntegrator;
+import org.hibernate.search.spi.impl.PojoIndexedTypeIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
 import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PreDestroy;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 /**
- * Rebuild the search index when the application starts up.
+ * Brings the search index up to date when the application starts up, in the background for the web application. The
+ * index is stored in the file system, along with a checkpoint: the modification time and the identifier of the last
+ * post that it contains, and the version of the index schema. Only the posts that were modified after the checkpoint
+ * are indexed, and the whole index is rebuilt only if there is no checkpoint, if the index cannot be read, or if its
+ * schema version is different. The posts that are modified while the application runs are indexed as they are saved.
+ * The posts that are modified by other nodes or by the commands are indexed periodically, by the same incremental
+ * update, which then advances the checkpoint. The posts that they delete are purged by comparing the identifiers in the
+ * index with the identifiers in the database, when the application starts, and periodically when content was deleted
+ * after the checkpoint. The progress of the rebuilds is reported by {@link SearchIndexProgress}.
+ * <p>
+ * The posts store the names and slugs of their tags and categories, and the user name of their author, in the index.
+ * When one of them changes, the posts that store it are indexed again in the background.
+ * <p>
+ * The index has two shards, and a rebuild fills the one that the searches do not use (see {@link SearchIndexShards}).
+ * When the rebuilt shard contains as many posts as the database, the searches switch over to it, and the shard that was
+ * used until then is emptied. The searches keep using the current shard while the index is rebuilt, so that a rebuild
+ * can run while the application serves requests.
  */
 @Component
-@Transactional
 public class BuildSearchIndex implements ApplicationListener<ApplicationReadyEvent> {
 
     /** Logger for the class */
-    private static Logger logger = LoggerFactory.getLogger(GeneratePostsCommand.class);
+    private static Logger logger = LoggerFactory.getLogger(BuildSearchIndex.class);
+
+    /**
+     * The version of the index schema. The indexed fields are part of the version, so it only needs to be changed
+     * when the way the fields are indexed changes, for example when an analyzer is changed.
+     */
+    private static final int SCHEMA_VERSION = 1;
+
+    /** The name of the checkpoint file, in the index directory */
+    private static final String CHECKPOINT_FILE = "checkpoint.properties";
+
+    /** The number of posts that are indexed in each batch */
+    private static final int BATCH_SIZE = 500;
 
     /** The entity manager */
     @PersistenceContext
     private EntityManager entityManager;
 
+    /** The entity manager factory */
+    private final EntityManagerFactory entityManagerFactory;
+
+    /** The template for the indexing transactions */
+    private final TransactionTemplate transactionTemplate;
+
+    /** The checkpoint file, or null if the index is not stored in the file system */
+    private final Path checkpointFile;
+
+    /** How far before the checkpoint the posts are indexed again, to cover clock skew and long transactions */
+    private final Duration overlap;
+
+    /** The progress of the index rebuilds */
+    private final SearchIndexProgress progress;
+
+    /** The number of threads that load the posts during a rebuild */
+    private final int threads;
+
+    /** The number of posts that each thread indexes between two flushes to the index during a rebuild */
+    private final int batchSize;
+
+    /** The number of posts that each thread indexes in each transaction during a rebuild */
+    private final int fetchSize;
+
+    /** The second level cache mode during a rebuild */
+    private final CacheMode cacheMode;
+
+    /** The output cache, which holds the rendered search pages */
+    private final OutputCache outputCache;
+
+    /** The content version, which validates the search pages that the clients hold */
+    private final ContentVersion contentVersion;
+
+    /** The content deletion repository, which holds the time of the last deletion */
+    private final ContentDeletionRepository contentDeletionRepository;
+
+    /** The executor that brings the index up to date in the background */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** True once the index has been brought up to date, so that the checkpoint can be advanced */
+    private volatile boolean upToDate;
+
+    /** True while the index is brought up to date, rebuilt, or its checkpoint is advanced */
+    private final AtomicBoolean running = new AtomicBoolean();
+
     /**
-     * Create an initial Lucene index for the data already present in the database. This method is called when Spring's
-     * startup.
+     * An indexing task.
+     */
+    @FunctionalInterface
+    private interface IndexTask {
+
+        /**
+         * Run the task.
+         *
+         * @throws InterruptedException If the thread is interrupted while the task runs.
+         * @throws IOException If the checkpoint cannot be read or written.
+         */
+        void run() throws InterruptedException, IOException;
+    }
+
+    /**
+     * Create the search index builder.
+     *
+     * @param entityManagerFactory The entity manager factory.
+     * @param transactionManager The transaction manager.
+     * @param directoryProvider The directory provider of the index.
+     * @param indexBase The directory of the index.
+     * @param overlap How far before the checkpoint the posts are indexed again, in seconds.
+     * @param progress The progress of the index rebuilds.
+     * @param threads The number of threads that load the posts during a rebuild.
+     * @param batchSize The number of posts that each thread indexes between two flushes to the index during a
+     * rebuild.
+     * @param fetchSize The number of posts that each thread indexes in each transaction during a rebuild.
+     * @param cacheMode The second level cache mode during a rebuild.
+     * @param outputCache The output cache.
+     * @param contentVersion The content version.
+     * @param contentDeletionRepository The content deletion repository.
+     */
+    @Autowired
+    public BuildSearchIndex(
+            EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager,
+            @Value("${spring.jpa.properties.hibernate.search.default.directory_provider:filesystem}")
+                    String directoryProvider,
+            @Value("${spring.jpa.properties.hibernate.search.default.indexBase:.}") String indexBase,
+            @Value("${cms.search.index-overlap:60}") long overlap,
+            SearchIndexProgress progress,
+            @Value("${cms.search.indexer.threads:2}") int threads,
+            @Value("${cms.search.indexer.batch-size:25}") int batchSize,
+            @Value("${cms.search.indexer.fetch-size:100}") int fetchSize,
+            @Value("${cms.search.indexer.cache-mode:IGNORE}") CacheMode cacheMode,
+            OutputCache outputCache, ContentVersion contentVersion,
+            ContentDeletionRepository contentDeletionRepository) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpointFile = "filesystem".equals(directoryProvider) ?
+                Paths.get(indexBase).resolve(CHECKPOINT_FILE) : null;
+        this.overlap = Duration.ofSeconds(overlap);
+        this.progress = progress;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.fetchSize = fetchSize;
+        this.cacheMode = cacheMode;
+        this.outputCache = outputCache;
+        this.contentVersion = contentVersion;
+        this.contentDeletionRepository = contentDeletionRepository;
+        SearchIndexCheckpoint checkpoint = readCheckpoint();
+        if (checkpoint != null) {
+            SearchIndexShards.setLive(checkpoint.getShard());
+        }
+        if (checkpoint == null || !version().equals(checkpoint.getVersion())) {
+            // The index will be rebuilt, it is not ready until then
+            progress.start(false);
+        }
+    }
+
+    /**
+     * Bring the search index up to date with the posts in the database. This method is called when Spring's startup
+     * is complete.
      *
      * @param event The application event.
      */
     @Override
     public void onApplicationEvent(final ApplicationReadyEvent event) {
+        running.set(true);
+        if (event.getApplicationContext() instanceof WebServerApplicationContext) {
+            // Serve requests while the index is brought up to date
+            executor.execute(() -> runAndLog(this::update));
+        } else {
+            // The commands must not exit before the index is up to date
+            runAndLog(this::update);
+        }
+    }
+
+    /**
+     * Rebuild the search index in the background. The searches keep using the current index until the new one is
+     * complete.
+     *
+     * @return True if the rebuild was started, false if the index is already being brought up to date or rebuilt.
+     */
+    public boolean rebuildInBackground() {
+        if (!upToDate || !running.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(() -> runAndLog(() -> rebuild(version(), true, "it was requested")));
+
+        return true;
+    }
+
+    /**
+     * Check if the index is being brought up to date or rebuilt.
+     *
+     * @return True if the index is being brought up to date or rebuilt.
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Run an indexing task, and log any error.
+     *
+     * @param task The task.
+     */
+    private void runAndLog(IndexTask task) {
+        try {
+            task.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while building the search index", e);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error occurred while trying to build the search index", e);
+        } finally {
+            progress.finish();
+            running.set(false);
+        }
+    }
+
+    /**
+     * Stop the indexing, if it is in progress, when the application is shut down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Bring the search index up to date, incrementally if the checkpoint allows it.
+     *
+     * @throws InterruptedException If the thread is interrupted while the index is rebuilt.
+     * @throws IOException If the checkpoint cannot be read or written.
+     */
+    public void update() throws InterruptedException, IOException {
+        long start = System.nanoTime();
+        String version = version();
+        SearchIndexCheckpoint checkpoint = readCheckpoint();
+        if (checkpoint == null) {
+            rebuild(version, false, "there is no checkpoint");
+        } else if (!version.equals(checkpoint.getVersion())) {
+            // The searches cannot use the fields that the current index does not have
+            rebuild(version, false, "the index schema has changed");
+        } else {
+            long indexed = indexedPostCount(SearchIndexShards.getLive());
+            if (indexed < 0) {
+                rebuild(version, false, "the index cannot be read");
+            } else {
+                SearchIndexCheckpoint next = currentCheckpoint(version, SearchIndexShards.getLive());
+                long count = indexSince(checkpoint.getUpdatedAt().minus(overlap));
+                count += reconcile();
+                writeCheckpoint(next);
+                logger.info("Search index updated incrementally: {} posts indexed or purged in {} ms.", count,
+                        Duration.ofNanos(System.nanoTime() - start).toMillis());
+            }
+        }
+        upToDate = true;
+    }
+
+    /**
+     * Index the posts that were modified after the checkpoint, and advance the checkpoint to the last post that was
+     * modified before they were indexed. The posts that this node saves are indexed when their transaction commits,
+     * but the posts that other nodes or the commands write are only indexed here, so the checkpoint only moves past
+     * posts that this node has indexed. If content was deleted after the checkpoint, the deleted posts are purged as
+     * well. Nothing is done while the index is brought up to date or rebuilt, since the rebuild writes its own
+     * checkpoint.
+     */
+    @Scheduled(fixedDelayString = "${cms.search.checkpoint-interval:300000}",
+            initialDelayString = "${cms.search.checkpoint-interval:300000}")
+    public void saveCheckpoint() {
+        if (!upToDate || checkpointFile == null || !running.compareAndSet(false, true)) {
+            return;
+        }
         try {
+            SearchIndexCheckpoint checkpoint = readCheckpoint();
+            if (checkpoint != null) {
+                SearchIndexCheckpoint next = currentCheckpoint(checkpoint.getVersion(), SearchIndexShards.getLive());
+                OffsetDateTime since = checkpoint.getUpdatedAt().minus(overlap);
+                long count = indexSince(since);
+                OffsetDateTime lastDeletedAt = transactionTemplate.execute(
+                        status -> contentDeletionRepository.findLastDeletedAt());
+                if (lastDeletedAt != null && !lastDeletedAt.isBefore(since)) {
+                    count += reconcile();
+                }
+                writeCheckpoint(next);
+                logger.debug("Search index checkpoint advanced: {} posts indexed.", count);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cannot advance the search index checkpoint", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Index again the posts that store a tag, a category or an author whose stored properties were modified. The posts
+     * are indexed by the background executor, after any update or rebuild of the index that is in progress, so that
+     * they are indexed in the shard that the searches use once it completes. The search pages, along with their
+     * facets, were rendered and validated from the previous documents until then, so they are invalidated.
+     *
+     * @param event The entity changed event.
+     */
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.getType() != EntityChangedEvent.Type.UPDATE) {
+            // New terms and authors have no posts yet, and the posts are indexed again when their terms are removed
+            return;
+        }
+        String query;
+        if (event.isAbout(Tag.class) && (event.isModified("name") || event.isModified("slug"))) {
+            query = "SELECT p FROM Post p JOIN p.tags t WHERE t.id = :id ORDER BY p.id";
+        } else if (event.isAbout(Category.class) && (event.isModified("name") || event.isModified("slug"))) {
+            query = "SELECT p FROM Post p JOIN p.categories c WHERE c.id = :id ORDER BY p.id";
+        } else if (event.isAbout(User.class) && event.isModified("userName")) {
+            query = "SELECT p FROM Post p WHERE p.author.id = :id ORDER BY p.id";
+        } else {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                long count = index(query, "id", event.getId());
+                searchResultsChanged();
+                logger.info("{} posts of {} {} indexed again.", count, event.getEntityClass().getSimpleName(),
+                        event.getId());
+            } catch (RuntimeException e) {
+                logger.error("Cannot index the posts of {} {}", event.getEntityClass().getSimpleName(),
+                        event.getId(), e);
+            }
+        });
+    }
+
+    /**
+     * Rebuild the whole index in the shard that the searches do not use, and switch the searches over to it when it
+     * is complete. The posts that are modified while the shard is rebuilt are indexed in the current shard, so they
+     * are indexed again in the rebuilt shard before and after the switch. If the rebuilt shard does not contain as
+     * many posts as the database, it is only used if there was no usable index before.
+     *
+     * @param version The version of the index schema.
+     * @param ready True if the current index is usable, so that the searches keep using it during the rebuild.
+     * @param reason The reason for the rebuild, for the log.
+     * @throws InterruptedException If the thread is interrupted while the index is rebuilt.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    private void rebuild(String version, boolean ready, String reason) throws InterruptedException, IOException {
+        String shard = SearchIndexShards.startShadow();
+        logger.info("Rebuilding the search index in the {} shard, because {}.", shard, reason);
+        long start = System.nanoTime();
+        progress.start(ready);
+        boolean promoted = false;
+        try {
+            SearchIndexCheckpoint first = currentCheckpoint(version, shard);
+            purge(shard);
+            load(shard);
+            SearchIndexCheckpoint next = currentCheckpoint(version, shard);
+            SearchIndexShards.using(shard, () -> indexSince(first.getUpdatedAt().minus(overlap)));
+            long indexed = indexedPostCount(shard);
+            long count = postCount();
+            if (indexed != count && ready) {
+                logger.error("The rebuilt search index contains {} posts instead of {}, the searches keep using the " +
+                        "{} shard.", indexed, count, SearchIndexShards.getLive());
+                purge(shard);
+                return;
+            }
+            if (indexed == count) {
+                writeCheckpoint(next);
+            } else {
+                logger.warn("The rebuilt search index contains {} posts instead of {}, it will be rebuilt on the " +
+                        "next start.", indexed, count);
+            }
+            String retired = SearchIndexShards.promoteShadow();
+            promoted = true;
+            // The posts that were saved during the switch may have been indexed in the retired shard only
+            indexSince(next.getUpdatedAt().minus(overlap));
+            purge(retired);
+            searchResultsChanged();
+            logger.info("Search index rebuilt in {} ms, the searches use the {} shard.",
+                    Duration.ofNanos(System.nanoTime() - start).toMillis(), shard);
+        } finally {
+            if (!promoted) {
+                SearchIndexShards.dropShadow();
+            }
+            progress.finish();
+        }
+    }
+
+    /**
+     * Invalidate the search pages, after the documents that the searches use have changed without a modification of
+     * the posts. The cached pages are evicted, and the clients must fetch the pages again.
+     */
+    private void searchResultsChanged() {
+        outputCache.evict(Collections.singleton(PageDependencies.SEARCH));
+        contentVersion.markModified();
+    }
+
+    /**
+     * Index all posts in a shard. The range of the post identifiers is split in consecutive ranges, one for each loader
+     * thread, so that each thread reads its posts with the primary key index.
+     *
+     * @param shard The shard.
+     * @throws InterruptedException If the thread is interrupted while the posts are indexed.
+     */
+    private void load(String shard) throws InterruptedException {
+        progress.addToTotalCount(postCount());
+        Object[] bounds = transactionTemplate.execute(status -> entityManager.createQuery(
+                "SELECT MIN(p.id), MAX(p.id) FROM Post p", Object[].class).getSingleResult());
+        if (bounds[0] == null) {
+            progress.indexingCompleted();
+            return;
+        }
+        int min = (Integer) bounds[0];
+        int max = (Integer) bounds[1];
+        int partitions = Math.max(1, threads);
+        long width = ((long) max - min) / partitions + 1;
+        ExecutorService loaders = Executors.newFixedThreadPool(partitions, runnable -> {
+            Thread thread = new Thread(runnable, "search-index-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (long low = min; low <= max; low += width) {
+                int first = (int) low;
+                int last = (int) Math.min(low + width - 1, max);
+                results.add(loaders.submit(() -> SearchIndexShards.using(shard, () -> load(first, last))));
+            }
+            for (Future<Long> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Cannot index the posts", e.getCause());
+                }
+            }
+        } finally {
+            loaders.shutdownNow();
+        }
+        progress.indexingCompleted();
+    }
+
+    /**
+     * Index the posts of an identifier range in the shard of the current thread. The posts are read in batches of the
+     * fetch size, in order of identifier, and each batch is indexed and committed in its own transaction, so that no
+     * transaction stays open for the whole range.
+     *
+     * @param first The first identifier of the range.
+     * @param last The last identifier of the range.
+     * @return The number of indexed posts.
+     */
+    private long load(int first, int last) {
+        long count = 0;
+        int after = first - 1;
+        List<Integer> ids;
+        do {
+            int low = after + 1;
+            ids = transactionTemplate.execute(status -> {
+                FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(entityManager);
+                List<Post> posts = entityManager.unwrap(Session.class)
+                        .createQuery("SELECT p FROM Post p WHERE p.id BETWEEN :low AND :high ORDER BY p.id",
+                                Post.class)
+                        .setParameter("low", low)
+                        .setParameter("high", last)
+                        .setMaxResults(fetchSize)
+                        .setReadOnly(true)
+                        .setCacheMode(cacheMode)
+                        .getResultList();
+                for (int i = 0; i < posts.size(); i++) {
+                    fullTextEntityManager.index(posts.get(i));
+                    if ((i + 1) % batchSize == 0) {
+                        fullTextEntityManager.flushToIndexes();
+                        progress.documentsAdded(batchSize);
+                    }
+                }
+                fullTextEntityManager.flushToIndexes();
+                progress.documentsAdded(posts.size() % batchSize);
+                List<Integer> indexed = posts.stream().map(Post::getId).collect(Collectors.toList());
+                fullTextEntityManager.clear();
+
+                return indexed;
+            });
+            count += ids.size();
+            if (!ids.isEmpty()) {
+                after = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == fetchSize);
+
+        return count;
+    }
+
+    /**
+     * Remove all posts from a shard.
+     *
+     * @param shard The shard.
+     */
+    private void purge(String shard) {
+        SearchIndexShards.using(shard, () -> transactionTemplate.execute(status -> {
+            FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(entityManager);
+            fullTextEntityManager.purgeAll(Post.class);
+            fullTextEntityManager.flushToIndexes();
+
+            return null;
+        }));
+    }
+
+    /**
+     * Make the posts in the shard of the current thread match the posts in the database. The posts that were deleted
+     * by other nodes or by the commands are purged, and the posts that are missing from the index are indexed. The
+     * identifiers of the indexed posts are compared with the identifiers in the database as bit sets, which hold a bit
+     * per identifier.
+     *
+     * @return The number of purged and indexed posts.
+     */
+    private long reconcile() {
+        BitSet purged = new BitSet();
+        BitSet missing = new BitSet();
+        transactionTemplate.execute(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            FullTextSession fullTextSession = org.hibernate.search.Search.getFullTextSession(session);
+            try (ScrollableResults results = fullTextSession.createFullTextQuery(new MatchAllDocsQuery(), Post.class)
+                    .setProjection(ProjectionConstants.ID)
+                    .setFetchSize(BATCH_SIZE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (results.next()) {
+                    purged.set((Integer) results.get(0));
+                }
+            }
+            try (ScrollableResults results = session.createQuery("SELECT p.id FROM Post p", Integer.class)
+                    .setFetchSize(BATCH_SIZE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (results.next()) {
+                    int id = (Integer) results.get(0);
+                    if (purged.get(id)) {
+                        purged.clear(id);
+                    } else {
+                        missing.set(id);
+                    }
+                }
+            }
+            for (int id = purged.nextSetBit(0); id >= 0; id = purged.nextSetBit(id + 1)) {
+                fullTextSession.purge(Post.class, id);
+            }
+            fullTextSession.flushToIndexes();
+
+            return null;
+        });
+        List<Integer> ids = missing.stream().boxed().collect(Collectors.toList());
+        for (int start = 0; start < ids.size(); start += BATCH_SIZE) {
+            index("SELECT p FROM Post p WHERE p.id IN :ids ORDER BY p.id", "ids",
+                    new ArrayList<>(ids.subList(start, Math.min(start + BATCH_SIZE, ids.size()))));
+        }
+        if (!purged.isEmpty() || !ids.isEmpty()) {
+            logger.info("Search index reconciled: {} deleted posts purged, {} missing posts indexed.",
+                    purged.cardinality(), ids.size());
+        }
+
+        return purged.cardinality() + ids.size();
+    }
+
+    /**
+     * Index the posts that were modified after a time, in the shard of the current thread.
+     *
+     * @param since The time.
+     * @return The number of indexed posts.
+     */
+    private long indexSince(OffsetDateTime since) {
+        return index("SELECT p FROM Post p WHERE p.updatedAt >= :since ORDER BY p.updatedAt, p.id", "since", since);
+    }
+
+    /**
+     * Index the posts that a query returns, in the shard of the current thread.
+     *
+     * @param query The query.
+     * @param parameter The name of the query parameter.
+     * @param value The value of the query parameter.
+     * @return The number of indexed posts.
+     */
+    private long index(String query, String parameter, Object value) {
+        return transactionTemplate.execute(status -> {
             FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(entityManager);
-            fullTextEntityManager.createIndexer().startAndWait();
+            long count = 0;
+            try (ScrollableResults results = entityManager.unwrap(Session.class)
+                    .createQuery(query, Post.class)
+                    .setParameter(parameter, value)
+                    .setFetchSize(BATCH_SIZE)
+                    .setReadOnly(true)
+                    .setCacheMode(CacheMode.IGNORE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (results.next()) {
+                    fullTextEntityManager.index(results.get(0));
+                    if (++count % BATCH_SIZE == 0) {
+                        fullTextEntityManager.flushToIndexes();
+                        fullTextEntityManager.clear();
+                    }
+                }
+            }
+            fullTextEntityManager.flushToIndexes();
+            fullTextEntityManager.clear();
+
+            return count;
+        });
+    }
+
+    /**
+     * Read the checkpoint.
+     *
+     * @return The checkpoint, or null if the index is not stored in the file system or if there is no valid checkpoint.
+     */
+    private SearchIndexCheckpoint readCheckpoint() {
+        if (checkpointFile == null) {
+            return null;
         }
-        catch (InterruptedException ex) {
-            logger.error("Error occurred while trying to build the search index", ex);
+        try {
+            SearchIndexCheckpoint checkpoint = SearchIndexCheckpoint.read(checkpointFile);
+            return checkpoint == null || !SearchIndexShards.isShard(checkpoint.getShard()) ? null : checkpoint;
+        } catch (IOException e) {
+            logger.warn("Cannot read the search index checkpoint", e);
+            return null;
+        }
+    }
+
+    /**
+     * Write the checkpoint, if the index is stored in the file system.
+     *
+     * @param checkpoint The checkpoint.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    private void writeCheckpoint(SearchIndexCheckpoint checkpoint) throws IOException {
+        if (checkpointFile != null) {
+            checkpoint.write(checkpointFile);
+        }
+    }
+
+    /**
+     * Return a checkpoint at the last modified post.
+     *
+     * @param version The version of the index schema.
+     * @param shard The shard that the searches use.
+     * @return The checkpoint.
+     */
+    private SearchIndexCheckpoint currentCheckpoint(String version, String shard) {
+        List<Object[]> last = transactionTemplate.execute(status -> entityManager.createQuery(
+                "SELECT p.updatedAt, p.id FROM Post p ORDER BY p.updatedAt DESC, p.id DESC", Object[].class)
+                .setMaxResults(1)
+                .getResultList());
+        if (last.isEmpty()) {
+            return new SearchIndexCheckpoint(version, OffsetDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC), 0,
+                    shard);
+        }
+
+        return new SearchIndexCheckpoint(version, (OffsetDateTime) last.get(0)[0], (Integer) last.get(0)[1], shard);
+    }
+
+    /**
+     * Return the number of posts in a shard. The reader is opened on the index of the shard only, since a reader that
+     * is opened for the post entity covers all the shards.
+     *
+     * @param shard The shard.
+     * @return The number of posts, or -1 if the index cannot be read.
+     */
+    private long indexedPostCount(String shard) {
+        SearchFactory searchFactory = searchFactory();
+        try {
+            // The index of a shard is created when it is first selected
+            IndexManager indexManager = SearchIndexShards.using(shard, () -> searchFactory
+                    .unwrap(SearchIntegrator.class)
+                    .getIndexBinding(PojoIndexedTypeIdentifier.convertFromLegacy(Post.class))
+                    .getIndexManagerSelector()
+                    .forFilters(new FullTextFilterImplementor[0])
+                    .iterator().next());
+            IndexReader reader = searchFactory.getIndexReaderAccessor().open(indexManager.getIndexName());
+            try {
+                return reader.numDocs();
+            } finally {
+                searchFactory.getIndexReaderAccessor().close(reader);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Cannot read the search index", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Return the number of posts in the database.
+     *
+     * @return The number of posts.
+     */
+    private long postCount() {
+        return transactionTemplate.execute(status -> entityManager.createQuery(
+                "SELECT COUNT(p) FROM Post p", Long.class).getSingleResult());
+    }
+
+    /**
+     * Return the search factory.
+     *
+     * @return The search factory.
+     */
+    private SearchFactory searchFactory() {
+        FullTextEntityManager fullTextEntityManager =
+                Search.getFullTextEntityManager(entityManagerFactory.createEntityManager());
+        try {
+            return fullTextEntityManager.getSearchFactory();
+        } finally {
+            fullTextEntityManager.close();
         }
     }
+
+    /**
+     * Return the version of the index schema. It consists of the schema version number, the Lucene version, and the
+     * indexed fields of the posts along with their options.
+     *
+     * @return The version.
+     */
+    private String version() {
+        String fields = searchFactory().getIndexedTypeDescriptor(Post.class).getIndexedFields().stream()
+                .map(BuildSearchIndex::fieldVersion)
+                .sorted()
+                .collect(Collectors.joining(","));
+
+        return SCHEMA_VERSION + ";" + Version.LATEST + ";" + fields;
+    }
+
+    /**
+     * Return the description of an indexed field, as it is used in the version.
+     *
+     * @param field The field.
+     * @return The field description.
+     */
+    private static String fieldVersion(FieldDescriptor field) {
+        return field.getName() + ":" + field.getIndex() + ":" + field.getAnalyze() + ":" + field.getStore() + ":" +
+                field.getNorms() + ":" + field.getType();
+    }
 }
@@ -0,0 +1,48 @@
+package net.mavroprovato.springcms.component;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.hibernate.cache.spi.support.AbstractReadWriteAccess;
+
+import java.io.Serializable;
+
+/**
+ * Weighs the entries of a second level cache region by the approximate size of the entity state that they hold, so
+ * that regions that hold large text properties can be bounded by memory instead of by the number of entries. It is
+ * configured as the weigher of a region in application.conf.
+ */
+public class CacheEntryWeigher implements Weigher<Object, Object> {
+
+    /** The approximate weight of an entry, without its state */
+    private static final int ENTRY_WEIGHT = 64;
+
+    /** The approximate weight of a property that is not a string or a byte array */
+    private static final int PROPERTY_WEIGHT = 16;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int weigh(Object key, Object value) {
+        Object entry = value;
+        if (entry instanceof AbstractReadWriteAccess.Item) {
+            entry = ((AbstractReadWriteAccess.Item) entry).getValue();
+        }
+        if (!(entry instanceof CacheEntry)) {
+            return ENTRY_WEIGHT;
+        }
+
+        long weight = ENTRY_WEIGHT;
+        for (Serializable property : ((CacheEntry) entry).getDisassembledState()) {
+            if (property instanceof String) {
+                weight += ((String) property).length();
+            } else if (property instanceof byte[]) {
+                weight += ((byte[]) property).length;
+            } else {
+                weight += PROPERTY_WEIGHT;
+            }
+        }
+
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,111 @@
+package net.mavroprovato.springcms.component;
+
+import net.mavroprovato.springcms.entity.Comment;
+import net.mavroprovato.springcms.entity.ContentDeletion;
+import net.mavroprovato.springcms.entity.Page;
+import net.mavroprovato.springcms.entity.Post;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.sql.PreparedStatement;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Stamps the time of the last deletion of a post, a page or a comment in the {@link ContentDeletion} row, just before
+ * the transaction that deleted it commits. The stamp is written once per transaction, however many entities it
+ * deletes. Content that is deleted with bulk statements is not recorded.
+ */
+@Component
+public class ContentDeletionRecorder implements PostDeleteEventListener {
+
+    /**
+     * The statement that stamps the deletion time. The time is stored in UTC, as Hibernate stores the dates, and it
+     * never moves backwards.
+     */
+    private static final String STAMP_SQL =
+            "INSERT INTO content_deletion (id, deleted_at) VALUES (?, clock_timestamp() AT TIME ZONE 'UTC') " +
+            "ON CONFLICT (id) DO UPDATE SET deleted_at = GREATEST(content_deletion.deleted_at, EXCLUDED.deleted_at)";
+
+    /** The entity manager factory */
+    private final EntityManagerFactory entityManagerFactory;
+
+    /** The sessions whose transaction will stamp the deletion time when it commits */
+    private final Set<EventSource> stamping = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    /**
+     * Create the content deletion recorder.
+     *
+     * @param entityManagerFactory The entity manager factory.
+     */
+    @Autowired
+    public ContentDeletionRecorder(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Register the recorder as a Hibernate listener.
+     */
+    @PostConstruct
+    public void registerListeners() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    /**
+     * Stamp the deletion time when the transaction that deleted a post, a page or a comment commits.
+     *
+     * @param event The delete event.
+     */
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        if (!(entity instanceof Post) && !(entity instanceof Page) && !(entity instanceof Comment)) {
+            return;
+        }
+        EventSource session = event.getSession();
+        if (!stamping.add(session)) {
+            return;
+        }
+
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> s.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(STAMP_SQL)) {
+                statement.setInt(1, ContentDeletion.ID);
+                statement.executeUpdate();
+            }
+        }));
+        session.getActionQueue().registerProcess(
+                (AfterTransactionCompletionProcess) (success, s) -> stamping.remove(session));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+}
@@ -0,0 +1,228 @@
+package net.mavroprovato.springcms.component;
+
+import net.mavroprovato.springcms.event.EntityChangedEvent;
+import net.mavroprovato.springcms.repository.CommentRepository;
+import net.mavroprovato.springcms.repository.ContentDeletionRepository;
+import net.mavroprovato.springcms.repository.PageRepository;
+import net.mavroprovato.springcms.repository.PostRepository;
+import net.mavroprovato.springcms.service.ConfigurationParameterService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Tracks the time that the public site content was last modified, and uses it to answer conditional requests. The
+ * time is the latest update date of all posts, pages and comments. It is loaded from the database once, it is moved
+ * forward when this node modifies an entity, and it is periodically reloaded to pick up the modifications made by
+ * other nodes. Deletions do not leave an update date behind, so the time of the last deletion is stamped when content
+ * is deleted (see {@link ContentDeletionRecorder}), and it is reloaded along with the update dates.
+ */
+@Component
+public class ContentVersion {
+
+    /** The post repository */
+    private final PostRepository postRepository;
+
+    /** The page repository */
+    private final PageRepository pageRepository;
+
+    /** The comment repository */
+    private final CommentRepository commentRepository;
+
+    /** The content deletion repository */
+    private final ContentDeletionRepository contentDeletionRepository;
+
+    /** The configuration parameter service */
+    private final ConfigurationParameterService configurationParameterService;
+
+    /** The time that the content was last modified, in whole seconds. Null if it was never loaded */
+    private volatile Instant lastModified;
+
+    /** Incremented every time a reload finds modifications that this node has not announced */
+    private volatile long externalGeneration;
+
+    /**
+     * Create the content version.
+     *
+     * @param postRepository The post repository.
+     * @param pageRepository The page repository.
+     * @param commentRepository The comment repository.
+     * @param contentDeletionRepository The content deletion repository.
+     * @param configurationParameterService The configuration parameter service.
+     */
+    @Autowired
+    public ContentVersion(PostRepository postRepository, PageRepository pageRepository,
+                          CommentRepository commentRepository, ContentDeletionRepository contentDeletionRepository,
+                          ConfigurationParameterService configurationParameterService) {
+        this.postRepository = postRepository;
+        this.pageRepository = pageRepository;
+        this.commentRepository = commentRepository;
+        this.contentDeletionRepository = contentDeletionRepository;
+        this.configurationParameterService = configurationParameterService;
+    }
+
+    /**
+     * Return the time that the content was last modified.
+     *
+     * @return The time that the content was last modified, in whole seconds.
+     */
+    public Instant getLastModified() {
+        Instant current = lastModified;
+        if (current == null) {
+            current = reload();
+        }
+
+        return current;
+    }
+
+    /**
+     * Return the number of times that a reload found modifications that this node has not announced with an
+     * {@link EntityChangedEvent}, such as the modifications made by other nodes. The data that is cached in memory
+     * without a dependency on the modified entities must be discarded when it changes.
+     *
+     * @return The external modification generation.
+     */
+    public long getExternalGeneration() {
+        return externalGeneration;
+    }
+
+    /**
+     * Check if the client already has the current version of the page, and set the validator headers in the response.
+     * This must be called before any data is loaded for the page. If it returns true, the response status has been
+     * set to 304 (Not Modified) and the handler must not render the page.
+     *
+     * @param webRequest The request.
+     * @return True if the client already has the current version of the page.
+     */
+    public boolean checkNotModified(ServletWebRequest webRequest) {
+        Instant current = getLastModified();
+        if (webRequest.checkNotModified(etag(webRequest.getRequest(), current), current.toEpochMilli())) {
+            return true;
+        }
+        if (webRequest.getResponse() != null) {
+            // Let clients store the page, but make them validate it before it is used
+            webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL,
+                    CacheControl.noCache().cachePrivate().getHeaderValue());
+        }
+
+        return false;
+    }
+
+    /**
+     * Move the last modification time forward when this node modifies an entity. Not all entities have an update
+     * date, so the current time is used. The validators have a precision of one second, so the time is moved at least
+     * one second forward, to make sure that a page rendered earlier in the same second is not considered current.
+     *
+     * @param event The entity changed event.
+     */
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        markModified();
+    }
+
+    /**
+     * Move the last modification time forward to the current time, for a change of the rendered content that is not
+     * an entity modification, such as the search index catching up with one.
+     */
+    public synchronized void markModified() {
+        Instant now = roundUp(Instant.now());
+        Instant next = lastModified == null ? now : lastModified.plusSeconds(1);
+        lastModified = now.isAfter(next) ? now : next;
+    }
+
+    /**
+     * Reload the last modification time, to pick up the modifications made by other nodes.
+     */
+    @Scheduled(fixedDelayString = "${cms.content-version.refresh-interval:30000}")
+    public void refresh() {
+        reload();
+    }
+
+    /**
+     * Load the last modification time from the database.
+     *
+     * @return The last modification time.
+     */
+    private Instant reload() {
+        Instant stored = Stream.of(postRepository.findLastUpdatedAt(), pageRepository.findLastUpdatedAt(),
+                commentRepository.findLastUpdatedAt(), contentDeletionRepository.findLastDeletedAt())
+                .filter(Objects::nonNull)
+                .map(OffsetDateTime::toInstant)
+                .max(Instant::compareTo)
+                .orElse(Instant.EPOCH);
+
+        return advance(stored);
+    }
+
+    /**
+     * Move the last modification time forward. The time never moves backwards, so that a reload cannot hide a
+     * modification that was made by this node. The modifications of this node move the time past their own update
+     * date when they are committed, so if the time moves forward here, another node has modified the content.
+     *
+     * @param time The modification time.
+     * @return The new last modification time.
+     */
+    private synchronized Instant advance(Instant time) {
+        Instant rounded = roundUp(time);
+        if (lastModified == null || rounded.isAfter(lastModified)) {
+            if (lastModified != null) {
+                externalGeneration++;
+            }
+            lastModified = rounded;
+        }
+
+        return lastModified;
+    }
+
+    /**
+     * Round a time up to the next whole second.
+     *
+     * @param time The time.
+     * @return The rounded time.
+     */
+    private static Instant roundUp(Instant time) {
+        Instant truncated = time.truncatedTo(ChronoUnit.SECONDS);
+
+        return truncated.equals(time) ? truncated : truncated.plusSeconds(1);
+    }
+
+    /**
+     * Return the entity tag for a page. Pages are rendered differently for each user, so the tag includes the user
+     * name, along with the configuration version. Pages may also contain the CSRF token, which is stored in the
+     * session. The token is part of the tag only when the client has sent a valid session cookie, so that the
+     * clients that do not keep cookies, which get a new session with every request, still receive a stable tag,
+     * while a client whose session has expired does not reuse a page with the token of its old session.
+     *
+     * @param request The request.
+     * @param lastModified The last modification time.
+     * @return The entity tag.
+     */
+    private String etag(HttpServletRequest request, Instant lastModified) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String user = authentication == null || authentication instanceof AnonymousAuthenticationToken ?
+                "" : authentication.getName();
+        CsrfToken csrfToken = (CsrfToken) request.getAttribute(CsrfToken.class.getName());
+        String variant = user + ":" +
+                (csrfToken == null || !request.isRequestedSessionIdValid() ? "" : csrfToken.getToken());
+
+        return "W/\"" + lastModified.toEpochMilli() + "-" + configurationParameterService.getVersion() + "-" +
+                DigestUtils.md5DigestAsHex(variant.getBytes(StandardCharsets.UTF_8)).substring(0, 16) + "\"";
+    }
+}
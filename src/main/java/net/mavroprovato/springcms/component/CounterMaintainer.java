@@ -0,0 +1,446 @@
+package net.mavroprovato.springcms.component;
+
+import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.Comment;
+import net.mavroprovato.springcms.entity.ContentStatus;
+import net.mavroprovato.springcms.entity.Post;
+import net.mavroprovato.springcms.entity.Tag;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.event.spi.PreCollectionRemoveEvent;
+import org.hibernate.event.spi.PreCollectionRemoveEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.tuple.entity.EntityMetamodel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the denormalized counters up to date when posts and comments are written: the number of comments of each
+ * post, and the number of published posts of each tag and category. The counters are adjusted with relative updates
+ * just before the transaction commits, so concurrent transactions do not overwrite each other's changes. The cached
+ * copies of the adjusted entities are evicted after the transaction commits. The maintainer can be turned off for bulk
+ * writes, which then repair the counters once they complete.
+ */
+@Component
+public class CounterMaintainer implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PreCollectionRemoveEventListener {
+
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(CounterMaintainer.class);
+
+    /**
+     * The maintained counters.
+     */
+    private enum Counter {
+        /** The number of comments of a post */
+        POST_COMMENTS(Post.class, "UPDATE content SET comment_count = comment_count + ? WHERE id = ?"),
+        /** The number of published posts with a tag */
+        TAG_POSTS(Tag.class, "UPDATE tag SET post_count = post_count + ? WHERE id = ?"),
+        /** The number of published posts in a category */
+        CATEGORY_POSTS(Category.class, "UPDATE category SET post_count = post_count + ? WHERE id = ?");
+
+        /** The entity that holds the counter */
+        final Class<?> entityClass;
+        /** The statement that adds a delta to the counter of an entity */
+        final String updateSql;
+
+        /**
+         * Create the counter.
+         *
+         * @param entityClass The entity that holds the counter.
+         * @param updateSql The statement that adds a delta to the counter of an entity.
+         */
+        Counter(Class<?> entityClass, String updateSql) {
+            this.entityClass = entityClass;
+            this.updateSql = updateSql;
+        }
+    }
+
+    /**
+     * The post collections whose elements count the published posts.
+     */
+    private enum Terms {
+        /** The post tags */
+        TAGS("tags", Counter.TAG_POSTS, "SELECT tag_id FROM content_tags WHERE post_id = ?"),
+        /** The post categories */
+        CATEGORIES("categories", Counter.CATEGORY_POSTS,
+                "SELECT category_id FROM content_categories WHERE post_id = ?");
+
+        /** The collection role */
+        final String role;
+        /** The counter of the elements */
+        final Counter counter;
+        /** The statement that selects the identifiers of the elements of a post, as they are stored */
+        final String selectSql;
+
+        /**
+         * Create the post collection.
+         *
+         * @param property The name of the post property.
+         * @param counter The counter of the elements.
+         * @param selectSql The statement that selects the identifiers of the elements of a post.
+         */
+        Terms(String property, Counter counter, String selectSql) {
+            this.role = Post.class.getName() + "." + property;
+            this.counter = counter;
+            this.selectSql = selectSql;
+        }
+
+        /**
+         * Return the post collection for a collection role.
+         *
+         * @param role The collection role.
+         * @return The post collection, or null if the elements of the collection are not counted.
+         */
+        static Terms of(String role) {
+            for (Terms terms : values()) {
+                if (terms.role.equals(role)) {
+                    return terms;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /** The entity manager factory */
+    private final EntityManagerFactory entityManagerFactory;
+
+    /** True if the counters are maintained as posts and comments are written */
+    private final boolean enabled;
+
+    /**
+     * Create the counter maintainer.
+     *
+     * @param entityManagerFactory The entity manager factory.
+     * @param enabled True if the counters are maintained as posts and comments are written.
+     */
+    @Autowired
+    public CounterMaintainer(EntityManagerFactory entityManagerFactory,
+                             @Value("${cms.counters.maintain:true}") boolean enabled) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Register the maintainer as a Hibernate listener, if it is enabled.
+     */
+    @PostConstruct
+    public void registerListeners() {
+        if (!enabled) {
+            logger.info("The counters are not maintained, they must be repaired after writing.");
+            return;
+        }
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.PRE_COLLECTION_REMOVE, this);
+    }
+
+    /**
+     * Count a new comment. New posts are counted when their tags and categories are stored.
+     *
+     * @param event The insert event.
+     */
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Comment) {
+            adjust(event.getSession(), Counter.POST_COMMENTS, postId(event.getPersister(), event.getState()), 1);
+        }
+    }
+
+    /**
+     * Move a comment that was moved to another post, and count or uncount the tags and categories of a post that was
+     * published or unpublished. The stored tags and categories are the ones before this flush, any changes to them
+     * are counted by the collection events that follow, according to the new post status.
+     *
+     * @param event The update event.
+     */
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Comment) && !(event.getEntity() instanceof Post)) {
+            return;
+        }
+        if (event.getOldState() == null) {
+            logger.warn("Entity {} was updated without a snapshot, the counters will be fixed by the next repair.",
+                    event.getId());
+            return;
+        }
+
+        if (event.getEntity() instanceof Comment) {
+            Serializable before = postId(event.getPersister(), event.getOldState());
+            Serializable after = postId(event.getPersister(), event.getState());
+            if (!Objects.equals(before, after)) {
+                adjust(event.getSession(), Counter.POST_COMMENTS, before, -1);
+                adjust(event.getSession(), Counter.POST_COMMENTS, after, 1);
+            }
+        } else {
+            boolean before = isCounted(event.getPersister(), event.getOldState());
+            boolean after = isCounted(event.getPersister(), event.getState());
+            if (before != after) {
+                for (Terms terms : Terms.values()) {
+                    adjust(event.getSession(), terms.counter, storedTermIds(event.getSession(), terms, event.getId()),
+                            after ? 1 : -1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Uncount a deleted comment. Deleted posts are uncounted when their tags and categories are removed.
+     *
+     * @param event The delete event.
+     */
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Comment) {
+            adjust(event.getSession(), Counter.POST_COMMENTS,
+                    postId(event.getPersister(), event.getDeletedState()), -1);
+        }
+    }
+
+    /**
+     * Count the tags and categories of a published post when they are first stored.
+     *
+     * @param event The collection recreate event.
+     */
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        Terms terms = Terms.of(event.getCollection().getRole());
+        if (terms != null && isOwnerCounted(event)) {
+            adjust(event.getSession(), terms.counter, termIds((Collection<?>) event.getCollection()), 1);
+        }
+    }
+
+    /**
+     * Count the tags and categories that were added to a published post, and uncount the ones that were removed.
+     *
+     * @param event The collection update event.
+     */
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        Terms terms = Terms.of(event.getCollection().getRole());
+        if (terms == null || !isOwnerCounted(event)) {
+            return;
+        }
+
+        PersistentCollection collection = event.getCollection();
+        Set<Serializable> current = termIds((Collection<?>) collection);
+        Set<Serializable> previous = collection.getStoredSnapshot() instanceof Map ?
+                termIds(((Map<?, ?>) collection.getStoredSnapshot()).values()) : Collections.emptySet();
+        Set<Serializable> added = new HashSet<>(current);
+        added.removeAll(previous);
+        Set<Serializable> removed = new HashSet<>(previous);
+        removed.removeAll(current);
+        adjust(event.getSession(), terms.counter, added, 1);
+        adjust(event.getSession(), terms.counter, removed, -1);
+    }
+
+    /**
+     * Uncount the stored tags and categories of a published post, before they are removed.
+     *
+     * @param event The collection remove event.
+     */
+    @Override
+    public void onPreRemoveCollection(PreCollectionRemoveEvent event) {
+        Terms terms = Terms.of(event.getCollection().getRole());
+        if (terms != null && isOwnerCounted(event)) {
+            adjust(event.getSession(), terms.counter,
+                    storedTermIds(event.getSession(), terms, event.getAffectedOwnerIdOrNull()), -1);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    /**
+     * Return the identifier of the post of a comment.
+     *
+     * @param persister The comment persister.
+     * @param state The comment state.
+     * @return The post identifier, or null if the comment does not belong to a post.
+     */
+    private static Serializable postId(EntityPersister persister, Object[] state) {
+        Post post = (Post) state[persister.getEntityMetamodel().getPropertyIndex("post")];
+
+        return post == null ? null : post.getId();
+    }
+
+    /**
+     * Check if a post state is counted by its tags and categories. The post must be published, as in the post lists.
+     *
+     * @param persister The post persister.
+     * @param state The post state.
+     * @return True if the post is counted.
+     */
+    private static boolean isCounted(EntityPersister persister, Object[] state) {
+        EntityMetamodel metamodel = persister.getEntityMetamodel();
+
+        return state[metamodel.getPropertyIndex("status")] == ContentStatus.PUBLISHED &&
+                state[metamodel.getPropertyIndex("publishedAt")] != null;
+    }
+
+    /**
+     * Check if the post that owns a collection is counted, according to the state that was last written to the
+     * database.
+     *
+     * @param event The collection event.
+     * @return True if the post is counted.
+     */
+    private static boolean isOwnerCounted(AbstractCollectionEvent event) {
+        Object owner = event.getAffectedOwnerOrNull();
+        if (!(owner instanceof Post)) {
+            return false;
+        }
+        EntityEntry entry = event.getSession().getPersistenceContext().getEntry(owner);
+        if (entry == null || entry.getLoadedState() == null) {
+            Post post = (Post) owner;
+            return post.getStatus() == ContentStatus.PUBLISHED && post.getPublishedAt() != null;
+        }
+
+        return isCounted(entry.getPersister(), entry.getLoadedState());
+    }
+
+    /**
+     * Return the identifiers of tags or categories.
+     *
+     * @param terms The tags or categories.
+     * @return The identifiers.
+     */
+    private static Set<Serializable> termIds(Collection<?> terms) {
+        Set<Serializable> ids = new HashSet<>();
+        for (Object term : terms) {
+            if (term instanceof Tag) {
+                ids.add(((Tag) term).getId());
+            } else if (term instanceof Category) {
+                ids.add(((Category) term).getId());
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Return the identifiers of the tags or the categories of a post, as they are currently stored in the database.
+     *
+     * @param session The session.
+     * @param terms The post collection.
+     * @param postId The post identifier.
+     * @return The identifiers.
+     */
+    private static List<Serializable> storedTermIds(EventSource session, Terms terms, Serializable postId) {
+        return session.doReturningWork(connection -> {
+            List<Serializable> ids = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(terms.selectSql)) {
+                statement.setObject(1, postId);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getInt(1));
+                    }
+                }
+            }
+
+            return ids;
+        });
+    }
+
+    /**
+     * Adjust the counter of an entity.
+     *
+     * @param session The session.
+     * @param counter The counter.
+     * @param id The entity identifier, or null to do nothing.
+     * @param delta The delta.
+     */
+    private static void adjust(EventSource session, Counter counter, Serializable id, long delta) {
+        if (id != null) {
+            adjust(session, counter, Collections.singletonList(id), delta);
+        }
+    }
+
+    /**
+     * Adjust the counter of entities. The counters are updated just before the transaction commits, and the entities
+     * are evicted from the second level cache after it commits.
+     *
+     * @param session The session.
+     * @param counter The counter.
+     * @param ids The entity identifiers.
+     * @param delta The delta.
+     */
+    private static void adjust(EventSource session, Counter counter, Collection<Serializable> ids, long delta) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        // Update the rows in identifier order, the order in which the counter repair locks them
+        List<Serializable> adjusted = ids.stream().sorted().collect(Collectors.toList());
+
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> s.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(counter.updateSql)) {
+                for (Serializable id : adjusted) {
+                    statement.setLong(1, delta);
+                    statement.setObject(2, id);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }));
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> {
+            if (success) {
+                adjusted.forEach(id -> s.getFactory().getCache().evictEntityData(counter.entityClass, id));
+            }
+        });
+    }
+}
@@ -0,0 +1,212 @@
+package net.mavroprovato.springcms.component;
+
+import net.mavroprovato.springcms.event.EntityChangedEvent;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Publishes an {@link EntityChangedEvent} every time a transaction that modified an entity is committed. Components
+ * that keep derived state in memory listen to these events instead of hooking into every write path. Changes to the
+ * elements of a collection that is owned by an entity are published as an update of the owner.
+ */
+@Component
+public class EntityChangePublisher implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener, PostCollectionUpdateEventListener {
+
+    /** The entity manager factory */
+    private final EntityManagerFactory entityManagerFactory;
+
+    /** The application event publisher */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Create the entity change publisher.
+     *
+     * @param entityManagerFactory The entity manager factory.
+     * @param eventPublisher The application event publisher.
+     */
+    @Autowired
+    public EntityChangePublisher(EntityManagerFactory entityManagerFactory, ApplicationEventPublisher eventPublisher) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Register the publisher as a Hibernate post commit listener.
+     */
+    @PostConstruct
+    public void registerListeners() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publish(EntityChangedEvent.Type.INSERT, event.getPersister(), event.getId(), event.getEntity(),
+                Collections.emptyMap());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Map<String, Object> previousValues = new HashMap<>();
+        String[] propertyNames = event.getPersister().getPropertyNames();
+        if (event.getDirtyProperties() != null && event.getOldState() != null) {
+            for (int index : event.getDirtyProperties()) {
+                previousValues.put(propertyNames[index], event.getOldState()[index]);
+            }
+        } else {
+            // Without a snapshot, consider every property as modified
+            for (int i = 0; i < propertyNames.length; i++) {
+                previousValues.put(propertyNames[i], event.getOldState() == null ? null : event.getOldState()[i]);
+            }
+        }
+        publish(EntityChangedEvent.Type.UPDATE, event.getPersister(), event.getId(), event.getEntity(),
+                previousValues);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publish(EntityChangedEvent.Type.DELETE, event.getPersister(), event.getId(), event.getEntity(),
+                Collections.emptyMap());
+    }
+
+    /**
+     * Publish an update of the owner entity when the transaction that modified the collection commits. Inverse
+     * collections are ignored, as the change is published for the entity on the owning side.
+     *
+     * @param event The collection update event.
+     */
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        PersistentCollection collection = event.getCollection();
+        SessionFactoryImplementor sessionFactory = event.getSession().getFactory();
+        CollectionPersister collectionPersister = sessionFactory.getMetamodel().collectionPersister(
+                collection.getRole());
+        if (collectionPersister.isInverse() || event.getAffectedOwnerOrNull() == null) {
+            return;
+        }
+
+        EntityPersister ownerPersister = sessionFactory.getMetamodel().entityPersister(
+                event.getAffectedOwnerEntityName());
+        Serializable ownerId = event.getAffectedOwnerIdOrNull();
+        Object owner = event.getAffectedOwnerOrNull();
+        String role = collection.getRole();
+        Map<String, Object> previousValues = Collections.singletonMap(
+                role.substring(role.lastIndexOf('.') + 1), snapshotElements(collection.getStoredSnapshot()));
+        event.getSession().getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> {
+            if (success) {
+                publish(EntityChangedEvent.Type.UPDATE, ownerPersister, ownerId, owner, previousValues);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // Nothing was changed, so there is nothing to publish
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        // Nothing was changed, so there is nothing to publish
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        // Nothing was changed, so there is nothing to publish
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    /**
+     * Return the elements of a collection snapshot.
+     *
+     * @param snapshot The collection snapshot, as stored by Hibernate.
+     * @return The elements of the collection before it was modified.
+     */
+    private static Collection<?> snapshotElements(Serializable snapshot) {
+        if (snapshot instanceof Map) {
+            return new ArrayList<>(((Map<?, ?>) snapshot).values());
+        } else if (snapshot instanceof Collection) {
+            return new ArrayList<>((Collection<?>) snapshot);
+        }
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * Publish the entity changed event.
+     *
+     * @param type The kind of change.
+     * @param persister The entity persister.
+     * @param id The entity identifier.
+     * @param entity The entity.
+     * @param previousValues The previous values of the modified properties.
+     */
+    private void publish(EntityChangedEvent.Type type, EntityPersister persister, Serializable id,
+                         Object entity, Map<String, Object> previousValues) {
+        eventPublisher.publishEvent(new EntityChangedEvent(
+                this, type, persister.getMappedClass(), id, entity, previousValues));
+    }
+}
@@ -0,0 +1,327 @@
+package net.mavroprovato.springcms.component;
+
+import com.rometools.rome.feed.atom.Feed;
+import com.rometools.rome.io.FeedException;
+import com.rometools.rome.io.WireFeedOutput;
+import lombok.Getter;
+import net.mavroprovato.springcms.entity.Comment;
+import net.mavroprovato.springcms.entity.ConfigurationParameter;
+import net.mavroprovato.springcms.entity.Post;
+import net.mavroprovato.springcms.event.EntityChangedEvent;
+import net.mavroprovato.springcms.service.ConfigurationParameterService;
+import net.mavroprovato.springcms.service.PostService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the Atom feeds serialized, both as plain and as gzip compressed bytes, so that feed polls are served without
+ * querying the database. Each feed is stored with the content version that it was generated for, which is made of
+ * the content modification time and the configuration version, the same values that the entity tag of the response is
+ * made of. A feed that was generated for an older version, for example because the content was modified by another
+ * node, is generated again before it is served. Only one generation of a feed runs for each version; the other polls
+ * wait for its result. When this node modifies the data that a feed displays, the feed is regenerated in the
+ * background, so that the next poll finds it ready.
+ */
+@Component
+public class FeedCache {
+
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(FeedCache.class);
+
+    /** The feed encoding */
+    private static final String ENCODING = StandardCharsets.UTF_8.name();
+
+    /** The feeds that are cached */
+    public enum FeedType {
+        /** The feed with the latest posts */
+        POSTS,
+        /** The feed with the latest comments */
+        COMMENTS
+    }
+
+    /** The post service */
+    private final PostService postService;
+
+    /** The content version */
+    private final ContentVersion contentVersion;
+
+    /** The configuration parameter service */
+    private final ConfigurationParameterService configurationParameterService;
+
+    /** The serialized feeds, null if a feed was never generated */
+    private final Map<FeedType, SerializedFeed> feeds = new EnumMap<>(FeedType.class);
+
+    /** The generations that are running, null if no generation of a feed is running */
+    private final Map<FeedType, Generation> generations = new EnumMap<>(FeedType.class);
+
+    /** The feeds that have been requested at least once */
+    private final Set<FeedType> requested = EnumSet.noneOf(FeedType.class);
+
+    /** True for the feeds that are waiting to be regenerated */
+    private final Map<FeedType, AtomicBoolean> pending = new EnumMap<>(FeedType.class);
+
+    /** Incremented every time a feed generation starts */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** The executor that regenerates the feeds */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "feed-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A serialized feed.
+     */
+    public static final class SerializedFeed {
+        /** The feed bytes */
+        @Getter
+        private final byte[] body;
+        /** The gzip compressed feed bytes */
+        @Getter
+        private final byte[] gzipBody;
+        /** The content version that the feed was generated for */
+        private final String version;
+        /** The sequence number of the generation that produced the feed */
+        private final long sequence;
+
+        /**
+         * Create the serialized feed.
+         *
+         * @param body The feed bytes.
+         * @param gzipBody The gzip compressed feed bytes.
+         * @param version The content version that the feed was generated for.
+         * @param sequence The sequence number of the generation that produced the feed.
+         */
+        SerializedFeed(byte[] body, byte[] gzipBody, String version, long sequence) {
+            this.body = body;
+            this.gzipBody = gzipBody;
+            this.version = version;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * A running generation of a feed.
+     */
+    private static final class Generation {
+        /** The content version that the feed is generated for */
+        final String version;
+        /** Completed with the feed when the generation is complete */
+        final CompletableFuture<SerializedFeed> result = new CompletableFuture<>();
+
+        /**
+         * Create the generation.
+         *
+         * @param version The content version that the feed is generated for.
+         */
+        Generation(String version) {
+            this.version = version;
+        }
+    }
+
+    /**
+     * Create the feed cache.
+     *
+     * @param postService The post service.
+     * @param contentVersion The content version.
+     * @param configurationParameterService The configuration parameter service.
+     */
+    @Autowired
+    public FeedCache(PostService postService, ContentVersion contentVersion,
+                     ConfigurationParameterService configurationParameterService) {
+        this.postService = postService;
+        this.contentVersion = contentVersion;
+        this.configurationParameterService = configurationParameterService;
+        for (FeedType type : FeedType.values()) {
+            pending.put(type, new AtomicBoolean());
+        }
+    }
+
+    /**
+     * Return a serialized feed, generated for the current content version. The feed is generated if it was never
+     * generated, or if it was generated for an older version.
+     *
+     * @param type The feed type.
+     * @return The serialized feed.
+     */
+    public SerializedFeed get(FeedType type) {
+        synchronized (feeds) {
+            requested.add(type);
+        }
+
+        return current(type);
+    }
+
+    /**
+     * Regenerate the feeds that display a modified entity.
+     *
+     * @param event The entity changed event.
+     */
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.isAbout(Post.class)) {
+            regenerate(FeedType.POSTS);
+            if (event.isModified("status") || event.isModified("slug")) {
+                // Only the comments of published posts are displayed, and they link to the post
+                regenerate(FeedType.COMMENTS);
+            }
+        } else if (event.isAbout(Comment.class)) {
+            regenerate(FeedType.COMMENTS);
+        } else if (event.isAbout(ConfigurationParameter.class)) {
+            regenerate(FeedType.POSTS);
+            regenerate(FeedType.COMMENTS);
+        }
+    }
+
+    /**
+     * Stop the executor that regenerates the feeds.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Schedule the regeneration of a feed. If the feed is already waiting to be regenerated, the requests are
+     * coalesced. A feed that was never requested is not generated.
+     *
+     * @param type The feed type.
+     */
+    private void regenerate(FeedType type) {
+        synchronized (feeds) {
+            if (!requested.contains(type)) {
+                return;
+            }
+        }
+        AtomicBoolean feedPending = pending.get(type);
+        if (feedPending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                // Modifications made from now on will schedule another regeneration
+                feedPending.set(false);
+                try {
+                    current(type);
+                } catch (RuntimeException e) {
+                    logger.error("Cannot regenerate the {} feed.", type, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Return the feed for the current content version. If it is not stored, it is generated, unless a generation for
+     * the same version is already running, in which case its result is returned.
+     *
+     * @param type The feed type.
+     * @return The serialized feed.
+     */
+    private SerializedFeed current(FeedType type) {
+        String version = version();
+        Generation generation;
+        boolean started = false;
+        synchronized (feeds) {
+            SerializedFeed feed = feeds.get(type);
+            if (feed != null && feed.version.equals(version)) {
+                return feed;
+            }
+            generation = generations.get(type);
+            if (generation == null || !generation.version.equals(version)) {
+                generation = new Generation(version);
+                generations.put(type, generation);
+                started = true;
+            }
+        }
+        if (started) {
+            try {
+                generation.result.complete(generate(type, version));
+            } catch (RuntimeException e) {
+                generation.result.completeExceptionally(e);
+            } finally {
+                synchronized (feeds) {
+                    generations.remove(type, generation);
+                }
+            }
+        }
+
+        return generation.result.join();
+    }
+
+    /**
+     * Return the current content version. It is read before the feed is generated, so a feed can only be newer than
+     * the version that it is stored with.
+     *
+     * @return The content version.
+     */
+    private String version() {
+        return contentVersion.getLastModified().toEpochMilli() + "-" + configurationParameterService.getVersion();
+    }
+
+    /**
+     * Generate a feed and store it. If a generation that started later has already stored the feed, the feed is not
+     * replaced, as it may have been generated from older data.
+     *
+     * @param type The feed type.
+     * @param version The content version that the feed is generated for.
+     * @return The serialized feed.
+     */
+    private SerializedFeed generate(FeedType type, String version) {
+        long feedSequence = sequence.incrementAndGet();
+        Supplier<Feed> source = type == FeedType.POSTS ?
+                postService::latestPostsFeed : postService::latestCommentsFeed;
+        SerializedFeed feed = serialize(source.get(), version, feedSequence);
+        synchronized (feeds) {
+            SerializedFeed current = feeds.get(type);
+            if (current != null && current.sequence > feed.sequence) {
+                return current;
+            }
+            feeds.put(type, feed);
+        }
+
+        return feed;
+    }
+
+    /**
+     * Serialize a feed.
+     *
+     * @param feed The feed.
+     * @param version The content version that the feed is generated for.
+     * @param feedSequence The sequence number of the generation.
+     * @return The serialized feed.
+     */
+    private static SerializedFeed serialize(Feed feed, String version, long feedSequence) {
+        feed.setEncoding(ENCODING);
+        try {
+            byte[] body = new WireFeedOutput().outputString(feed).getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream gzipBody = new ByteArrayOutputStream(body.length / 4);
+            try (GZIPOutputStream outputStream = new GZIPOutputStream(gzipBody)) {
+                outputStream.write(body);
+            }
+
+            return new SerializedFeed(body, gzipBody.toByteArray(), version, feedSequence);
+        } catch (FeedException e) {
+            throw new IllegalStateException("Cannot serialize the feed", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package net.mavroprovato.springcms.component;
+
+import net.mavroprovato.springcms.entity.Comment;
+import net.mavroprovato.springcms.entity.Post;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prepares the sequences that generate the content and comment identifiers. Hibernate allocates the identifiers in
+ * blocks, so each sequence must be incremented by the block size. Databases that were created when the identifiers
+ * were generated by the tables themselves have sequences that are incremented by one, they are altered when the
+ * application starts. Their current values are kept, so the new identifiers follow the existing ones.
+ */
+@Component
+public class IdSequences {
+
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(IdSequences.class);
+
+    /** The allocation sizes of the sequences, keyed by sequence name */
+    private static final Map<String, Integer> ALLOCATION_SIZES = new LinkedHashMap<>();
+    static {
+        ALLOCATION_SIZES.put(Post.ID_SEQUENCE, Post.ID_ALLOCATION_SIZE);
+        ALLOCATION_SIZES.put(Comment.ID_SEQUENCE, Comment.ID_ALLOCATION_SIZE);
+    }
+
+    /** The JDBC template */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Create the identifier sequences component. The entity manager factory is required so that the schema is
+     * updated before the sequences are checked.
+     *
+     * @param jdbcTemplate The JDBC template.
+     * @param entityManagerFactory The entity manager factory.
+     */
+    @Autowired
+    public IdSequences(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Set the increment of each sequence to its allocation size, if it is different.
+     */
+    @PostConstruct
+    public void initialize() {
+        ALLOCATION_SIZES.forEach((sequence, allocationSize) -> {
+            Long increment = jdbcTemplate.query(
+                    "SELECT CAST(increment AS bigint) FROM information_schema.sequences WHERE sequence_name = ?",
+                    resultSet -> resultSet.next() ? resultSet.getLong(1) : null, sequence);
+            if (increment != null && increment != allocationSize.longValue()) {
+                logger.info("Setting the increment of the {} sequence to {}.", sequence, allocationSize);
+                jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + allocationSize);
+            }
+        });
+    }
+}
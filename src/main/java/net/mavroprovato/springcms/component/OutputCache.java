@@ -0,0 +1,291 @@
+package net.mavroprovato.springcms.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.Getter;
+import net.mavroprovato.springcms.entity.ArchiveCount;
+import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.Comment;
+import net.mavroprovato.springcms.entity.Page;
+import net.mavroprovato.springcms.entity.Post;
+import net.mavroprovato.springcms.entity.Tag;
+import net.mavroprovato.springcms.event.EntityChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache for the rendered HTML of public pages. Every cached page is tagged with the data that it depends on (see
+ * {@link PageDependencies}), and is evicted when this node modifies this data. The modifications made by other nodes
+ * are not tracked by dependency: every cached page is discarded once the {@link ContentVersion} reload notices them,
+ * so other nodes serve stale pages for at most the content version refresh interval. The cache is bounded by the
+ * total size of the cached pages.
+ */
+@Component
+public class OutputCache {
+
+    /** True if the output cache is enabled */
+    @Getter
+    private final boolean enabled;
+
+    /** The cached pages, keyed by URL */
+    private final Cache<String, CachedPage> cache;
+
+    /** The URLs of the cached pages, keyed by dependency */
+    private final ConcurrentMap<String, Set<String>> keysByDependency = new ConcurrentHashMap<>();
+
+    /** Incremented every time pages are evicted because data was modified */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * A rendered page.
+     */
+    static final class CachedPage {
+        /** The response content type */
+        @Getter
+        private final String contentType;
+        /** The response body. If the page contains a CSRF token, the body is split at the token occurrences */
+        @Getter
+        private final List<byte[]> segments;
+        /** The data that the page depends on */
+        @Getter
+        private final Set<String> dependencies;
+        /** The version of the configuration parameters that the page was rendered with */
+        @Getter
+        private final String configVersion;
+        /** The external modification generation of the content version when the page was rendered */
+        @Getter
+        private final long contentGeneration;
+
+        /**
+         * Create the cached page.
+         *
+         * @param contentType The response content type.
+         * @param segments The response body segments.
+         * @param dependencies The data that the page depends on.
+         * @param configVersion The version of the configuration parameters that the page was rendered with.
+         * @param contentGeneration The external modification generation of the content version when the page was
+         * rendered.
+         */
+        CachedPage(String contentType, List<byte[]> segments, Set<String> dependencies, String configVersion,
+                   long contentGeneration) {
+            this.contentType = contentType;
+            this.segments = segments;
+            this.dependencies = dependencies;
+            this.configVersion = configVersion;
+            this.contentGeneration = contentGeneration;
+        }
+
+        /**
+         * Return the size of the page body.
+         *
+         * @return The size of the page body in bytes.
+         */
+        int size() {
+            return segments.stream().mapToInt(s -> s.length).sum();
+        }
+    }
+
+    /**
+     * Create the output cache.
+     *
+     * @param enabled True if the output cache is enabled.
+     * @param maximumSize The maximum total size of the cached pages, in bytes.
+     */
+    public OutputCache(@Value("${cms.output-cache.enabled:true}") boolean enabled,
+                       @Value("${cms.output-cache.maximum-size:67108864}") long maximumSize) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize)
+                .weigher((String key, CachedPage page) -> page.size())
+                .removalListener((String key, CachedPage page, RemovalCause cause) -> {
+                    // Replaced pages are removed from the index when they are replaced, see put
+                    if (key != null && page != null && cause != RemovalCause.REPLACED) {
+                        unindex(key, page.getDependencies());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Return a cached page.
+     *
+     * @param key The page URL.
+     * @return The cached page, or null if it is not cached.
+     */
+    CachedPage get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Return the current eviction generation. It must be read before the page is rendered, and passed to
+     * {@link #put(String, CachedPage, long)}.
+     *
+     * @return The eviction generation.
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Cache a page. If data was modified while the page was rendered, the page is not cached, as it may contain
+     * stale data.
+     *
+     * @param key The page URL.
+     * @param page The page.
+     * @param renderGeneration The eviction generation before the page was rendered.
+     */
+    void put(String key, CachedPage page, long renderGeneration) {
+        if (generation.get() != renderGeneration) {
+            return;
+        }
+        for (String dependency : page.getDependencies()) {
+            keysByDependency.compute(dependency, (d, keys) -> {
+                Set<String> result = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+                result.add(key);
+                return result;
+            });
+        }
+        CachedPage previous = cache.asMap().put(key, page);
+        if (previous != null) {
+            // Remove the page from the dependencies that the new version of the page no longer has
+            Set<String> stale = new HashSet<>(previous.getDependencies());
+            stale.removeAll(page.getDependencies());
+            unindex(key, stale);
+        }
+        // Data may have been modified and evicted while the page was being indexed
+        if (generation.get() != renderGeneration) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Evict all pages that depend on any of the provided dependencies.
+     *
+     * @param dependencies The dependencies.
+     */
+    public void evict(Collection<String> dependencies) {
+        generation.incrementAndGet();
+        for (String dependency : dependencies) {
+            Set<String> keys = keysByDependency.remove(dependency);
+            if (keys != null) {
+                cache.invalidateAll(keys);
+            }
+        }
+    }
+
+    /**
+     * Evict the pages that depend on a modified entity. This listener runs after the other caches have been
+     * invalidated, so that a page cannot be rendered from stale data after it is evicted.
+     *
+     * @param event The entity changed event.
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onEntityChanged(EntityChangedEvent event) {
+        Set<String> dependencies = new HashSet<>();
+        if (event.isAbout(Post.class)) {
+            addPostDependencies(event, dependencies);
+        } else if (event.isAbout(Comment.class)) {
+            dependencies.add(PageDependencies.comments(((Comment) event.getEntity()).getPost().getId()));
+        } else if (event.isAbout(Tag.class)) {
+            dependencies.add(PageDependencies.tag(event.getId()));
+            dependencies.add(PageDependencies.tagList(event.getId()));
+        } else if (event.isAbout(Category.class)) {
+            dependencies.add(PageDependencies.category(event.getId()));
+            dependencies.add(PageDependencies.categoryList(event.getId()));
+            dependencies.add(PageDependencies.CATEGORIES);
+        } else if (event.isAbout(Page.class)) {
+            dependencies.add(PageDependencies.page(event.getId()));
+            dependencies.add(PageDependencies.PAGES);
+        } else if (event.isAbout(ArchiveCount.class)) {
+            dependencies.add(PageDependencies.ARCHIVE);
+        }
+
+        if (!dependencies.isEmpty()) {
+            evict(dependencies);
+        }
+    }
+
+    /**
+     * Add the dependencies that are affected by a post modification.
+     *
+     * @param event The entity changed event.
+     * @param dependencies The dependencies to add to.
+     */
+    private static void addPostDependencies(EntityChangedEvent event, Set<String> dependencies) {
+        Post post = (Post) event.getEntity();
+        // The pages that display the post, including every list that it appears in
+        dependencies.add(PageDependencies.post(event.getId()));
+        dependencies.add(PageDependencies.SEARCH);
+
+        if (event.isModified("status") || event.isModified("publishedAt")) {
+            // The post may have been added to, or removed from lists
+            dependencies.add(PageDependencies.ARCHIVE);
+            PageDependencies.addDateLists(dependencies, post.getPublishedAt());
+            Object previousPublishedAt = event.getPreviousValues().get("publishedAt");
+            if (previousPublishedAt instanceof OffsetDateTime) {
+                PageDependencies.addDateLists(dependencies, (OffsetDateTime) previousPublishedAt);
+            }
+            // The post tags and categories are not available, evict all taxonomy lists
+            dependencies.add(PageDependencies.TAXONOMY_LISTS);
+            // The sidebar displays the number of published posts in each category
+            dependencies.add(PageDependencies.CATEGORIES);
+        }
+        if (event.isModified("tags")) {
+            addTaxonomyLists(dependencies, post.getTags(), event.getPreviousValues().get("tags"));
+        }
+        if (event.isModified("categories")) {
+            addTaxonomyLists(dependencies, post.getCategories(), event.getPreviousValues().get("categories"));
+            dependencies.add(PageDependencies.CATEGORIES);
+        }
+    }
+
+    /**
+     * Add the dependencies on the taxonomy lists that a post was added to, or removed from.
+     *
+     * @param dependencies The dependencies to add to.
+     * @param current The current tags or categories of the post.
+     * @param previous The previous tags or categories of the post.
+     */
+    private static void addTaxonomyLists(Set<String> dependencies, Collection<?> current, Object previous) {
+        Set<Object> terms = new HashSet<>(current);
+        if (previous instanceof Collection) {
+            terms.addAll((Collection<?>) previous);
+        }
+        for (Object term : terms) {
+            if (term instanceof Tag) {
+                dependencies.add(PageDependencies.tagList(((Tag) term).getId()));
+            } else if (term instanceof Category) {
+                dependencies.add(PageDependencies.categoryList(((Category) term).getId()));
+            }
+        }
+    }
+
+    /**
+     * Remove a page from the dependency index.
+     *
+     * @param key The page URL.
+     * @param dependencies The dependencies to remove the page from.
+     */
+    private void unindex(String key, Collection<String> dependencies) {
+        for (String dependency : dependencies) {
+            keysByDependency.computeIfPresent(dependency, (d, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package net.mavroprovato.springcms.component;
+
+import net.mavroprovato.springcms.service.ConfigurationParameterService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Serves public pages to anonymous users from the output cache, and caches the pages that are rendered for them. The
+ * filter runs after the Spring Security filter chain, so that the authentication is known. Pages that contain a CSRF
+ * token are stored with the token cut out, and the token of the current request is written in its place.
+ */
+@Component
+public class OutputCacheFilter extends OncePerRequestFilter {
+
+    /** Path prefixes that are never cached */
+    private static final String[] EXCLUDED_PATHS = {"/admin", "/login", "/logout", "/css/", "/js/", "/img/",
+            "/webjars/"};
+
+    /** The paths of the feeds, which are cached by the {@link FeedCache} */
+    private static final Set<String> FEED_PATHS = Set.of("/feed", "/comments/feed");
+
+    /** The output cache */
+    private final OutputCache outputCache;
+
+    /** The configuration parameter service */
+    private final ConfigurationParameterService configurationParameterService;
+
+    /** The content version */
+    private final ContentVersion contentVersion;
+
+    /**
+     * Create the output cache filter.
+     *
+     * @param outputCache The output cache.
+     * @param configurationParameterService The configuration parameter service.
+     * @param contentVersion The content version.
+     */
+    @Autowired
+    public OutputCacheFilter(OutputCache outputCache, ConfigurationParameterService configurationParameterService,
+                             ContentVersion contentVersion) {
+        this.outputCache = outputCache;
+        this.configurationParameterService = configurationParameterService;
+        this.contentVersion = contentVersion;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!outputCache.isEnabled() || !HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        String path = request.getServletPath();
+        if (FEED_PATHS.contains(path)) {
+            return true;
+        }
+        for (String excludedPath : EXCLUDED_PATHS) {
+            if (path.startsWith(excludedPath)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!isAnonymous()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // Serve the page from the cache if possible
+        String key = cacheKey(request);
+        OutputCache.CachedPage page = outputCache.get(key);
+        if (page != null && page.getConfigVersion().equals(configurationParameterService.getVersion()) &&
+                page.getContentGeneration() == contentVersion.getExternalGeneration()) {
+            // Cached pages are served with the same validators as the rendered ones
+            if (contentVersion.checkNotModified(new ServletWebRequest(request, response)) ||
+                    write(page, request, response)) {
+                return;
+            }
+        }
+
+        // Render the page and cache it
+        long generation = outputCache.generation();
+        String configVersion = configurationParameterService.getVersion();
+        long contentGeneration = contentVersion.getExternalGeneration();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        Set<String> dependencies = PageDependencies.get(request);
+        if (wrapper.getStatus() == HttpStatus.OK.value() && !dependencies.isEmpty() &&
+                wrapper.getContentType() != null && wrapper.getContentType().startsWith("text/html")) {
+            List<byte[]> segments = split(wrapper.getContentAsByteArray(), renderedCsrfToken(request));
+            outputCache.put(key, new OutputCache.CachedPage(wrapper.getContentType(), segments,
+                    new HashSet<>(dependencies), configVersion, contentGeneration), generation);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    /**
+     * Check if the current user is anonymous.
+     *
+     * @return True if the current user is anonymous.
+     */
+    private static boolean isAnonymous() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        return authentication == null || authentication instanceof AnonymousAuthenticationToken;
+    }
+
+    /**
+     * Return the cache key for a request.
+     *
+     * @param request The request.
+     * @return The cache key.
+     */
+    private static String cacheKey(HttpServletRequest request) {
+        String queryString = request.getQueryString();
+
+        return queryString == null ? request.getRequestURI() : request.getRequestURI() + "?" + queryString;
+    }
+
+    /**
+     * Return the CSRF token that may have been rendered in the page. The token is saved in the session when it is
+     * first accessed, so if there is no session, the token was not rendered.
+     *
+     * @param request The request.
+     * @return The token bytes, or null if no token was rendered.
+     */
+    private static byte[] renderedCsrfToken(HttpServletRequest request) {
+        CsrfToken token = (CsrfToken) request.getAttribute(CsrfToken.class.getName());
+        if (token == null || request.getSession(false) == null) {
+            return null;
+        }
+
+        return token.getToken().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write a cached page to the response.
+     *
+     * @param page The cached page.
+     * @param request The request.
+     * @param response The response.
+     * @return True if the page was written, false if it cannot be served from the cache.
+     * @throws IOException If the page cannot be written.
+     */
+    private static boolean write(OutputCache.CachedPage page, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        List<byte[]> segments = page.getSegments();
+        byte[] token = new byte[0];
+        if (segments.size() > 1) {
+            CsrfToken csrfToken = (CsrfToken) request.getAttribute(CsrfToken.class.getName());
+            if (csrfToken == null) {
+                return false;
+            }
+            token = csrfToken.getToken().getBytes(StandardCharsets.UTF_8);
+        }
+
+        response.setContentType(page.getContentType());
+        response.setContentLength(page.size() + token.length * (segments.size() - 1));
+        ServletOutputStream outputStream = response.getOutputStream();
+        for (int i = 0; i < segments.size(); i++) {
+            if (i > 0) {
+                outputStream.write(token);
+            }
+            outputStream.write(segments.get(i));
+        }
+
+        return true;
+    }
+
+    /**
+     * Split a page body at the occurrences of a token.
+     *
+     * @param body The page body.
+     * @param token The token, or null.
+     * @return The body segments.
+     */
+    private static List<byte[]> split(byte[] body, byte[] token) {
+        if (token == null || token.length == 0) {
+            return Collections.singletonList(body);
+        }
+
+        List<byte[]> segments = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= body.length - token.length; i++) {
+            if (matches(body, i, token)) {
+                segments.add(Arrays.copyOfRange(body, start, i));
+                start = i + token.length;
+                i = start - 1;
+            }
+        }
+        segments.add(Arrays.copyOfRange(body, start, body.length));
+
+        return segments;
+    }
+
+    /**
+     * Check if a token occurs at a position of a page body.
+     *
+     * @param body The page body.
+     * @param offset The position.
+     * @param token The token.
+     * @return True if the token occurs at the position.
+     */
+    private static boolean matches(byte[] body, int offset, byte[] token) {
+        for (int j = 0; j < token.length; j++) {
+            if (body[offset + j] != token[j]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
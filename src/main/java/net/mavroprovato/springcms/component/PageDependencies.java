@@ -0,0 +1,183 @@
+package net.mavroprovato.springcms.component;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.servlet.http.HttpServletRequest;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Records the data that the page rendered for the current request depends on. The output cache uses the dependencies
+ * to evict a cached page when any of the data that it displays is modified. Pages that do not record any dependencies
+ * are never cached.
+ */
+public final class PageDependencies {
+
+    /** The request attribute that holds the dependencies */
+    private static final String ATTRIBUTE = PageDependencies.class.getName();
+
+    /** Dependency on the archive counts displayed in the sidebar */
+    public static final String ARCHIVE = "archive";
+
+    /** Dependency on the category list displayed in the sidebar */
+    public static final String CATEGORIES = "categories";
+
+    /** Dependency on the page list displayed in the sidebar */
+    public static final String PAGES = "pages";
+
+    /** Dependency on the search results */
+    public static final String SEARCH = "search";
+
+    /** Dependency on the membership of any tag or category list */
+    public static final String TAXONOMY_LISTS = "lists:taxonomy";
+
+    /**
+     * Utility class, cannot be instantiated.
+     */
+    private PageDependencies() {
+    }
+
+    /**
+     * Add dependencies to the page rendered for the current request. Does nothing outside of a request.
+     *
+     * @param dependencies The dependencies.
+     */
+    public static void add(String... dependencies) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> current = (Set<String>) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (current == null) {
+            current = new HashSet<>();
+            attributes.setAttribute(ATTRIBUTE, current, RequestAttributes.SCOPE_REQUEST);
+        }
+        Collections.addAll(current, dependencies);
+    }
+
+    /**
+     * Return the dependencies that were recorded for a request.
+     *
+     * @param request The request.
+     * @return The dependencies.
+     */
+    static Set<String> get(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Set<String> dependencies = (Set<String>) request.getAttribute(ATTRIBUTE);
+
+        return dependencies == null ? Collections.emptySet() : dependencies;
+    }
+
+    /**
+     * Dependency on the content of a post.
+     *
+     * @param id The post identifier.
+     * @return The dependency.
+     */
+    public static String post(Object id) {
+        return "post:" + id;
+    }
+
+    /**
+     * Dependency on the comments of a post.
+     *
+     * @param postId The post identifier.
+     * @return The dependency.
+     */
+    public static String comments(Object postId) {
+        return "comments:" + postId;
+    }
+
+    /**
+     * Dependency on the content of a page.
+     *
+     * @param id The page identifier.
+     * @return The dependency.
+     */
+    public static String page(Object id) {
+        return "page:" + id;
+    }
+
+    /**
+     * Dependency on the name and slug of a tag.
+     *
+     * @param id The tag identifier.
+     * @return The dependency.
+     */
+    public static String tag(Object id) {
+        return "tag:" + id;
+    }
+
+    /**
+     * Dependency on the name and slug of a category.
+     *
+     * @param id The category identifier.
+     * @return The dependency.
+     */
+    public static String category(Object id) {
+        return "category:" + id;
+    }
+
+    /**
+     * Dependency on the membership of the list of posts under a tag.
+     *
+     * @param id The tag identifier.
+     * @return The dependency.
+     */
+    public static String tagList(Object id) {
+        return "list:tag:" + id;
+    }
+
+    /**
+     * Dependency on the membership of the list of posts under a category.
+     *
+     * @param id The category identifier.
+     * @return The dependency.
+     */
+    public static String categoryList(Object id) {
+        return "list:category:" + id;
+    }
+
+    /**
+     * Dependency on the membership of the list of posts published in a year, month or day. If all parameters are
+     * null, this is the list of all posts.
+     *
+     * @param year The year, or null.
+     * @param month The month, or null.
+     * @param day The day, or null.
+     * @return The dependency.
+     */
+    public static String dateList(Integer year, Integer month, Integer day) {
+        if (day != null) {
+            return String.format("list:%04d-%02d-%02d", year, month, day);
+        } else if (month != null) {
+            return String.format("list:%04d-%02d", year, month);
+        } else if (year != null) {
+            return String.format("list:%04d", year);
+        }
+
+        return "list:all";
+    }
+
+    /**
+     * Add the dependencies on all lists that a post published at the provided date is displayed in.
+     *
+     * @param dependencies The dependencies to add to.
+     * @param publishedAt The publication date, or null.
+     */
+    static void addDateLists(Collection<String> dependencies, OffsetDateTime publishedAt) {
+        dependencies.add(dateList(null, null, null));
+        if (publishedAt != null) {
+            OffsetDateTime utc = publishedAt.withOffsetSameInstant(ZoneOffset.UTC);
+            dependencies.add(dateList(utc.getYear(), null, null));
+            dependencies.add(dateList(utc.getYear(), utc.getMonthValue(), null));
+            dependencies.add(dateList(utc.getYear(), utc.getMonthValue(), utc.getDayOfMonth()));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package net.mavroprovato.springcms.component;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The SQL statements that are executed while a request is handled. The statements are grouped by their shape, which
+ * is the statement with its literals and the lengths of its parameter lists removed, so that a statement that is
+ * repeated for each item of a list, the N+1 pattern, is counted as one shape that is executed many times.
+ */
+public class RequestStatements {
+
+    /** Matches the string literals */
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    /** Matches the numeric literals */
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+    /** Matches the parameter lists */
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+    /** The number of statements */
+    @Getter
+    private int statementCount;
+
+    /** The time that the statements were executing for, in nanoseconds */
+    @Getter
+    private long executionNanos;
+
+    /** The number of times that each statement shape was executed, keyed by shape */
+    private final Map<String, Integer> shapes = new HashMap<>();
+
+    /**
+     * Record a statement.
+     *
+     * @param sql The statement SQL.
+     */
+    void statement(String sql) {
+        statementCount++;
+        shapes.merge(shape(sql), 1, Integer::sum);
+    }
+
+    /**
+     * Record the time of a statement execution.
+     *
+     * @param nanos The execution time, in nanoseconds.
+     */
+    void execution(long nanos) {
+        executionNanos += nanos;
+    }
+
+    /**
+     * Return the time that the statements were executing for, in milliseconds.
+     *
+     * @return The execution time.
+     */
+    public double getExecutionMillis() {
+        return executionNanos / 1e6;
+    }
+
+    /**
+     * Return the statement shapes that were executed at least a number of times, the most frequent first.
+     *
+     * @param threshold The minimum number of executions.
+     * @return The number of executions of the repeated shapes, keyed by shape.
+     */
+    public Map<String, Integer> repeatedShapes(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        shapes.entrySet().stream()
+                .filter(e -> e.getValue() >= threshold)
+                .sorted(Collections.reverseOrder(Map.Entry.comparingByValue()))
+                .forEach(e -> repeated.put(e.getKey(), e.getValue()));
+
+        return repeated;
+    }
+
+    /**
+     * Return the shape of a statement.
+     *
+     * @param sql The statement SQL.
+     * @return The statement shape.
+     */
+    static String shape(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+
+        return PARAMETER_LIST.matcher(shape).replaceAll("(?)");
+    }
+}
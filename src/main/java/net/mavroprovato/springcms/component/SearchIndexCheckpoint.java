@@ -0,0 +1,113 @@
+package net.mavroprovato.springcms.component;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Properties;
+
+/**
+ * The position up to which the search index is known to be up to date: the modification time and the identifier of
+ * the last post that was indexed, along with the version of the index schema and the shard that the searches use. It is
+ * stored in a file next to the index.
+ */
+public final class SearchIndexCheckpoint {
+
+    /** The name of the version property */
+    private static final String VERSION = "version";
+
+    /** The name of the modification time property */
+    private static final String UPDATED_AT = "updatedAt";
+
+    /** The name of the identifier property */
+    private static final String ID = "id";
+
+    /** The name of the shard property */
+    private static final String SHARD = "shard";
+
+    /** The version of the index schema */
+    @Getter
+    private final String version;
+
+    /** The modification time of the last indexed post */
+    @Getter
+    private final OffsetDateTime updatedAt;
+
+    /** The identifier of the last indexed post */
+    @Getter
+    private final int id;
+
+    /** The shard that the searches use */
+    @Getter
+    private final String shard;
+
+    /**
+     * Create a checkpoint.
+     *
+     * @param version The version of the index schema.
+     * @param updatedAt The modification time of the last indexed post.
+     * @param id The identifier of the last indexed post.
+     * @param shard The shard that the searches use.
+     */
+    public SearchIndexCheckpoint(String version, OffsetDateTime updatedAt, int id, String shard) {
+        this.version = version;
+        this.updatedAt = updatedAt;
+        this.id = id;
+        this.shard = shard;
+    }
+
+    /**
+     * Read a checkpoint from a file.
+     *
+     * @param file The file.
+     * @return The checkpoint, or null if the file does not exist or it is not valid.
+     * @throws IOException If the file cannot be read.
+     */
+    public static SearchIndexCheckpoint read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            properties.load(inputStream);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        String version = properties.getProperty(VERSION);
+        String updatedAt = properties.getProperty(UPDATED_AT);
+        String id = properties.getProperty(ID);
+        String shard = properties.getProperty(SHARD);
+        if (version == null || updatedAt == null || id == null || shard == null) {
+            return null;
+        }
+        try {
+            return new SearchIndexCheckpoint(version, OffsetDateTime.parse(updatedAt), Integer.parseInt(id), shard);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write the checkpoint to a file. The file is replaced atomically, so it is never left half written.
+     *
+     * @param file The file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(VERSION, version);
+        properties.setProperty(UPDATED_AT, updatedAt.toString());
+        properties.setProperty(ID, Integer.toString(id));
+        properties.setProperty(SHARD, shard);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+            properties.store(outputStream, "Search index checkpoint");
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
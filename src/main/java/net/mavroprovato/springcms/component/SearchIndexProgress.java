@@ -0,0 +1,144 @@
+package net.mavroprovato.springcms.component;
+
+import org.hibernate.search.batchindexing.MassIndexerProgressMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the progress of a rebuild of the search index. The indexer reports the number of posts to index and the
+ * documents that it adds, and the progress is logged periodically, along with the indexing rate and the estimated
+ * remaining time. When there is a usable index, the searches keep using it while the new one is built. Otherwise the
+ * index is not ready until the rebuild completes, as searches would miss the posts that are not yet indexed.
+ */
+@Component
+public class SearchIndexProgress implements MassIndexerProgressMonitor {
+
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(SearchIndexProgress.class);
+
+    /** The minimum time between two progress log messages, in nanoseconds */
+    private static final long LOG_INTERVAL = Duration.ofSeconds(10).toNanos();
+
+    /** The number of documents to index */
+    private final AtomicLong total = new AtomicLong();
+
+    /** The number of indexed documents */
+    private final AtomicLong documents = new AtomicLong();
+
+    /** The time of the last progress log message, in nanoseconds */
+    private final AtomicLong lastLog = new AtomicLong();
+
+    /** The time that the rebuild started, in nanoseconds */
+    private volatile long start;
+
+    /** False while the index is rebuilt and there is no usable index for the searches */
+    private volatile boolean ready = true;
+
+    /**
+     * Mark the start of a rebuild.
+     *
+     * @param ready True if the searches can keep using the current index while the new one is built.
+     */
+    void start(boolean ready) {
+        total.set(0);
+        documents.set(0);
+        start = System.nanoTime();
+        lastLog.set(start);
+        this.ready = ready;
+    }
+
+    /**
+     * Mark the end of a rebuild, whether it succeeded or not.
+     */
+    void finish() {
+        ready = true;
+    }
+
+    /**
+     * Check if the index is ready, which it is unless it is rebuilt and there is no usable index.
+     *
+     * @return True if the index is ready.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Return the percentage of the documents that are indexed.
+     *
+     * @return The percentage, from 0 to 100.
+     */
+    public int getPercentage() {
+        long total = this.total.get();
+
+        return total == 0 ? 0 : (int) Math.min(100, documents.get() * 100 / total);
+    }
+
+    /**
+     * Return the estimated time until the rebuild completes.
+     *
+     * @return The estimated time, or null if it cannot be estimated yet.
+     */
+    public Duration getRemaining() {
+        long documents = this.documents.get();
+        long elapsed = System.nanoTime() - start;
+        if (documents == 0 || elapsed <= 0) {
+            return null;
+        }
+
+        return Duration.ofNanos((long) ((total.get() - documents) / (double) documents * elapsed));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void documentsAdded(long increment) {
+        long documents = this.documents.addAndGet(increment);
+        long now = System.nanoTime();
+        long last = lastLog.get();
+        if (now - last >= LOG_INTERVAL && lastLog.compareAndSet(last, now)) {
+            double rate = documents / Math.max((now - start) / 1e9, 1e-3);
+            Duration remaining = getRemaining();
+            logger.info("Search index rebuild: {} of {} documents ({}%), {} documents/s, {} s remaining.",
+                    documents, total.get(), getPercentage(), String.format("%.0f", rate),
+                    remaining == null ? "?" : remaining.getSeconds());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void documentsBuilt(int number) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void entitiesLoaded(int size) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToTotalCount(long count) {
+        total.addAndGet(count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void indexingCompleted() {
+        double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-3);
+        logger.info("Search index rebuild: {} documents indexed in {} s, {} documents/s.", documents.get(),
+                String.format("%.1f", seconds), String.format("%.0f", documents.get() / seconds));
+    }
+}
@@ -0,0 +1,197 @@
+package net.mavroprovato.springcms.component;
+
+import org.apache.lucene.document.Document;
+import org.hibernate.search.filter.FullTextFilterImplementor;
+import org.hibernate.search.spi.BuildContext;
+import org.hibernate.search.store.ShardIdentifierProvider;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Splits the post index into two directories, the blue and the green shard, so that the index can be rebuilt without
+ * disturbing the searches. The searches use the live shard, while a rebuild fills the other one, the shadow shard.
+ * When the rebuild is complete the shadow shard becomes the live one, which switches the searches over atomically.
+ * <p>
+ * The posts that are saved while the application runs are indexed in the live shard, and they are deleted from both
+ * shards, so that the shadow shard does not keep stale documents. The rebuild writes to the shadow shard by selecting
+ * it for its own threads with {@link #using(String, Supplier)}.
+ * <p>
+ * Hibernate Search creates the instance that it uses, so the state is static.
+ */
+public class SearchIndexShards implements ShardIdentifierProvider {
+
+    /** The blue shard */
+    public static final String BLUE = "blue";
+
+    /** The green shard */
+    public static final String GREEN = "green";
+
+    /** All the shards */
+    private static final Set<String> SHARDS = Set.of(BLUE, GREEN);
+
+    /** The shard that the searches use */
+    private static volatile String live = BLUE;
+
+    /** The shard that is rebuilt, or null if no rebuild is in progress */
+    private static volatile String shadow;
+
+    /** The shard that the current thread uses instead of the live one, or null if it uses the live one */
+    private static final ThreadLocal<String> SELECTED = new ThreadLocal<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize(Properties properties, BuildContext buildContext) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getShardIdentifier(Class<?> entityType, Serializable id, String idAsString, Document document) {
+        return current();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getShardIdentifiersForQuery(FullTextFilterImplementor[] fullTextFilters) {
+        return Collections.singleton(current());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getShardIdentifiersForDeletion(Class<?> entity, Serializable id, String idInString) {
+        String selected = SELECTED.get();
+        if (selected != null) {
+            return Collections.singleton(selected);
+        }
+        String shadow = SearchIndexShards.shadow;
+
+        return shadow == null ? Collections.singleton(live) : Set.of(live, shadow);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getAllShardIdentifiers() {
+        return SHARDS;
+    }
+
+    /**
+     * Return the shard that the current thread uses.
+     *
+     * @return The shard.
+     */
+    private static String current() {
+        String selected = SELECTED.get();
+
+        return selected == null ? live : selected;
+    }
+
+    /**
+     * Check if a shard identifier is valid.
+     *
+     * @param shard The shard identifier.
+     * @return True if it is valid.
+     */
+    public static boolean isShard(String shard) {
+        return SHARDS.contains(shard);
+    }
+
+    /**
+     * Return the shard that the searches use.
+     *
+     * @return The shard.
+     */
+    public static String getLive() {
+        return live;
+    }
+
+    /**
+     * Set the shard that the searches use.
+     *
+     * @param shard The shard.
+     */
+    static void setLive(String shard) {
+        if (!isShard(shard)) {
+            throw new IllegalArgumentException("Unknown search index shard: " + shard);
+        }
+        live = shard;
+    }
+
+    /**
+     * Return the shard that is not live, which is the one that is rebuilt.
+     *
+     * @return The shard.
+     */
+    static String standby() {
+        return BLUE.equals(live) ? GREEN : BLUE;
+    }
+
+    /**
+     * Mark the start of a rebuild of the standby shard. From now on the deleted posts are deleted from both shards.
+     *
+     * @return The shard that is rebuilt.
+     */
+    static String startShadow() {
+        shadow = standby();
+
+        return shadow;
+    }
+
+    /**
+     * Make the shard that was rebuilt the live one.
+     *
+     * @return The shard that was live until now.
+     */
+    static String promoteShadow() {
+        if (shadow == null) {
+            throw new IllegalStateException("No search index shard is rebuilt");
+        }
+        String retired = live;
+        live = shadow;
+        shadow = null;
+
+        return retired;
+    }
+
+    /**
+     * Mark the end of a rebuild that was abandoned. The live shard does not change.
+     */
+    static void dropShadow() {
+        shadow = null;
+    }
+
+    /**
+     * Perform an operation on a shard instead of the live one. The documents that the current thread indexes, deletes
+     * and searches during the operation belong to the shard.
+     *
+     * @param shard The shard.
+     * @param operation The operation.
+     * @param <T> The type of the operation result.
+     * @return The operation result.
+     */
+    static <T> T using(String shard, Supplier<T> operation) {
+        String previous = SELECTED.get();
+        SELECTED.set(shard);
+        try {
+            return operation.get();
+        } finally {
+            if (previous == null) {
+                SELECTED.remove();
+            } else {
+                SELECTED.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package net.mavroprovato.springcms.component;
+
+import net.mavroprovato.springcms.entity.ArchiveCount;
+import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.Page;
+import net.mavroprovato.springcms.entity.Post;
+import net.mavroprovato.springcms.event.EntityChangedEvent;
+import net.mavroprovato.springcms.repository.ArchiveCountRepository;
+import net.mavroprovato.springcms.repository.CategoryRepository;
+import net.mavroprovato.springcms.repository.PageRepository;
+import net.mavroprovato.springcms.service.ConfigurationParameterService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the model objects that are common to all public pages (archives, categories, configuration and pages) as an
+ * immutable snapshot. The snapshot is rebuilt lazily after a post, page or category has been written, or when the
+ * configuration parameter snapshot has been replaced.
+ */
+@Component
+public class SidebarModelCache {
+
+    /** The archive count repository */
+    private final ArchiveCountRepository archiveCountRepository;
+
+    /** The page repository */
+    private final PageRepository pageRepository;
+
+    /** The category repository */
+    private final CategoryRepository categoryRepository;
+
+    /** The configuration parameter service */
+    private final ConfigurationParameterService configurationParameterService;
+
+    /** Incremented every time the snapshot is invalidated */
+    private final AtomicLong generation = new AtomicLong();
+
+    /** Lock that makes sure that only one thread rebuilds the snapshot at a time */
+    private final Object rebuildLock = new Object();
+
+    /** The current snapshot, null if it was never loaded */
+    private volatile Snapshot snapshot;
+
+    /**
+     * The sidebar model, along with the generation that it was loaded at.
+     */
+    private static final class Snapshot {
+        /** The generation of the cache when the snapshot was loaded */
+        final long generation;
+        /** The configuration parameters that the snapshot was loaded with */
+        final Map<String, String> config;
+        /** The model */
+        final Map<String, Object> model;
+
+        /**
+         * Create the snapshot.
+         *
+         * @param generation The generation of the cache when the snapshot was loaded.
+         * @param config The configuration parameters that the snapshot was loaded with.
+         * @param model The model.
+         */
+        Snapshot(long generation, Map<String, String> config, Map<String, Object> model) {
+            this.generation = generation;
+            this.config = config;
+            this.model = model;
+        }
+    }
+
+    /**
+     * Create the sidebar model cache.
+     *
+     * @param archiveCountRepository The archive count repository.
+     * @param pageRepository The page repository.
+     * @param categoryRepository The category repository.
+     * @param configurationParameterService The configuration parameter service.
+     */
+    @Autowired
+    public SidebarModelCache(ArchiveCountRepository archiveCountRepository, PageRepository pageRepository,
+                             CategoryRepository categoryRepository,
+                             ConfigurationParameterService configurationParameterService) {
+        this.archiveCountRepository = archiveCountRepository;
+        this.pageRepository = pageRepository;
+        this.categoryRepository = categoryRepository;
+        this.configurationParameterService = configurationParameterService;
+    }
+
+    /**
+     * Return the model objects that are common to all public pages. If the snapshot is stale, it is rebuilt. When many
+     * threads find the snapshot stale at the same time, only one of them reloads it and the others wait for the result.
+     *
+     * @return The common model as an unmodifiable map.
+     */
+    public Map<String, Object> getModel() {
+        PageDependencies.add(PageDependencies.ARCHIVE, PageDependencies.CATEGORIES, PageDependencies.PAGES);
+        Snapshot current = snapshot;
+        if (isValid(current)) {
+            return current.model;
+        }
+
+        synchronized (rebuildLock) {
+            current = snapshot;
+            if (!isValid(current)) {
+                long loadGeneration = generation.get();
+                Map<String, String> config = configurationParameterService.allParameters();
+                current = new Snapshot(loadGeneration, config, load(config));
+                snapshot = current;
+            }
+
+            return current.model;
+        }
+    }
+
+    /**
+     * Invalidate the snapshot when an entity that is displayed in the sidebar is modified.
+     *
+     * @param event The entity changed event.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.isAbout(Page.class) || event.isAbout(Category.class) || event.isAbout(ArchiveCount.class) ||
+                (event.isAbout(Post.class) && (event.isModified("status") || event.isModified("publishedAt") ||
+                        event.isModified("categories")))) {
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Check if a snapshot is still valid. The configuration parameters are compared by identity, because the
+     * configuration parameter service replaces its map every time the parameters are modified.
+     *
+     * @param snapshot The snapshot.
+     * @return True if the snapshot is still valid.
+     */
+    private boolean isValid(Snapshot snapshot) {
+        return snapshot != null && snapshot.generation == generation.get() &&
+                snapshot.config == configurationParameterService.allParameters();
+    }
+
+    /**
+     * Load the model from the database.
+     *
+     * @param config The configuration parameters.
+     * @return The model.
+     */
+    private Map<String, Object> load(Map<String, String> config) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("archives", Collections.unmodifiableList(archiveCountRepository.findAllCounts()));
+        model.put("categories", Collections.unmodifiableList(categoryRepository.findAllByOrderByNameAsc()));
+        model.put("config", config);
+        model.put("pages", Collections.unmodifiableList(pageRepository.findAll()));
+
+        return Collections.unmodifiableMap(model);
+    }
+}
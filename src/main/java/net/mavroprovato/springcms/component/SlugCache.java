@@ -0,0 +1,174 @@
+package net.mavroprovato.springcms.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.Page;
+import net.mavroprovato.springcms.entity.Post;
+import net.mavroprovato.springcms.entity.Tag;
+import net.mavroprovato.springcms.event.EntityChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded cache that resolves the slugs of posts, pages, tags and categories to identifiers, so that the entities can
+ * be loaded by their primary key. Slugs that do not exist are cached as well, for a limited time, so that requests for
+ * unknown slugs do not reach the database. The entries are evicted when the slug of an entity is modified by this
+ * node; entries that are made stale by other nodes are detected when the entity is loaded.
+ */
+@Component
+public class SlugCache {
+
+    /** The maximum number of slugs that are cached for each entity type */
+    private final long maximumSize;
+
+    /** The time for which unknown slugs are cached, in nanoseconds */
+    private final long negativeTtl;
+
+    /** The identifiers keyed by slug, for each entity type. Unknown slugs are mapped to an empty optional */
+    private final Map<Class<?>, Cache<String, Optional<Integer>>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Create the slug cache.
+     *
+     * @param maximumSize The maximum number of slugs that are cached for each entity type.
+     * @param negativeTtl The time for which unknown slugs are cached, in seconds.
+     */
+    public SlugCache(@Value("${cms.slug-cache.maximum-size:10000}") long maximumSize,
+                     @Value("${cms.slug-cache.negative-ttl:60}") long negativeTtl) {
+        this.maximumSize = maximumSize;
+        this.negativeTtl = TimeUnit.SECONDS.toNanos(negativeTtl);
+    }
+
+    /**
+     * Find an entity by its slug. The slug is resolved to the entity identifier through the cache, and the entity is
+     * loaded by its identifier. If the loaded entity no longer has the slug, the cache entry is evicted and the slug is
+     * resolved again.
+     *
+     * @param type The entity type.
+     * @param slug The slug.
+     * @param idLoader Loads the identifier of an entity by its slug.
+     * @param entityLoader Loads an entity by its identifier.
+     * @param slugGetter Returns the slug of an entity.
+     * @param <T> The entity type.
+     * @return The entity, or an empty optional if no entity has the slug.
+     */
+    public <T> Optional<T> find(Class<T> type, String slug, Function<String, Optional<Integer>> idLoader,
+                                Function<Integer, Optional<T>> entityLoader, Function<T, String> slugGetter) {
+        Cache<String, Optional<Integer>> cache = cache(type);
+        Optional<Integer> id = cache.get(slug, idLoader);
+        Optional<T> entity = id.flatMap(entityLoader).filter(e -> slug.equals(slugGetter.apply(e)));
+        if (id.isPresent() && !entity.isPresent()) {
+            // The slug was modified or deleted by another node
+            cache.invalidate(slug);
+            id = cache.get(slug, idLoader);
+            entity = id.flatMap(entityLoader);
+        }
+
+        return entity;
+    }
+
+    /**
+     * Evict the slugs of an entity when it is inserted, deleted, or its slug is modified. Inserted entities evict their
+     * slug as well, in case it was cached as unknown.
+     *
+     * @param event The entity changed event.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onEntityChanged(EntityChangedEvent event) {
+        Class<?> type = cacheType(event);
+        if (type == null || !event.isModified("slug")) {
+            return;
+        }
+        Cache<String, Optional<Integer>> cache = cache(type);
+        String slug = slug(event.getEntity());
+        if (slug != null) {
+            cache.invalidate(slug);
+        }
+        Object previousSlug = event.getPreviousValues().get("slug");
+        if (previousSlug instanceof String) {
+            cache.invalidate(previousSlug);
+        }
+    }
+
+    /**
+     * Return the cache for an entity type.
+     *
+     * @param type The entity type.
+     * @return The cache.
+     */
+    private Cache<String, Optional<Integer>> cache(Class<?> type) {
+        return caches.computeIfAbsent(type, t -> Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Optional<Integer>>() {
+                    @Override
+                    public long expireAfterCreate(String slug, Optional<Integer> id, long currentTime) {
+                        return id.isPresent() ? Long.MAX_VALUE : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String slug, Optional<Integer> id, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(slug, id, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String slug, Optional<Integer> id, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build());
+    }
+
+    /**
+     * Return the entity type that the cache uses for the entity of an event.
+     *
+     * @param event The entity changed event.
+     * @return The entity type, or null if the slugs of the entity are not cached.
+     */
+    private static Class<?> cacheType(EntityChangedEvent event) {
+        if (event.isAbout(Post.class)) {
+            return Post.class;
+        } else if (event.isAbout(Page.class)) {
+            return Page.class;
+        } else if (event.isAbout(Tag.class)) {
+            return Tag.class;
+        } else if (event.isAbout(Category.class)) {
+            return Category.class;
+        }
+
+        return null;
+    }
+
+    /**
+     * Return the slug of an entity.
+     *
+     * @param entity The entity.
+     * @return The slug, or null if the entity does not have a slug.
+     */
+    private static String slug(Object entity) {
+        if (entity instanceof Post) {
+            return ((Post) entity).getSlug();
+        } else if (entity instanceof Page) {
+            return ((Page) entity).getSlug();
+        } else if (entity instanceof Tag) {
+            return ((Tag) entity).getSlug();
+        } else if (entity instanceof Category) {
+            return ((Category) entity).getSlug();
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,99 @@
+package net.mavroprovato.springcms.component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Records the SQL statements that each request executes, and logs a warning for the requests that execute too many
+ * statements, or that execute a statement shape many times, which is the sign of an N+1 pattern. The filter runs
+ * before all other filters, so that the statements of the security filters are recorded as well. The statements of
+ * each request are stored as a request attribute, so that the tests can check them.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StatementCountFilter extends OncePerRequestFilter {
+
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(StatementCountFilter.class);
+
+    /** The name of the request attribute that holds the statements of the request */
+    public static final String STATEMENTS_ATTRIBUTE = StatementCountFilter.class.getName() + ".STATEMENTS";
+
+    /** True if the statements are recorded */
+    private final boolean enabled;
+
+    /** The number of statements above which a request is logged */
+    private final int warnThreshold;
+
+    /** The number of executions of a statement shape from which a request is logged */
+    private final int repeatThreshold;
+
+    /**
+     * Create the statement count filter.
+     *
+     * @param enabled True if the statements are recorded.
+     * @param warnThreshold The number of statements above which a request is logged.
+     * @param repeatThreshold The number of executions of a statement shape from which a request is logged.
+     */
+    public StatementCountFilter(@Value("${cms.statements.enabled:true}") boolean enabled,
+                                @Value("${cms.statements.warn-threshold:30}") int warnThreshold,
+                                @Value("${cms.statements.repeat-threshold:5}") int repeatThreshold) {
+        this.enabled = enabled;
+        this.warnThreshold = warnThreshold;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestStatements statements = StatementMonitor.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            StatementMonitor.stop();
+            request.setAttribute(STATEMENTS_ATTRIBUTE, statements);
+            log(request, statements);
+        }
+    }
+
+    /**
+     * Log the statements of a request.
+     *
+     * @param request The request.
+     * @param statements The statements of the request.
+     */
+    private void log(HttpServletRequest request, RequestStatements statements) {
+        Map<String, Integer> repeated = statements.repeatedShapes(repeatThreshold);
+        if (statements.getStatementCount() > warnThreshold || !repeated.isEmpty()) {
+            logger.warn("{} {} executed {} statements in {} ms.", request.getMethod(), request.getRequestURI(),
+                    statements.getStatementCount(), String.format("%.1f", statements.getExecutionMillis()));
+            repeated.forEach((shape, count) -> logger.warn("Statement executed {} times: {}", count, shape));
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("{} {} executed {} statements in {} ms.", request.getMethod(), request.getRequestURI(),
+                    statements.getStatementCount(), String.format("%.1f", statements.getExecutionMillis()));
+        }
+    }
+}
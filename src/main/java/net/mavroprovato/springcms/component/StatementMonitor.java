@@ -0,0 +1,125 @@
+package net.mavroprovato.springcms.component;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Records the SQL statements that are executed by the current thread, between a call to {@link #start()} and a call
+ * to {@link #stop()}. It is registered with Hibernate as the statement inspector, which sees every statement as it is
+ * prepared, and a session event listener times the statement executions. Statements that are executed while no
+ * recording is in progress, for example by the scheduled tasks, are not recorded.
+ */
+@Component
+public class StatementMonitor implements StatementInspector, HibernatePropertiesCustomizer {
+
+    /** The statements of the current thread, or null if they are not recorded */
+    private static final ThreadLocal<RequestStatements> STATEMENTS = new ThreadLocal<>();
+
+    /**
+     * Times the statement executions of a session. Hibernate creates one listener for each session.
+     */
+    public static class ExecutionTimer extends BaseSessionEventListener {
+
+        /** The time that the current execution started, in nanoseconds */
+        private long start;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void jdbcExecuteStatementStart() {
+            start = System.nanoTime();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void jdbcExecuteStatementEnd() {
+            record();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void jdbcExecuteBatchStart() {
+            start = System.nanoTime();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void jdbcExecuteBatchEnd() {
+            record();
+        }
+
+        /**
+         * Record the time of the execution that just ended.
+         */
+        private void record() {
+            RequestStatements statements = STATEMENTS.get();
+            if (statements != null) {
+                statements.execution(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Register the statement inspector and the execution timer with Hibernate.
+     *
+     * @param hibernateProperties The Hibernate properties.
+     */
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+        hibernateProperties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, ExecutionTimer.class.getName());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String inspect(String sql) {
+        RequestStatements statements = STATEMENTS.get();
+        if (statements != null) {
+            statements.statement(sql);
+        }
+
+        return sql;
+    }
+
+    /**
+     * Start recording the statements of the current thread.
+     *
+     * @return The statements, which are updated as they are executed.
+     */
+    public static RequestStatements start() {
+        RequestStatements statements = new RequestStatements();
+        STATEMENTS.set(statements);
+
+        return statements;
+    }
+
+    /**
+     * Stop recording the statements of the current thread.
+     */
+    public static void stop() {
+        STATEMENTS.remove();
+    }
+
+    /**
+     * Check if the statements of the current thread are recorded.
+     *
+     * @return True if the statements are recorded.
+     */
+    public static boolean isRecording() {
+        return STATEMENTS.get() != null;
+    }
+}
@@ -1,5 +1,9 @@
 package net.mavroprovato.springcms.component;
 
+import net.mavroprovato.springcms.dto.CommentCursor;
+import net.mavroprovato.springcms.dto.KeysetSlice;
+import net.mavroprovato.springcms.dto.PostSummary;
+import net.mavroprovato.springcms.dto.SearchFilter;
 import net.mavroprovato.springcms.entity.Category;
 import net.mavroprovato.springcms.entity.Comment;
 import net.mavroprovato.springcms.entity.Page;
@@ -8,7 +12,9 @@ import net.mavroprovato.springcms.entity.Post;
 import net.mavroprovato.springcms.entity.Tag;
 import net.mavroprovato.springcms.service.ConfigurationParameterService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -48,10 +54,10 @@ public class UrlUtils {
      * Return the URL of the next page.
      *
      * @param urlPrefix The URL prefix.
-     * @param page The page number.
+     * @param page The page.
      * @return The URL of the next page.
      */
-    public String olderPage(String urlPrefix, org.springframework.data.domain.Page<?> page) {
+    public String olderPage(String urlPrefix, Slice<?> page) {
         if (!urlPrefix.endsWith("/")) {
             urlPrefix += "/";
         }
@@ -71,10 +77,10 @@ public class UrlUtils {
      * Return the URL of the previous page.
      *
      * @param urlPrefix The URL prefix.
-     * @param page The page number.
+     * @param page The page.
      * @return The URL of the previous page.
      */
-    public String newerPage(String urlPrefix, org.springframework.data.domain.Page<?> page) {
+    public String newerPage(String urlPrefix, Slice<?> page) {
         if (!urlPrefix.endsWith("/")) {
             urlPrefix += "/";
         }
@@ -93,6 +99,36 @@ public class UrlUtils {
         return url;
     }
 
+    /**
+     * Return the URL of the page with the posts that are older than a keyset slice.
+     *
+     * @param urlPrefix The URL prefix.
+     * @param slice The slice.
+     * @return The URL of the older page.
+     */
+    public String olderPage(String urlPrefix, KeysetSlice<?> slice) {
+        if (slice.isLast() || slice.getOlderCursor() == null) {
+            return urlPrefix;
+        }
+
+        return urlPrefix + "?before=" + slice.getOlderCursor().toToken();
+    }
+
+    /**
+     * Return the URL of the page with the posts that are newer than a keyset slice.
+     *
+     * @param urlPrefix The URL prefix.
+     * @param slice The slice.
+     * @return The URL of the newer page.
+     */
+    public String newerPage(String urlPrefix, KeysetSlice<?> slice) {
+        if (slice.isFirst() || slice.getNewerCursor() == null) {
+            return urlPrefix;
+        }
+
+        return urlPrefix + "?after=" + slice.getNewerCursor().toToken();
+    }
+
     /**
      * Get the URL for post list.
      *
@@ -280,12 +316,34 @@ public class UrlUtils {
      * @return The post URL.
      */
     public String post(Post post, boolean absolute) {
+        return post(post.getId(), post.getSlug(), absolute);
+    }
+
+    /**
+     * Get the URL for a post from its summary.
+     *
+     * @param post The post summary.
+     * @return The URL.
+     */
+    public String post(PostSummary post) {
+        return post(post.getId(), post.getSlug(), false);
+    }
+
+    /**
+     * Get the URL for a post.
+     *
+     * @param id The post identifier.
+     * @param slug The post slug.
+     * @param absolute If true, an absolute URL is returned.
+     * @return The URL.
+     */
+    private String post(Integer id, String slug, boolean absolute) {
         String path;
 
-        if (post.getSlug() == null) {
-            path = String.format("/post/%d", post.getId());
+        if (slug == null) {
+            path = String.format("/post/%d", id);
         } else {
-            path = String.format("/post/%s", post.getSlug());
+            path = String.format("/post/%s", slug);
         }
 
         if (absolute) {
@@ -296,17 +354,56 @@ public class UrlUtils {
     }
 
     /**
-     * Return the comment url.
+     * Return the comment url. The comments of the post page start from the comment, so that it is displayed even if
+     * it is not in the first page of comments.
      *
      * @param comment The comment.
      * @return The comment url.
      */
     public String comment(Comment comment) {
-        if (comment.getPost().getSlug() == null) {
-            return "/post/" + comment.getPost().getId() + "#comment-" + comment.getId();
-        } else {
-            return "/post/" + comment.getPost().getSlug() + "#comment-" + comment.getId();
+        CommentCursor cursor = new CommentCursor(comment.getCreatedAt(), comment.getId());
+
+        return post(comment.getPost()) + "?comments=" + cursor.toToken() + "#comment-" + comment.getId();
+    }
+
+    /**
+     * Return the URL of the post page, with the comments starting from a cursor.
+     *
+     * @param post The post.
+     * @param cursor The cursor of the first comment to display.
+     * @return The URL.
+     */
+    public String comments(Post post, CommentCursor cursor) {
+        return post(post) + "?comments=" + cursor.toToken() + "#comment-" + cursor.getId();
+    }
+
+    /**
+     * Return the URL of the fragment with the comments of a post, starting from a cursor.
+     *
+     * @param post The post.
+     * @param cursor The cursor of the first comment to display.
+     * @return The URL.
+     */
+    public String commentsFragment(Post post, CommentCursor cursor) {
+        return "/post/" + post.getId() + "/comments?from=" + cursor.toToken();
+    }
+
+    /**
+     * Return the URL of the search results for a filter.
+     *
+     * @param filter The search filter.
+     * @return The URL.
+     */
+    public String search(SearchFilter filter) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromPath("/search")
+                .queryParam("q", filter.getQuery());
+        filter.getTags().forEach(id -> builder.queryParam("tag", id));
+        filter.getCategories().forEach(id -> builder.queryParam("category", id));
+        if (filter.getMonth() != null) {
+            builder.queryParam("month", filter.getMonth());
         }
+
+        return builder.build().encode().toUriString();
     }
 
     /**
@@ -1,11 +1,13 @@
 package net.mavroprovato.springcms.controller;
 
+import net.mavroprovato.springcms.component.ContentVersion;
 import net.mavroprovato.springcms.service.PageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.ModelAndView;
 
 /**
@@ -18,24 +20,34 @@ public class PageController {
     /** The page service */
     private final PageService pageService;
 
+    /** The content version */
+    private final ContentVersion contentVersion;
+
     /**
      * Create the controller.
      *
      * @param pageService The content service.
+     * @param contentVersion The content version.
      */
     @Autowired
-    public PageController(PageService pageService) {
+    public PageController(PageService pageService, ContentVersion contentVersion) {
         this.pageService = pageService;
+        this.contentVersion = contentVersion;
     }
 
     /**
      * Display the content by its id.
      *
      * @param id The content id.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/id/{id:\\d+}")
-    public ModelAndView byId(@PathVariable("id") int id) {
+    public ModelAndView byId(@PathVariable("id") int id, ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
         return new ModelAndView("page", pageService.getById(id));
     }
 
@@ -43,10 +55,15 @@ public class PageController {
      * Display the content by its slug.
      *
      * @param slug The content slug.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/{slug:\\D\\S+}")
-    public ModelAndView bySlug(@PathVariable("slug") String slug) {
+    public ModelAndView bySlug(@PathVariable("slug") String slug, ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
         return new ModelAndView("page", pageService.getBySlug(slug));
     }
 
@@ -1,15 +1,22 @@
 package net.mavroprovato.springcms.controller;
 
+import net.mavroprovato.springcms.component.ContentVersion;
 import net.mavroprovato.springcms.component.UrlUtils;
+import net.mavroprovato.springcms.dto.CommentCursor;
 import net.mavroprovato.springcms.entity.Comment;
+import net.mavroprovato.springcms.exception.ResourceNotFoundException;
 import net.mavroprovato.springcms.service.PostService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.validation.Valid;
@@ -26,37 +33,88 @@ public class PostController {
     /** The URL utils **/
     private final UrlUtils urlUtils;
 
+    /** The content version */
+    private final ContentVersion contentVersion;
+
     /**
      * Create the controller.
      *
      * @param postService The page service.
+     * @param urlUtils The URL utils.
+     * @param contentVersion The content version.
      */
     @Autowired
-    public PostController(PostService postService, UrlUtils urlUtils) {
+    public PostController(PostService postService, UrlUtils urlUtils, ContentVersion contentVersion) {
         this.postService = postService;
         this.urlUtils = urlUtils;
+        this.contentVersion = contentVersion;
+    }
+
+    /**
+     * Prevent the submitted comments from setting their creation date.
+     *
+     * @param binder The binder of the comment form.
+     */
+    @InitBinder("newComment")
+    public void initCommentBinder(WebDataBinder binder) {
+        binder.setDisallowedFields("createdAt");
     }
 
     /**
      * Display the post by its id.
      *
      * @param id The content id.
+     * @param comments The token of the cursor of the first comment to display, or null.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/post/{id:\\d+}")
-    public ModelAndView byId(@PathVariable("id") int id, @ModelAttribute("newComment") Comment comment) {
-        return new ModelAndView("post", postService.getById(id));
+    public ModelAndView byId(@PathVariable("id") int id, @ModelAttribute("newComment") Comment comment,
+                             @RequestParam(value = "comments", required = false) String comments,
+                             ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("post", postService.getById(id, commentCursor(comments)));
     }
 
     /**
      * Display the post by its slug.
      *
      * @param slug The content slug.
+     * @param comments The token of the cursor of the first comment to display, or null.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/post/{slug:\\D\\S+}")
-    public ModelAndView bySlug(@PathVariable("slug") String slug, @ModelAttribute("newComment") Comment comment) {
-        return new ModelAndView("post", postService.getBySlug(slug));
+    public ModelAndView bySlug(@PathVariable("slug") String slug, @ModelAttribute("newComment") Comment comment,
+                               @RequestParam(value = "comments", required = false) String comments,
+                               ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("post", postService.getBySlug(slug, commentCursor(comments)));
+    }
+
+    /**
+     * Return the fragment with the comments of a post, starting from a cursor. It is used to load more comments into
+     * the post page.
+     *
+     * @param id The post identifier.
+     * @param from The token of the cursor of the first comment to display.
+     * @param webRequest The request.
+     * @return The model and view.
+     */
+    @GetMapping("/post/{id:\\d+}/comments")
+    public ModelAndView comments(@PathVariable("id") int id, @RequestParam("from") String from,
+                                 ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("comments :: comments", postService.getComments(id, commentCursor(from)));
     }
 
     /**
@@ -72,11 +130,29 @@ public class PostController {
                                     BindingResult bindingResult) {
         // Validate the form
         if (bindingResult.hasErrors()) {
-            return new ModelAndView("post", postService.getById(id));
+            return new ModelAndView("post", postService.getById(id, null));
         }
         // Add the comment
         postService.addComment(id, comment);
 
         return new ModelAndView("redirect:" + urlUtils.comment(comment));
     }
+
+    /**
+     * Parse the token of a comment cursor.
+     *
+     * @param token The token, or null.
+     * @return The cursor, or null if there is no token.
+     * @throws ResourceNotFoundException If the token is not valid.
+     */
+    private static CommentCursor commentCursor(String token) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            return CommentCursor.fromToken(token);
+        } catch (IllegalArgumentException e) {
+            throw new ResourceNotFoundException();
+        }
+    }
 }
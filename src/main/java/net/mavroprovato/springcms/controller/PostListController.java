@@ -1,64 +1,124 @@
 package net.mavroprovato.springcms.controller;
 
-import com.rometools.rome.feed.atom.Feed;
+import net.mavroprovato.springcms.component.ContentVersion;
+import net.mavroprovato.springcms.component.FeedCache;
+import net.mavroprovato.springcms.component.SearchIndexProgress;
+import net.mavroprovato.springcms.dto.ListPosition;
+import net.mavroprovato.springcms.dto.SearchFilter;
+import net.mavroprovato.springcms.exception.ResourceNotFoundException;
 import net.mavroprovato.springcms.service.PostService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.ModelAndView;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+
 /**
  * The content page controller.
  */
 @Controller
 public class PostListController {
 
+    /** The content type of the feeds */
+    private static final MediaType ATOM_CONTENT_TYPE = new MediaType("application", "atom+xml", StandardCharsets.UTF_8);
+
+    /** The number of seconds after which to retry a search, while the search index is rebuilt */
+    private static final long DEFAULT_RETRY_AFTER = 60;
+
     /** The content service */
     private final PostService postService;
 
+    /** The content version */
+    private final ContentVersion contentVersion;
+
+    /** The feed cache */
+    private final FeedCache feedCache;
+
+    /** The progress of the search index rebuilds */
+    private final SearchIndexProgress searchIndexProgress;
+
     /**
      * Create the controller.
      *
      * @param postService The post service.
+     * @param contentVersion The content version.
+     * @param feedCache The feed cache.
+     * @param searchIndexProgress The progress of the search index rebuilds.
      */
     @Autowired
-    public PostListController(PostService postService) {
+    public PostListController(PostService postService, ContentVersion contentVersion, FeedCache feedCache,
+                              SearchIndexProgress searchIndexProgress) {
         this.postService = postService;
+        this.contentVersion = contentVersion;
+        this.feedCache = feedCache;
+        this.searchIndexProgress = searchIndexProgress;
     }
 
     /**
      * Display the first page of content items, ordered by the latest published first.
      *
+     * @param before The cursor to display the posts that are older than, or null.
+     * @param after The cursor to display the posts that are newer than, or null.
+     * @param webRequest The request.
      * @return The page template name.
      */
     @GetMapping("/")
-    public ModelAndView page() {
-        return page(1);
+    public ModelAndView page(@RequestParam(value = "before", required = false) String before,
+                             @RequestParam(value = "after", required = false) String after,
+                             ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.list(position(before, after)));
     }
 
     /**
      * Display a page of content items, order by the latest published first.
      *
      * @param page The page number.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/page/{page:\\d+}")
-    public ModelAndView page(@PathVariable("page") int page) {
-        return new ModelAndView("posts", postService.list(page));
+    public ModelAndView page(@PathVariable("page") int page, ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.list(ListPosition.page(page)));
     }
 
     /**
      * Display the first page of content items published in a year, ordered by the latest published first.
      *
      * @param year The year.
+     * @param before The cursor to display the posts that are older than, or null.
+     * @param after The cursor to display the posts that are newer than, or null.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/{year:\\d+}")
-    public ModelAndView year(@PathVariable("year") int year) {
-        return yearPage(year, 1);
+    public ModelAndView year(@PathVariable("year") int year,
+                             @RequestParam(value = "before", required = false) String before,
+                             @RequestParam(value = "after", required = false) String after,
+                             ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.list(year, position(before, after)));
     }
 
     /**
@@ -66,11 +126,17 @@ public class PostListController {
      *
      * @param year The year.
      * @param page The page number.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/{year:\\d+}/page/{page:\\d+}")
-    public ModelAndView yearPage(@PathVariable("year") int year, @PathVariable("page") int page) {
-        return new ModelAndView("posts", postService.list(year, page));
+    public ModelAndView yearPage(@PathVariable("year") int year, @PathVariable("page") int page,
+                                 ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.list(year, ListPosition.page(page)));
     }
 
     /**
@@ -78,11 +144,21 @@ public class PostListController {
      *
      * @param year The year.
      * @param month The month number (1 for January, 12 for December).
+     * @param before The cursor to display the posts that are older than, or null.
+     * @param after The cursor to display the posts that are newer than, or null.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/{year:\\d+}/{month:\\d{1,2}}")
-    public ModelAndView month(@PathVariable("year") int year, @PathVariable("month") int month) {
-        return monthPage(year, month, 1);
+    public ModelAndView month(@PathVariable("year") int year, @PathVariable("month") int month,
+                              @RequestParam(value = "before", required = false) String before,
+                              @RequestParam(value = "after", required = false) String after,
+                              ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.list(year, month, position(before, after)));
     }
 
     /**
@@ -91,12 +167,17 @@ public class PostListController {
      * @param year The year.
      * @param month The month number (1 for January, 12 for December).
      * @param page The page number.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/{year:\\d+}/{month:\\d+}/page/{page:\\d+}")
     public ModelAndView monthPage(@PathVariable("year") int year, @PathVariable("month") int month,
-                                  @PathVariable("page") int page) {
-        return new ModelAndView("posts", postService.list(year, month, page));
+                                  @PathVariable("page") int page, ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.list(year, month, ListPosition.page(page)));
     }
 
     /**
@@ -105,12 +186,22 @@ public class PostListController {
      * @param year The year.
      * @param month The month number (1 for January, 12 for December).
      * @param day The day number.
+     * @param before The cursor to display the posts that are older than, or null.
+     * @param after The cursor to display the posts that are newer than, or null.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/{year:\\d+}/{month:\\d+}/{day:\\d+}")
     public ModelAndView day(@PathVariable("year") int year, @PathVariable("month") int month,
-                            @PathVariable("day") int day) {
-        return dayPage(year, month, day, 1);
+                            @PathVariable("day") int day,
+                            @RequestParam(value = "before", required = false) String before,
+                            @RequestParam(value = "after", required = false) String after,
+                            ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.list(year, month, day, position(before, after)));
     }
 
     /**
@@ -120,12 +211,18 @@ public class PostListController {
      * @param month The month number (1 for January, 12 for December).
      * @param day The day number.
      * @param page The page number.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/{year:\\d+}/{month:\\d+}/{day:\\d+}/page/{page:\\d+}")
     public ModelAndView dayPage(@PathVariable("year") int year, @PathVariable("month") int month,
-                                @PathVariable("day") int day, @PathVariable("page") int page) {
-        return new ModelAndView("posts", postService.list(year, month, day, page));
+                                @PathVariable("day") int day, @PathVariable("page") int page,
+                                ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.list(year, month, day, ListPosition.page(page)));
     }
 
     /**
@@ -133,11 +230,21 @@ public class PostListController {
      * identifier.
      *
      * @param id The tag identifier.
+     * @param before The cursor to display the posts that are older than, or null.
+     * @param after The cursor to display the posts that are newer than, or null.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/tag/{id:\\d+}")
-    public ModelAndView byTagId(@PathVariable("id") int id) {
-        return byTagIdPage(id, 1);
+    public ModelAndView byTagId(@PathVariable("id") int id,
+                                @RequestParam(value = "before", required = false) String before,
+                                @RequestParam(value = "after", required = false) String after,
+                                ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.listByTagId(id, position(before, after)));
     }
 
     /**
@@ -145,22 +252,38 @@ public class PostListController {
      *
      * @param id The tag identifier.
      * @param page The page number.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/tag/{id:\\d+}/page/{page:\\d+}")
-    public ModelAndView byTagIdPage(@PathVariable("id") int id, @PathVariable("page") int page) {
-        return new ModelAndView("posts", postService.listByTagId(id, page));
+    public ModelAndView byTagIdPage(@PathVariable("id") int id, @PathVariable("page") int page,
+                                    ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.listByTagId(id, ListPosition.page(page)));
     }
 
     /**
      * Display the first page of content items that use the provided tag. The tag is determined by its slug.
      *
      * @param slug The tag slug.
+     * @param before The cursor to display the posts that are older than, or null.
+     * @param after The cursor to display the posts that are newer than, or null.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/tag/{slug:\\D\\S+}")
-    public ModelAndView byTagSlug(@PathVariable("slug") String slug) {
-        return byTagSlugPage(slug, 1);
+    public ModelAndView byTagSlug(@PathVariable("slug") String slug,
+                                  @RequestParam(value = "before", required = false) String before,
+                                  @RequestParam(value = "after", required = false) String after,
+                                  ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.listByTagSlug(slug, position(before, after)));
     }
 
     /**
@@ -168,22 +291,38 @@ public class PostListController {
      *
      * @param slug The tag slug.
      * @param page The page number.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/tag/{slug:\\D\\S+}/page/{page:\\d+}")
-    public ModelAndView byTagSlugPage(@PathVariable("slug") String slug, @PathVariable("page") int page) {
-        return new ModelAndView("posts", postService.listByTagSlug(slug, page));
+    public ModelAndView byTagSlugPage(@PathVariable("slug") String slug, @PathVariable("page") int page,
+                                      ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.listByTagSlug(slug, ListPosition.page(page)));
     }
 
     /**
      * Display the first page of content items that are categorized under the specified category.
      *
      * @param id The category identifier.
+     * @param before The cursor to display the posts that are older than, or null.
+     * @param after The cursor to display the posts that are newer than, or null.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/category/{id:\\d+}")
-    public ModelAndView byCategoryId(@PathVariable("id") int id) {
-        return byCategoryIdPage(id, 1);
+    public ModelAndView byCategoryId(@PathVariable("id") int id,
+                                     @RequestParam(value = "before", required = false) String before,
+                                     @RequestParam(value = "after", required = false) String after,
+                                     ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.listByCategoryId(id, position(before, after)));
     }
 
     /**
@@ -191,22 +330,38 @@ public class PostListController {
      *
      * @param id The category identifier.
      * @param page The page number.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/category/{id:\\d+}/page/{page:\\d+}")
-    public ModelAndView byCategoryIdPage(@PathVariable("id") int id, @PathVariable("page") int page) {
-        return new ModelAndView("posts", postService.listByCategoryId(id, page));
+    public ModelAndView byCategoryIdPage(@PathVariable("id") int id, @PathVariable("page") int page,
+                                         ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.listByCategoryId(id, ListPosition.page(page)));
     }
 
     /**
      * Display the first page of content items that use the provided tag. The tag is determined by its slug.
      *
      * @param slug The tag slug.
+     * @param before The cursor to display the posts that are older than, or null.
+     * @param after The cursor to display the posts that are newer than, or null.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/category/{slug:\\D\\S+}")
-    public ModelAndView byCategorySlug(@PathVariable("slug") String slug) {
-        return byCategorySlugPage(slug, 1);
+    public ModelAndView byCategorySlug(@PathVariable("slug") String slug,
+                                       @RequestParam(value = "before", required = false) String before,
+                                       @RequestParam(value = "after", required = false) String after,
+                                       ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.listByCategorySlug(slug, position(before, after)));
     }
 
     /**
@@ -214,48 +369,165 @@ public class PostListController {
      *
      * @param slug The tag slug.
      * @param page The page number.
+     * @param webRequest The request.
      * @return The model and view.
      */
     @GetMapping("/category/{slug:\\D\\S+}/page/{page:\\d+}")
-    public ModelAndView byCategorySlugPage(@PathVariable("slug") String slug, @PathVariable("page") int page) {
-        return new ModelAndView("posts", postService.listByCategorySlug(slug, page));
+    public ModelAndView byCategorySlugPage(@PathVariable("slug") String slug, @PathVariable("page") int page,
+                                           ServletWebRequest webRequest) {
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.listByCategorySlug(slug, ListPosition.page(page)));
+    }
+
+    /**
+     * Return the position of a list page that is located by a cursor.
+     *
+     * @param before The cursor to display the posts that are older than, or null.
+     * @param after The cursor to display the posts that are newer than, or null.
+     * @return The position. If there is no cursor, the position of the first page.
+     */
+    private static ListPosition position(String before, String after) {
+        try {
+            return ListPosition.of(1, before, after);
+        } catch (IllegalArgumentException e) {
+            throw new ResourceNotFoundException();
+        }
     }
 
     /**
      * Show search results for a full text query.
      *
      * @param q The search query.
+     * @param tags The identifiers of the tags that the results must have.
+     * @param categories The identifiers of the categories that the results must belong to.
+     * @param month The month that the results must be published in.
+     * @param webRequest The request.
      */
     @GetMapping("/search")
-    public ModelAndView search(@RequestParam String q) {
-        return search(q, 1);
+    public ModelAndView search(@RequestParam String q,
+                               @RequestParam(value = "tag", required = false) List<Integer> tags,
+                               @RequestParam(value = "category", required = false) List<Integer> categories,
+                               @RequestParam(value = "month", required = false) YearMonth month,
+                               ServletWebRequest webRequest) {
+        return search(q, tags, categories, month, 1, webRequest);
     }
 
     /**
      * Show search results page for the given query.
      *
      * @param q The search query.
+     * @param tags The identifiers of the tags that the results must have.
+     * @param categories The identifiers of the categories that the results must belong to.
+     * @param month The month that the results must be published in.
+     * @param page The page number.
+     * @param webRequest The request.
      */
     @GetMapping("/search/page/{page:\\d+}")
-    public ModelAndView search(@RequestParam String q, @PathVariable("page") int page) {
-        return new ModelAndView("posts", postService.search(q, page));
+    public ModelAndView search(@RequestParam String q,
+                               @RequestParam(value = "tag", required = false) List<Integer> tags,
+                               @RequestParam(value = "category", required = false) List<Integer> categories,
+                               @RequestParam(value = "month", required = false) YearMonth month,
+                               @PathVariable("page") int page, ServletWebRequest webRequest) {
+        if (!searchIndexProgress.isReady()) {
+            // The index is rebuilt, and the results would be incomplete
+            Duration remaining = searchIndexProgress.getRemaining();
+            webRequest.getResponse().setHeader(HttpHeaders.RETRY_AFTER,
+                    Long.toString(remaining == null ? DEFAULT_RETRY_AFTER : Math.max(remaining.getSeconds(), 1)));
+            ModelAndView modelAndView = new ModelAndView("posts", postService.searchUnavailable(page));
+            modelAndView.setStatus(HttpStatus.SERVICE_UNAVAILABLE);
+
+            return modelAndView;
+        }
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        return new ModelAndView("posts", postService.search(new SearchFilter(q, tags, categories, month), page));
     }
 
     /**
      * Return the feed with the latest posts.
+     *
+     * @param webRequest The request.
+     * @return The serialized feed.
      */
     @GetMapping("/feed")
-    @ResponseBody
-    public Feed feed() {
-        return postService.latestPostsFeed();
+    public ResponseEntity<byte[]> feed(ServletWebRequest webRequest) {
+        return feedResponse(FeedCache.FeedType.POSTS, webRequest);
     }
 
     /**
-     * Return the feed with the latest posts.
+     * Return the feed with the latest comments.
+     *
+     * @param webRequest The request.
+     * @return The serialized feed.
      */
     @GetMapping("/comments/feed")
-    @ResponseBody
-    public Feed commentsFeed() {
-        return postService.latestCommentsFeed();
+    public ResponseEntity<byte[]> commentsFeed(ServletWebRequest webRequest) {
+        return feedResponse(FeedCache.FeedType.COMMENTS, webRequest);
+    }
+
+    /**
+     * Create the response for a feed. The feed is served compressed to the clients that accept gzip encoding.
+     *
+     * @param type The feed type.
+     * @param webRequest The request.
+     * @return The response, or null if the client already has the current version of the feed.
+     */
+    private ResponseEntity<byte[]> feedResponse(FeedCache.FeedType type, ServletWebRequest webRequest) {
+        // The Not Modified responses must vary like the responses they validate
+        webRequest.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (contentVersion.checkNotModified(webRequest)) {
+            return null;
+        }
+
+        FeedCache.SerializedFeed feed = feedCache.get(type);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(ATOM_CONTENT_TYPE);
+        if (acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(feed.getGzipBody());
+        }
+
+        return response.body(feed.getBody());
+    }
+
+    /**
+     * Check if a client accepts gzip encoded responses. The client accepts them if it lists the gzip coding, or the
+     * wildcard coding if gzip is not listed, with a quality value that is greater than zero.
+     *
+     * @param acceptEncoding The value of the Accept-Encoding header, or null if the header is missing.
+     * @return True if the client accepts gzip encoded responses.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (coding.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+        Double quality = gzipQuality != null ? gzipQuality : wildcardQuality;
+
+        return quality != null && quality > 0;
     }
 }
@@ -1,11 +1,15 @@
 package net.mavroprovato.springcms.controller.admin;
 
+import net.mavroprovato.springcms.component.BuildSearchIndex;
 import net.mavroprovato.springcms.datatables.DataTableRequest;
 import net.mavroprovato.springcms.service.AdminService;
+import net.mavroprovato.springcms.service.CacheStatisticsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
 
@@ -21,14 +25,25 @@ public class AdminDashboardController {
     /** The admin service. */
     private final AdminService adminService;
 
+    /** The cache statistics service. */
+    private final CacheStatisticsService cacheStatisticsService;
+
+    /** The search index builder. */
+    private final BuildSearchIndex buildSearchIndex;
+
     /**
      * Create the admin controller.
      *
      * @param adminService The admin service.
+     * @param cacheStatisticsService The cache statistics service.
+     * @param buildSearchIndex The search index builder.
      */
     @Autowired
-    public AdminDashboardController(AdminService adminService) {
+    public AdminDashboardController(AdminService adminService, CacheStatisticsService cacheStatisticsService,
+                                    BuildSearchIndex buildSearchIndex) {
         this.adminService = adminService;
+        this.cacheStatisticsService = cacheStatisticsService;
+        this.buildSearchIndex = buildSearchIndex;
     }
 
     /**
@@ -40,4 +55,42 @@ public class AdminDashboardController {
     public ModelAndView dashboard() {
         return new ModelAndView("admin/dashboard", adminService.dashboard());
     }
+
+    /**
+     * Return the second level cache and query cache statistics as JSON.
+     *
+     * @return The response body.
+     */
+    @GetMapping("/cache-statistics")
+    @ResponseBody
+    public Map<String, Object> cacheStatistics() {
+        return cacheStatisticsService.statistics();
+    }
+
+    /**
+     * Start or stop collecting the second level cache and query cache statistics on this node.
+     *
+     * @param enabled True to start collecting the statistics, false to stop.
+     * @return The response body.
+     */
+    @PostMapping("/cache-statistics")
+    @ResponseBody
+    public Map<String, Object> enableCacheStatistics(@RequestParam boolean enabled) {
+        cacheStatisticsService.setEnabled(enabled);
+
+        return cacheStatisticsService.statistics();
+    }
+
+    /**
+     * Rebuild the search index in the background. The searches keep using the current index until the new one is
+     * complete.
+     *
+     * @return The model and view.
+     */
+    @PostMapping("/search-index/rebuild")
+    public ModelAndView rebuildSearchIndex() {
+        buildSearchIndex.rebuildInBackground();
+
+        return new ModelAndView("redirect:/admin");
+    }
 }
@@ -0,0 +1,51 @@
+package net.mavroprovato.springcms.controller.admin;
+
+import net.mavroprovato.springcms.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Controller for exporting the content.
+ */
+@Controller
+@RequestMapping("admin/export")
+public class AdminExportController {
+
+    /** The export service. */
+    private final ExportService exportService;
+
+    /**
+     * Create the admin export controller.
+     *
+     * @param exportService The export service.
+     */
+    @Autowired
+    public AdminExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * Download all posts and pages as a JSON lines file. The file is written straight to the response, as the content
+     * is read.
+     *
+     * @param gzip True if the file must be compressed with gzip.
+     * @param response The HTTP response.
+     * @throws IOException If the response cannot be written.
+     */
+    @GetMapping("")
+    public void export(@RequestParam(defaultValue = "false") boolean gzip, HttpServletResponse response)
+            throws IOException {
+        String fileName = "spring-cms-" + LocalDate.now() + (gzip ? ".jsonl.gz" : ".jsonl");
+        response.setContentType(gzip ? "application/gzip" : "application/x-ndjson;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        exportService.export(response.getOutputStream(), gzip);
+    }
+}
@@ -0,0 +1,52 @@
+package net.mavroprovato.springcms.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Data source that sends the statements of read only transactions to the replica, and everything else to the
+ * primary. The transaction is only known once it has started, so the data source must be wrapped in a
+ * {@code LazyConnectionDataSourceProxy}, which fetches the connection when the first statement is executed.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * The data sources that statements can be routed to.
+     */
+    private enum Route {
+        PRIMARY, REPLICA
+    }
+
+    /** The replica lag monitor */
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    /**
+     * Create the routing data source.
+     *
+     * @param primary The primary data source.
+     * @param replica The replica data source.
+     * @param replicaLagMonitor The replica lag monitor.
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() &&
+                replicaLagMonitor.isReplicaUsable() ? Route.REPLICA : Route.PRIMARY;
+    }
+}
@@ -0,0 +1,122 @@
+package net.mavroprovato.springcms.datasource;
+
+import net.mavroprovato.springcms.event.EntityChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Decides if read only transactions can be served by the replica. The replication lag is polled periodically, and
+ * the replica is used only while it is reachable and its lag is below the configured maximum. Also, after this node
+ * commits a change, the reads are sent to the primary for as long as the replica may lag behind it, so that the pages
+ * and the caches that are rebuilt after a change include it.
+ */
+public class ReplicaLagMonitor {
+
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    /**
+     * The query that returns the replication lag in seconds, or null if it is unknown. A replica that is streaming from
+     * the primary and has replayed everything that it has received is not lagging, even if the primary has not written
+     * anything for a while. A replica whose WAL receiver is not streaming, because it has disconnected or its status
+     * cannot be read, lags by the age of the last transaction it has replayed, so it is used only until that exceeds
+     * the maximum lag. The status of the WAL receiver is only visible to members of {@code pg_read_all_stats}. A
+     * database that is not a replica is never lagging, so that two independent databases can be used for testing.
+     */
+    private static final String LAG_QUERY = "SELECT CASE " +
+            "WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN r.status = 'streaming' AND pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END " +
+            "FROM (SELECT 1) d LEFT JOIN pg_stat_wal_receiver r ON true";
+
+    /** The replica data source */
+    private final DataSource replicaDataSource;
+
+    /** The maximum replication lag, in milliseconds */
+    private final long maxLag;
+
+    /** The interval between the lag checks, in milliseconds */
+    private final long checkInterval;
+
+    /** True if the replica was reachable and not lagging at the last check */
+    private volatile boolean replicaAvailable;
+
+    /** The time until which the reads are sent to the primary, in milliseconds since the epoch */
+    private volatile long primaryUntil;
+
+    /**
+     * Create the replica lag monitor.
+     *
+     * @param replicaDataSource The replica data source.
+     * @param maxLag The maximum replication lag, in milliseconds.
+     * @param checkInterval The interval between the lag checks, in milliseconds.
+     */
+    public ReplicaLagMonitor(DataSource replicaDataSource, long maxLag, long checkInterval) {
+        this.replicaDataSource = replicaDataSource;
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+        check();
+    }
+
+    /**
+     * Check if read only transactions can currently be served by the replica.
+     *
+     * @return True if the replica can be used.
+     */
+    public boolean isReplicaUsable() {
+        return replicaAvailable && System.currentTimeMillis() >= primaryUntil;
+    }
+
+    /**
+     * Measure the replication lag, and update the availability of the replica.
+     */
+    @Scheduled(fixedDelayString = "${cms.datasource.replica.lag-check-interval:1000}")
+    public void check() {
+        boolean available;
+        try (Connection connection = replicaDataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+            resultSet.next();
+            long lag = Math.round(resultSet.getDouble(1) * 1000);
+            if (resultSet.wasNull()) {
+                available = false;
+                if (replicaAvailable) {
+                    logger.warn("The replication lag is unknown, reading from the primary.");
+                }
+            } else {
+                available = lag <= maxLag;
+                if (!available && replicaAvailable) {
+                    logger.warn("The replica is lagging by {} ms, reading from the primary.", lag);
+                }
+            }
+        } catch (SQLException e) {
+            available = false;
+            if (replicaAvailable) {
+                logger.warn("The replica cannot be reached, reading from the primary.", e);
+            }
+        }
+        if (available && !replicaAvailable) {
+            logger.info("Reading from the replica.");
+        }
+        replicaAvailable = available;
+    }
+
+    /**
+     * Send the reads to the primary after this node commits a change, until the replica has caught up with it. The
+     * lag is at most the maximum lag when it is checked, and it is checked again after the check interval.
+     *
+     * @param event The entity changed event.
+     */
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        primaryUntil = System.currentTimeMillis() + maxLag + checkInterval;
+    }
+}
@@ -0,0 +1,39 @@
+package net.mavroprovato.springcms.dto;
+
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+
+/**
+ * The position of a comment in the comments of a post, ordered by creation date. A page of comments starts at the
+ * comment that the cursor points to. It is passed in URLs as an opaque token.
+ */
+@Value
+public final class CommentCursor {
+
+    /** The comment creation date */
+    private final OffsetDateTime createdAt;
+
+    /** The comment identifier, used to order the comments that were created at the same time */
+    private final int id;
+
+    /**
+     * Return the token for the cursor.
+     *
+     * @return The URL safe token.
+     */
+    public String toToken() {
+        return CursorTokens.encode(createdAt, id);
+    }
+
+    /**
+     * Create a cursor from its token.
+     *
+     * @param token The token.
+     * @return The cursor.
+     * @throws IllegalArgumentException If the token is not valid.
+     */
+    public static CommentCursor fromToken(String token) {
+        return CursorTokens.decode(token, CommentCursor::new);
+    }
+}
@@ -0,0 +1,31 @@
+package net.mavroprovato.springcms.dto;
+
+import lombok.Value;
+import net.mavroprovato.springcms.entity.Comment;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A page of the comments of a post, that was fetched with keyset pagination.
+ */
+@Value
+public final class CommentSlice implements Iterable<Comment> {
+
+    /** The comments */
+    private final List<Comment> content;
+
+    /** True if the slice starts from the first comment of the post */
+    private final boolean first;
+
+    /** The cursor of the first comment after the slice, null if there are no more comments */
+    private final CommentCursor nextCursor;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<Comment> iterator() {
+        return content.iterator();
+    }
+}
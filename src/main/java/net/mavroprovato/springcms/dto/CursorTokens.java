@@ -0,0 +1,59 @@
+package net.mavroprovato.springcms.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.function.BiFunction;
+
+/**
+ * Encodes the cursors of keyset pagination, which are made of a date and an identifier, as opaque URL safe tokens.
+ */
+final class CursorTokens {
+
+    /**
+     * Prevent instantiation.
+     */
+    private CursorTokens() {
+    }
+
+    /**
+     * Return the token for a cursor.
+     *
+     * @param time The cursor date.
+     * @param id The cursor identifier.
+     * @return The URL safe token.
+     */
+    static String encode(OffsetDateTime time, int id) {
+        Instant instant = time.toInstant();
+        String value = instant.getEpochSecond() + "." + instant.getNano() + "." + id;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Create a cursor from its token.
+     *
+     * @param token The token.
+     * @param factory Creates the cursor from its date, in UTC, and its identifier.
+     * @param <T> The cursor type.
+     * @return The cursor.
+     * @throws IllegalArgumentException If the token is not valid.
+     */
+    static <T> T decode(String token, BiFunction<OffsetDateTime, Integer, T> factory) {
+        String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+        String[] parts = value.split("\\.");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        try {
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+
+            return factory.apply(OffsetDateTime.ofInstant(instant, ZoneOffset.UTC), Integer.parseInt(parts[2]));
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
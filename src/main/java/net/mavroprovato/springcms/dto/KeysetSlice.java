@@ -0,0 +1,39 @@
+package net.mavroprovato.springcms.dto;
+
+import lombok.Value;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A page of posts that was fetched with keyset pagination. Unlike a {@link org.springframework.data.domain.Page}, it
+ * does not know the total number of elements, only if there are older and newer elements.
+ *
+ * @param <T> The element type.
+ */
+@Value
+public final class KeysetSlice<T> implements Iterable<T> {
+
+    /** The elements */
+    private final List<T> content;
+
+    /** True if there are no newer elements */
+    private final boolean first;
+
+    /** True if there are no older elements */
+    private final boolean last;
+
+    /** The cursor of the newest element, null if the slice is empty */
+    private final PostCursor newerCursor;
+
+    /** The cursor of the oldest element, null if the slice is empty */
+    private final PostCursor olderCursor;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return content.iterator();
+    }
+}
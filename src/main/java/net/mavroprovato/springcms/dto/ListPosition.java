@@ -0,0 +1,69 @@
+package net.mavroprovato.springcms.dto;
+
+import lombok.Value;
+
+/**
+ * The position of a page in a list of posts. A page is located either by a cursor, with the posts that are older or
+ * newer than the cursor, or by its page number.
+ */
+@Value
+public final class ListPosition {
+
+    /** The page number, starting from 1. Only used if there is no cursor */
+    private final int page;
+
+    /** The cursor, or null if the page is located by its number */
+    private final PostCursor cursor;
+
+    /** True if the page contains the posts that are older than the cursor, false for the newer ones */
+    private final boolean older;
+
+    /**
+     * Return the position of a page by its number.
+     *
+     * @param page The page number, starting from 1.
+     * @return The position.
+     */
+    public static ListPosition page(int page) {
+        return new ListPosition(page, null, true);
+    }
+
+    /**
+     * Return the position of the page with the posts that are older than a cursor.
+     *
+     * @param cursor The cursor.
+     * @return The position.
+     */
+    public static ListPosition before(PostCursor cursor) {
+        return new ListPosition(0, cursor, true);
+    }
+
+    /**
+     * Return the position of the page with the posts that are newer than a cursor.
+     *
+     * @param cursor The cursor.
+     * @return The position.
+     */
+    public static ListPosition after(PostCursor cursor) {
+        return new ListPosition(0, cursor, false);
+    }
+
+    /**
+     * Return the position from the request parameters.
+     *
+     * @param page The page number.
+     * @param before The token of the cursor to return older posts from, or null.
+     * @param after The token of the cursor to return newer posts from, or null.
+     * @return The position.
+     * @throws IllegalArgumentException If a token is not valid.
+     */
+    public static ListPosition of(int page, String before, String after) {
+        if (before != null) {
+            return before(PostCursor.fromToken(before));
+        } else if (after != null) {
+            return after(PostCursor.fromToken(after));
+        }
+
+        return page(page);
+    }
+}
@@ -0,0 +1,39 @@
+package net.mavroprovato.springcms.dto;
+
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+
+/**
+ * The position of a post in a list of posts ordered by publication date. It is used as the cursor of keyset
+ * pagination, and it is passed in URLs as an opaque token.
+ */
+@Value
+public final class PostCursor {
+
+    /** The post publication date */
+    private final OffsetDateTime publishedAt;
+
+    /** The post identifier, used to order the posts that were published at the same time */
+    private final int id;
+
+    /**
+     * Return the token for the cursor.
+     *
+     * @return The URL safe token.
+     */
+    public String toToken() {
+        return CursorTokens.encode(publishedAt, id);
+    }
+
+    /**
+     * Create a cursor from its token.
+     *
+     * @param token The token.
+     * @return The cursor.
+     * @throws IllegalArgumentException If the token is not valid.
+     */
+    public static PostCursor fromToken(String token) {
+        return CursorTokens.decode(token, PostCursor::new);
+    }
+}
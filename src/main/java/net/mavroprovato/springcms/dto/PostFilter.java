@@ -0,0 +1,66 @@
+package net.mavroprovato.springcms.dto;
+
+import lombok.Value;
+import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.Tag;
+
+import java.time.OffsetDateTime;
+
+/**
+ * The criteria that select the published posts of a post list.
+ */
+@Value
+public final class PostFilter {
+
+    /** The start of the publication date range, or null for all posts */
+    private final OffsetDateTime startDateTime;
+
+    /** The end of the publication date range, or null for all posts */
+    private final OffsetDateTime endDateTime;
+
+    /** The tag of the posts, or null */
+    private final Tag tag;
+
+    /** The category of the posts, or null */
+    private final Category category;
+
+    /**
+     * Select all published posts.
+     *
+     * @return The filter.
+     */
+    public static PostFilter all() {
+        return new PostFilter(null, null, null, null);
+    }
+
+    /**
+     * Select the posts published between two dates.
+     *
+     * @param startDateTime The start date.
+     * @param endDateTime The end date.
+     * @return The filter.
+     */
+    public static PostFilter publishedBetween(OffsetDateTime startDateTime, OffsetDateTime endDateTime) {
+        return new PostFilter(startDateTime, endDateTime, null, null);
+    }
+
+    /**
+     * Select the posts with a tag.
+     *
+     * @param tag The tag.
+     * @return The filter.
+     */
+    public static PostFilter tagged(Tag tag) {
+        return new PostFilter(null, null, tag, null);
+    }
+
+    /**
+     * Select the posts under a category.
+     *
+     * @param category The category.
+     * @return The filter.
+     */
+    public static PostFilter categorized(Category category) {
+        return new PostFilter(null, null, null, category);
+    }
+}
@@ -0,0 +1,56 @@
+package net.mavroprovato.springcms.dto;
+
+import lombok.Value;
+import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.Tag;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * The part of a post that is displayed in post lists. It is loaded with a projection query, so the post content is
+ * never read from the database. The search results are created from the fields that are stored in the search index
+ * instead.
+ */
+@Value
+public final class PostSummary {
+
+    /** The post identifier */
+    private final int id;
+
+    /** The post slug */
+    private final String slug;
+
+    /** The post title */
+    private final String title;
+
+    /** The post publication date */
+    private final OffsetDateTime publishedAt;
+
+    /** The user name of the post author */
+    private final String authorName;
+
+    /** The beginning of the post content */
+    private final String excerpt;
+
+    /**
+     * The number of comments of the post, or null if it is not known. The search results are read from the search
+     * index, which does not have the comment count, as it changes without the post being indexed again.
+     */
+    private final Long commentCount;
+
+    /** The post tags, ordered by name */
+    private final List<Tag> tags;
+
+    /** The post categories, ordered by name */
+    private final List<Category> categories;
+
+    /**
+     * Return the cursor that points to the post.
+     *
+     * @return The cursor.
+     */
+    public PostCursor toCursor() {
+        return new PostCursor(publishedAt, id);
+    }
+}
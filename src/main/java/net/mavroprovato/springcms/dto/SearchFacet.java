@@ -0,0 +1,21 @@
+package net.mavroprovato.springcms.dto;
+
+import lombok.Value;
+
+/**
+ * A value of a search facet, along with the number of search results that have it.
+ *
+ * @param <T> The type of the value.
+ */
+@Value
+public final class SearchFacet<T> {
+
+    /** The facet value */
+    private final T value;
+
+    /** The number of search results with the value */
+    private final int count;
+
+    /** True if the search results are refined with the value */
+    private final boolean selected;
+}
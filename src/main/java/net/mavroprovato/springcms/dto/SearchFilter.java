@@ -0,0 +1,88 @@
+package net.mavroprovato.springcms.dto;
+
+import lombok.Value;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The criteria of a full text search: the query, and the facet values that the results are refined with.
+ */
+@Value
+public final class SearchFilter {
+
+    /** The query string */
+    private final String query;
+
+    /** The identifiers of the tags that the posts must have */
+    private final List<Integer> tags;
+
+    /** The identifiers of the categories that the posts must belong to */
+    private final List<Integer> categories;
+
+    /** The month that the posts must be published in, or null */
+    private final YearMonth month;
+
+    /**
+     * Create a search filter.
+     *
+     * @param query The query string.
+     * @param tags The identifiers of the tags that the posts must have, or null.
+     * @param categories The identifiers of the categories that the posts must belong to, or null.
+     * @param month The month that the posts must be published in, or null.
+     */
+    public SearchFilter(String query, List<Integer> tags, List<Integer> categories, YearMonth month) {
+        this.query = query;
+        this.tags = tags == null ? Collections.emptyList() : Collections.unmodifiableList(tags);
+        this.categories = categories == null ? Collections.emptyList() : Collections.unmodifiableList(categories);
+        this.month = month;
+    }
+
+    /**
+     * Return the filter with a tag added, or removed if it is already selected.
+     *
+     * @param id The tag identifier.
+     * @return The filter.
+     */
+    public SearchFilter toggleTag(int id) {
+        return new SearchFilter(query, toggle(tags, id), categories, month);
+    }
+
+    /**
+     * Return the filter with a category added, or removed if it is already selected.
+     *
+     * @param id The category identifier.
+     * @return The filter.
+     */
+    public SearchFilter toggleCategory(int id) {
+        return new SearchFilter(query, tags, toggle(categories, id), month);
+    }
+
+    /**
+     * Return the filter with a month selected, or with no month if it is already selected.
+     *
+     * @param month The month.
+     * @return The filter.
+     */
+    public SearchFilter toggleMonth(YearMonth month) {
+        return new SearchFilter(query, tags, categories, month.equals(this.month) ? null : month);
+    }
+
+    /**
+     * Add an identifier to a list, or remove it if the list contains it.
+     *
+     * @param ids The identifiers.
+     * @param id The identifier.
+     * @return The new list.
+     */
+    private static List<Integer> toggle(List<Integer> ids, int id) {
+        List<Integer> toggled = new ArrayList<>(ids);
+        if (!toggled.remove(Integer.valueOf(id))) {
+            toggled.add(id);
+        }
+
+        return toggled;
+    }
+}
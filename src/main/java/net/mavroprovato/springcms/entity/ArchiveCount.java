@@ -0,0 +1,65 @@
+package net.mavroprovato.springcms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import java.io.Serializable;
+
+/**
+ * The number of published posts per month. The counts are maintained when posts are written, so that the archives
+ * can be displayed without scanning the content table.
+ */
+@Entity
+@IdClass(ArchiveCount.Key.class)
+@NoArgsConstructor
+public class ArchiveCount {
+
+    /**
+     * The primary key of the archive count.
+     */
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        /** The year */
+        private int year;
+        /** The month of year, from 1 (January) to 12 (December) */
+        private int month;
+    }
+
+    /** The year */
+    @Id
+    @Column(name = "archive_year")
+    @Getter
+    private int year;
+
+    /** The month of year, from 1 (January) to 12 (December) */
+    @Id
+    @Column(name = "archive_month")
+    @Getter
+    private int month;
+
+    /** The number of posts published in the month */
+    @Column(nullable = false)
+    @Getter
+    private long postCount;
+
+    /**
+     * Create the archive count.
+     *
+     * @param year The year.
+     * @param month The month of year, from 1 (January) to 12 (December).
+     * @param postCount The number of posts published in the month.
+     */
+    public ArchiveCount(int year, int month, long postCount) {
+        this.year = year;
+        this.month = month;
+        this.postCount = postCount;
+    }
+}
@@ -1,8 +1,15 @@
 package net.mavroprovato.springcms.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Facet;
+import org.hibernate.search.annotations.Field;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -15,12 +22,14 @@ import java.util.Objects;
  * Categories for content
  */
 @Entity
-public class Category {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+public class Category implements Term {
 
     /** The unique identifier of the category */
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
-    @Getter
+    @Getter @Setter
     private Integer id;
 
     /** The category name */
@@ -42,4 +51,25 @@ public class Category {
     @ManyToOne
     @Getter @Setter
     private Category parent;
+
+    /**
+     * The number of published posts in the category. It is adjusted with SQL by the {@code CounterMaintainer} when the
+     * counted entities are written, so Hibernate never writes it.
+     */
+    @Column(name = "post_count", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    @Getter
+    private long postCount;
+
+    /**
+     * Return the value that identifies the category in the search facets of the posts.
+     *
+     * @return The facet value.
+     */
+    @Field(analyze = Analyze.NO)
+    @Facet
+    @JsonIgnore
+    public String getFacet() {
+        return TermsBridge.encode(this);
+    }
 }
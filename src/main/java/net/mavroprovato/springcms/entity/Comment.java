@@ -2,7 +2,6 @@ package net.mavroprovato.springcms.entity;
 
 import lombok.Getter;
 import lombok.Setter;
-import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.Type;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.validator.constraints.URL;
@@ -12,22 +11,41 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 
 /**
  * A comment on a content item
  */
 @Entity
+@Table(indexes = {
+        @Index(columnList = "post_id, createdAt, id"),
+        @Index(columnList = "updatedAt")
+})
 public class Comment {
 
-    /** The unique identifier of the comment */
+    /** The name of the sequence that generates the identifiers */
+    public static final String ID_SEQUENCE = "comment_id_seq";
+
+    /** The number of identifiers that are allocated with each call to the sequence */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * The unique identifier of the comment. It is allocated from a sequence in blocks, so that new comments can be
+     * inserted with JDBC batches.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     @Getter
     private Integer id;
 
@@ -61,9 +79,11 @@ public class Comment {
     @Getter @Setter
     private String webSite;
 
-    /** The comment creation date */
+    /**
+     * The comment creation date. It is truncated to microseconds, the precision of the database, so that the cursor
+     * that points to a new comment matches the stored date.
+     */
     @Column(nullable = false)
-    @CreationTimestamp
     @Getter
     private OffsetDateTime createdAt;
 
@@ -73,9 +93,29 @@ public class Comment {
     @Getter
     private OffsetDateTime updatedAt;
 
+    /**
+     * Set the creation date of a comment, such as an imported one, before it is persisted. The date is truncated to
+     * microseconds, like the creation date of new comments.
+     *
+     * @param createdAt The creation date.
+     */
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt == null ? null : createdAt.truncatedTo(ChronoUnit.MICROS);
+    }
+
     /** The post that this comment belong to */
     @ManyToOne
     @JoinColumn
     @Getter @Setter
     private Post post;
+
+    /**
+     * Set the creation date of a new comment.
+     */
+    @PrePersist
+    void setCreationDate() {
+        if (createdAt == null) {
+            createdAt = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        }
+    }
 }
@@ -2,17 +2,24 @@ package net.mavroprovato.springcms.entity;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import java.time.OffsetDateTime;
 
 /**
  * Mapping for configuration parameters
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class ConfigurationParameter {
 
     /** The unique identifier of the content */
@@ -30,4 +37,10 @@ public class ConfigurationParameter {
     @Column(nullable = false)
     @Getter @Setter
     private String value;
+
+    /** The time that the configuration parameter was created or last modified */
+    @UpdateTimestamp
+    @Column(columnDefinition = "timestamp default current_timestamp not null")
+    @Getter
+    private OffsetDateTime updatedAt;
 }
@@ -1,12 +1,20 @@
 package net.mavroprovato.springcms.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.Type;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Facet;
 import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.IndexedEmbedded;
+import org.hibernate.search.annotations.Store;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.DiscriminatorColumn;
 import javax.persistence.DiscriminatorType;
@@ -20,29 +28,49 @@ import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 
 /**
- * Object mapping for content items.
+ * Object mapping for content items. The second level cache is configured here, as Hibernate caches an entity
+ * hierarchy in the region of its root entity, so it covers both posts and pages.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(indexes = {
-        @Index(columnList = "type, status, publishedAt")
+        @Index(columnList = "type, status, publishedAt, id"),
+        @Index(columnList = "updatedAt")
 })
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(discriminatorType = DiscriminatorType.STRING, name = "type")
 abstract class Content {
 
-    /** The unique identifier of the content */
+    /** The maximum length of the excerpt */
+    public static final int EXCERPT_LENGTH = 300;
+
+    /** The name of the sequence that generates the identifiers */
+    public static final String ID_SEQUENCE = "content_id_seq";
+
+    /** The number of identifiers that are allocated with each call to the sequence */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * The unique identifier of the content. It is allocated from a sequence in blocks, so that new content items can be
+     * inserted with JDBC batches.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     @Getter
     private Integer id;
 
     /** The content item title */
     @Column(nullable = false)
-    @Field
+    @Field(store = Store.YES)
     @Getter @Setter
     private String title;
 
@@ -50,17 +78,25 @@ abstract class Content {
     @Column(nullable = false)
     @Type(type = "org.hibernate.type.TextType")
     @Field
-    @Getter @Setter
+    @Getter
     private String content;
 
+    /** The beginning of the content, stored so that lists can display it without loading the content */
+    @Column(length = EXCERPT_LENGTH)
+    @Field(analyze = Analyze.NO, store = Store.YES)
+    @Getter
+    private String excerpt;
+
     /** The content status */
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
+    @Field(analyze = Analyze.NO)
     @Getter @Setter
     private ContentStatus status = ContentStatus.DRAFT;
 
     /** The content item slug */
     @Column(unique = true)
+    @Field(analyze = Analyze.NO, store = Store.YES)
     @Getter @Setter
     private String slug;
 
@@ -78,11 +114,69 @@ abstract class Content {
 
     /** The content item publication date */
     @Column
+    @Field(analyze = Analyze.NO, store = Store.YES)
     @Getter @Setter
     private OffsetDateTime publishedAt;
 
     /** The author of the content item */
     @ManyToOne(optional = false)
+    @IndexedEmbedded(includePaths = "userName")
     @Getter @Setter
     private User author;
+
+    /**
+     * Set the content, along with the excerpt.
+     *
+     * @param content The content.
+     */
+    public void setContent(String content) {
+        this.content = content;
+        this.excerpt = excerpt(content);
+    }
+
+    /**
+     * Set the excerpt from the content, for the content items that were stored before excerpts were introduced.
+     */
+    public void fillExcerpt() {
+        this.excerpt = excerpt(content);
+    }
+
+    /**
+     * Return the month of the publication date, in UTC, which is indexed as a search facet.
+     *
+     * @return The month in the ISO format, for example 2018-12, or null if the content item is not published.
+     */
+    @Field(analyze = Analyze.NO)
+    @Facet
+    @JsonIgnore
+    public String getPublishedMonth() {
+        if (publishedAt == null) {
+            return null;
+        }
+
+        return YearMonth.from(publishedAt.withOffsetSameInstant(ZoneOffset.UTC)).toString();
+    }
+
+    /**
+     * Create the excerpt of a content. The whitespace is collapsed, and long content is cut at a word boundary.
+     *
+     * @param content The content.
+     * @return The excerpt.
+     */
+    private static String excerpt(String content) {
+        if (content == null) {
+            return null;
+        }
+        String text = content.trim().replaceAll("\\s+", " ");
+        if (text.length() <= EXCERPT_LENGTH) {
+            return text;
+        }
+        // Leave room for the ellipsis
+        int end = text.lastIndexOf(' ', EXCERPT_LENGTH - 1);
+        if (end <= 0) {
+            end = EXCERPT_LENGTH - 1;
+        }
+
+        return text.substring(0, end) + "\u2026";
+    }
 }
@@ -0,0 +1,30 @@
+package net.mavroprovato.springcms.entity;
+
+import lombok.Getter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.OffsetDateTime;
+
+/**
+ * The time that a post, a page or a comment was last deleted. Deletions do not leave an update date behind, so this
+ * single row stamp is what lets the nodes notice the deletions made by other nodes, without counting the content. It is
+ * written with SQL by the {@code ContentDeletionRecorder} when content is deleted.
+ */
+@Entity
+public class ContentDeletion {
+
+    /** The identifier of the single row */
+    public static final int ID = 1;
+
+    /** The unique identifier of the row */
+    @Id
+    @Getter
+    private int id;
+
+    /** The time that content was last deleted */
+    @Column(nullable = false)
+    @Getter
+    private OffsetDateTime deletedAt;
+}
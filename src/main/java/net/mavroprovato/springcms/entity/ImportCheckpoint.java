@@ -0,0 +1,46 @@
+package net.mavroprovato.springcms.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.OffsetDateTime;
+
+/**
+ * The progress of an import. It is updated in the same transaction as each imported chunk, so an interrupted import
+ * resumes exactly after the last chunk that was committed.
+ */
+@Entity
+@NoArgsConstructor
+public class ImportCheckpoint {
+
+    /** The import source, the absolute path of the imported file */
+    @Id
+    @Column(length = 1024)
+    @Getter
+    private String source;
+
+    /** The number of records of the source that have been imported */
+    @Column(nullable = false)
+    @Getter @Setter
+    private long position;
+
+    /** The checkpoint update date */
+    @Column(nullable = false)
+    @UpdateTimestamp
+    @Getter
+    private OffsetDateTime updatedAt;
+
+    /**
+     * Create the checkpoint for an import source.
+     *
+     * @param source The import source.
+     */
+    public ImportCheckpoint(String source) {
+        this.source = source;
+    }
+}
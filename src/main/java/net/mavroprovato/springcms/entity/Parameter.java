@@ -10,6 +10,8 @@ public enum Parameter {
     SUBTITLE("Subtitle", String.class),
     /** How many posts to display in the list page. */
     POSTS_PER_PAGE(10, Integer.class),
+    /** How many comments to display in the post page, and every time more comments are loaded. */
+    COMMENTS_PER_PAGE(50, Integer.class),
     /** The site absolute URL */
     SITE_URL("", String.class);
 
@@ -2,15 +2,25 @@ package net.mavroprovato.springcms.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.FieldBridge;
 import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.IndexedEmbedded;
+import org.hibernate.search.annotations.Store;
 
+import javax.persistence.Column;
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
-import javax.persistence.FetchType;
 import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -18,13 +28,39 @@ import java.util.List;
 import java.util.Set;
 
 /**
- * Object mapping for post.
+ * Object mapping for post. The tags and the categories are loaded lazily. The single post view loads them along with
+ * the post through the {@link #DETAIL_GRAPH} entity graph, while views that display many posts load them in batches.
+ * The search index stores everything that the search results display, along with the tags and the categories, which
+ * are also indexed as search facets and filters.
  */
 @Entity
 @DiscriminatorValue(ContentType.Values.POST)
 @Indexed
+@NamedEntityGraph(name = Post.DETAIL_GRAPH, attributeNodes = {
+        @NamedAttributeNode("author"),
+        @NamedAttributeNode("tags"),
+        @NamedAttributeNode("categories")
+})
 public class Post extends Content {
 
+    /** The entity graph that loads everything that is displayed in the single post view, except the comments */
+    public static final String DETAIL_GRAPH = "Post.detail";
+
+    /**
+     * The number of posts for which the tags or the categories are loaded with one statement, when they are accessed
+     * for a list of posts.
+     */
+    private static final int TERM_BATCH_SIZE = 100;
+
+    /**
+     * The number of comments of the post. It is adjusted with SQL by the {@code CounterMaintainer} when the
+     * counted entities are written, so Hibernate never writes it.
+     */
+    @Column(name = "comment_count", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    @Getter
+    private long commentCount;
+
     /** The post comments */
     @OneToMany(mappedBy = "post")
     @Getter
@@ -32,7 +68,7 @@ public class Post extends Content {
     private List<Comment> comments = new ArrayList<>();
 
     /** The tags applied to the post */
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany
     @JoinTable(
             joinColumns = @JoinColumn(name = "post_id"),
             inverseJoinColumns = @JoinColumn(name = "tag_id"),
@@ -41,11 +77,15 @@ public class Post extends Content {
                     @Index(columnList = "tag_id")
             }
     )
+    @BatchSize(size = TERM_BATCH_SIZE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @Field(analyze = Analyze.NO, store = Store.YES, bridge = @FieldBridge(impl = TermsBridge.class))
+    @IndexedEmbedded(includePaths = "facet", includeEmbeddedObjectId = true)
     @Getter
     private Set<Tag> tags = new HashSet<>();
 
     /** The categories that this post belongs to */
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany
     @JoinTable(
             joinColumns = @JoinColumn(name = "post_id"),
             inverseJoinColumns = @JoinColumn(name = "category_id"),
@@ -54,6 +94,10 @@ public class Post extends Content {
                     @Index(columnList = "category_id")
             }
     )
+    @BatchSize(size = TERM_BATCH_SIZE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @Field(analyze = Analyze.NO, store = Store.YES, bridge = @FieldBridge(impl = TermsBridge.class))
+    @IndexedEmbedded(includePaths = "facet", includeEmbeddedObjectId = true)
     @Getter
     private Set<Category> categories = new HashSet<>();
 }
@@ -1,8 +1,15 @@
 package net.mavroprovato.springcms.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Facet;
+import org.hibernate.search.annotations.Field;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -15,7 +22,9 @@ import java.util.Objects;
  * Tags for content
  */
 @Entity
-public class Tag {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+public class Tag implements Term {
 
     /** The unique identifier of the tag */
     @Id
@@ -39,4 +48,25 @@ public class Tag {
     @Column()
     @Getter @Setter
     private String description;
+
+    /**
+     * The number of published posts with the tag. It is adjusted with SQL by the {@code CounterMaintainer} when the
+     * counted entities are written, so Hibernate never writes it.
+     */
+    @Column(name = "post_count", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    @Getter
+    private long postCount;
+
+    /**
+     * Return the value that identifies the tag in the search facets of the posts.
+     *
+     * @return The facet value.
+     */
+    @Field(analyze = Analyze.NO)
+    @Facet
+    @JsonIgnore
+    public String getFacet() {
+        return TermsBridge.encode(this);
+    }
 }
@@ -0,0 +1,49 @@
+package net.mavroprovato.springcms.entity;
+
+/**
+ * A term that classifies posts: a tag or a category.
+ */
+public interface Term {
+
+    /**
+     * Return the unique identifier of the term.
+     *
+     * @return The identifier.
+     */
+    Integer getId();
+
+    /**
+     * Set the unique identifier of the term.
+     *
+     * @param id The identifier.
+     */
+    void setId(Integer id);
+
+    /**
+     * Return the term name.
+     *
+     * @return The name.
+     */
+    String getName();
+
+    /**
+     * Set the term name.
+     *
+     * @param name The name.
+     */
+    void setName(String name);
+
+    /**
+     * Return the term slug.
+     *
+     * @return The slug.
+     */
+    String getSlug();
+
+    /**
+     * Set the term slug.
+     *
+     * @param slug The slug.
+     */
+    void setSlug(String slug);
+}
@@ -0,0 +1,83 @@
+package net.mavroprovato.springcms.entity;
+
+import org.apache.lucene.document.Document;
+import org.hibernate.search.bridge.FieldBridge;
+import org.hibernate.search.bridge.LuceneOptions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Stores the tags or the categories of a post in the search index, so that the search results can display them without
+ * loading them from the database. Each term is stored as one value of the field, with its identifier, its slug and its
+ * name, ordered by name. The same value identifies the term in the search facets.
+ */
+public class TermsBridge implements FieldBridge {
+
+    /** The separator of the term properties in the stored values */
+    private static final char SEPARATOR = '\t';
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set(String name, Object value, Document document, LuceneOptions luceneOptions) {
+        if (value == null) {
+            return;
+        }
+        ((Collection<?>) value).stream()
+                .map(Term.class::cast)
+                .sorted(Comparator.comparing(Term::getName))
+                .forEach(term -> luceneOptions.addFieldToDocument(name, encode(term), document));
+    }
+
+    /**
+     * Return the stored value of a term.
+     *
+     * @param term The term.
+     * @return The stored value.
+     */
+    static String encode(Term term) {
+        return term.getId() + String.valueOf(SEPARATOR) + (term.getSlug() == null ? "" : term.getSlug()) +
+                SEPARATOR + term.getName();
+    }
+
+    /**
+     * Create the terms from their stored values. The terms are not managed, they only hold the stored properties.
+     *
+     * @param values The stored values.
+     * @param factory Creates an empty term.
+     * @param <T> The term type.
+     * @return The terms, in the order of the values.
+     */
+    public static <T extends Term> List<T> decode(String[] values, Supplier<T> factory) {
+        List<T> terms = new ArrayList<>(values.length);
+        for (String value : values) {
+            terms.add(decode(value, factory));
+        }
+
+        return terms;
+    }
+
+    /**
+     * Create a term from its stored value. The term is not managed, it only holds the stored properties.
+     *
+     * @param value The stored value.
+     * @param factory Creates an empty term.
+     * @param <T> The term type.
+     * @return The term.
+     */
+    public static <T extends Term> T decode(String value, Supplier<T> factory) {
+        int slugStart = value.indexOf(SEPARATOR) + 1;
+        int nameStart = value.indexOf(SEPARATOR, slugStart) + 1;
+        T term = factory.get();
+        term.setId(Integer.valueOf(value.substring(0, slugStart - 1)));
+        term.setSlug(nameStart - 1 == slugStart ? null : value.substring(slugStart, nameStart - 1));
+        term.setName(value.substring(nameStart));
+
+        return term;
+    }
+}
@@ -3,9 +3,15 @@ package net.mavroprovato.springcms.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.Store;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
@@ -20,6 +26,8 @@ import java.util.Objects;
  * Application users
  */
 @Entity(name = "app_user")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class User {
 
     /** The unique identifier of the user */
@@ -30,6 +38,7 @@ public class User {
 
     /** The user name */
     @Column(nullable = false, unique = true)
+    @Field(analyze = Analyze.NO, store = Store.YES)
     @Getter @Setter
     private String userName;
 
@@ -0,0 +1,90 @@
+package net.mavroprovato.springcms.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Event that is published after a transaction that has inserted, updated or deleted an entity has been committed.
+ */
+public class EntityChangedEvent extends ApplicationEvent {
+
+    /**
+     * The kind of change that was applied to the entity.
+     */
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+
+    /** The kind of change */
+    @Getter
+    private final Type type;
+
+    /** The class of the entity that was changed */
+    @Getter
+    private final Class<?> entityClass;
+
+    /** The entity identifier */
+    @Getter
+    private final Serializable id;
+
+    /** The entity, as it was when the transaction was committed, or null if it was modified with SQL */
+    @Getter
+    private final Object entity;
+
+    /** The previous values of the properties that were modified, keyed by property name. Empty unless this is an
+     * update. */
+    private final Map<String, Object> previousValues;
+
+    /**
+     * Create the event.
+     *
+     * @param source The object that published the event.
+     * @param type The kind of change.
+     * @param entityClass The class of the entity that was changed.
+     * @param id The entity identifier.
+     * @param entity The entity.
+     * @param previousValues The previous values of the modified properties.
+     */
+    public EntityChangedEvent(Object source, Type type, Class<?> entityClass, Serializable id, Object entity,
+                              Map<String, Object> previousValues) {
+        super(source);
+        this.type = type;
+        this.entityClass = entityClass;
+        this.id = id;
+        this.entity = entity;
+        this.previousValues = Collections.unmodifiableMap(previousValues);
+    }
+
+    /**
+     * Check if the changed entity is of the provided type.
+     *
+     * @param type The type to check.
+     * @return True if the entity is an instance of the type.
+     */
+    public boolean isAbout(Class<?> type) {
+        return type.isAssignableFrom(entityClass);
+    }
+
+    /**
+     * Check if a property was modified by the change. Inserts and deletes are considered to modify all properties.
+     *
+     * @param property The property name.
+     * @return True if the property was modified.
+     */
+    public boolean isModified(String property) {
+        return type != Type.UPDATE || previousValues.containsKey(property);
+    }
+
+    /**
+     * Return the previous values of the properties that were modified by an update, keyed by property name.
+     *
+     * @return The previous property values.
+     */
+    public Map<String, Object> getPreviousValues() {
+        return previousValues;
+    }
+}
@@ -0,0 +1,27 @@
+package net.mavroprovato.springcms.repository;
+
+import net.mavroprovato.springcms.dto.CountByMonth;
+import net.mavroprovato.springcms.entity.ArchiveCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+/**
+ * The archive count repository.
+ */
+public interface ArchiveCountRepository extends JpaRepository<ArchiveCount, ArchiveCount.Key> {
+
+    /**
+     * Return the number of posts that where published per month, for the months that have published posts.
+     *
+     * @return The number of posts that where published per month, latest month first.
+     */
+    @Query(
+        "SELECT new net.mavroprovato.springcms.dto.CountByMonth(a.year, a.month, a.postCount) " +
+        "FROM ArchiveCount a " +
+        "WHERE a.postCount > 0 " +
+        "ORDER BY a.year DESC, a.month DESC"
+    )
+    List<CountByMonth> findAllCounts();
+}
@@ -2,7 +2,10 @@ package net.mavroprovato.springcms.repository;
 
 import net.mavroprovato.springcms.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,8 +18,18 @@ public interface CategoryRepository extends JpaRepository<Category, Integer> {
      *
      * @return All categories ordered by name.
      */
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Category> findAllByOrderByNameAsc();
 
+    /**
+     * Return the identifier of a category by its slug.
+     *
+     * @param slug The slug.
+     * @return The category identifier.
+     */
+    @Query("SELECT c.id FROM Category c WHERE c.slug = ?1")
+    Optional<Integer> findIdBySlug(String slug);
+
     /**
      * Find a tag by slug.
      *
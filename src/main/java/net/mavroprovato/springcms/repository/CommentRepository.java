@@ -1,18 +1,49 @@
 package net.mavroprovato.springcms.repository;
 
 import net.mavroprovato.springcms.entity.Comment;
-import org.springframework.data.domain.Page;
+import net.mavroprovato.springcms.entity.Post;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
 
 /**
  * The comment repository
  */
-public interface CommentRepository extends JpaRepository<Comment, Integer> {
+public interface CommentRepository extends JpaRepository<Comment, Integer>, CommentRepositoryCustom {
 
+    /**
+     * Return a slice of the comments of published posts, along with their posts. The total number of comments is not
+     * counted.
+     *
+     * @param pageable The pagination parameters.
+     * @return The comment slice.
+     */
+    @EntityGraph(attributePaths = "post")
     @Query(
             "SELECT c FROM Comment c WHERE c.post.status = 'PUBLISHED'"
     )
-    Page<Comment> findPublished(Pageable pageable);
+    Slice<Comment> findPublished(Pageable pageable);
+
+    /**
+     * Return the latest update date of all comments.
+     *
+     * @return The latest update date, or null if there are no comments.
+     */
+    @Query("SELECT MAX(c.updatedAt) FROM Comment c")
+    OffsetDateTime findLastUpdatedAt();
+
+    /**
+     * Delete the comments of a post. The comments are loaded and deleted one by one, so that the entity listeners are
+     * notified of each deletion.
+     *
+     * @param post The post.
+     * @return The number of deleted comments.
+     */
+    @Transactional
+    long deleteByPost(Post post);
 }
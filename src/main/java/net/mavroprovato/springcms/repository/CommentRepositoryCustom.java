@@ -0,0 +1,24 @@
+package net.mavroprovato.springcms.repository;
+
+import net.mavroprovato.springcms.dto.CommentCursor;
+import net.mavroprovato.springcms.entity.Comment;
+
+import java.util.List;
+
+/**
+ * Comment repository methods that are implemented manually.
+ */
+public interface CommentRepositoryCustom {
+
+    /**
+     * Return the comments of a post, with keyset pagination. The comments are ordered by creation date and
+     * identifier, starting from the cursor position.
+     *
+     * @param postId The post identifier.
+     * @param cursor The cursor, or null to start from the first comment.
+     * @param newestFirst True to order the comments newest first, false to order them oldest first.
+     * @param limit The maximum number of comments to return.
+     * @return The comments.
+     */
+    List<Comment> findByPost(int postId, CommentCursor cursor, boolean newestFirst, int limit);
+}
@@ -0,0 +1,45 @@
+package net.mavroprovato.springcms.repository;
+
+import net.mavroprovato.springcms.dto.CommentCursor;
+import net.mavroprovato.springcms.entity.Comment;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.List;
+
+/**
+ * Implementation of the comment repository methods that are implemented manually.
+ */
+public class CommentRepositoryImpl implements CommentRepositoryCustom {
+
+    /** The entity manager */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Comment> findByPost(int postId, CommentCursor cursor, boolean newestFirst, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT c FROM Comment c WHERE c.post.id = :postId");
+        if (cursor != null) {
+            // The page starts at the cursor, so the comment that it points to is included
+            String comparison = newestFirst ? "<" : ">";
+            jpql.append(" AND (c.createdAt ").append(comparison).append(" :cursorCreatedAt OR ")
+                    .append("(c.createdAt = :cursorCreatedAt AND c.id ").append(comparison).append("= :cursorId))");
+        }
+        String direction = newestFirst ? "DESC" : "ASC";
+        jpql.append(" ORDER BY c.createdAt ").append(direction).append(", c.id ").append(direction);
+
+        TypedQuery<Comment> query = entityManager.createQuery(jpql.toString(), Comment.class)
+                .setParameter("postId", postId)
+                .setMaxResults(limit);
+        if (cursor != null) {
+            query.setParameter("cursorCreatedAt", cursor.getCreatedAt());
+            query.setParameter("cursorId", cursor.getId());
+        }
+
+        return query.getResultList();
+    }
+}
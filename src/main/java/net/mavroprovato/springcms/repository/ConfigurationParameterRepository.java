@@ -2,7 +2,9 @@ package net.mavroprovato.springcms.repository;
 
 import net.mavroprovato.springcms.entity.ConfigurationParameter;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.OffsetDateTime;
 import java.util.Optional;
 
 /**
@@ -17,4 +19,14 @@ public interface ConfigurationParameterRepository extends JpaRepository<Configur
      * @return The configuration parameter value.
      */
     Optional<ConfigurationParameter> findOneByName(String name);
+
+    /**
+     * Return the time that a configuration parameter was last created or modified. Together with the number of
+     * parameters, which changes when a parameter is deleted, it forms a stamp that is cheap to compute, so it can be
+     * polled in order to detect if the parameters were modified by another node.
+     *
+     * @return The time of the last modification, or null if there are no parameters.
+     */
+    @Query("SELECT MAX(c.updatedAt) FROM ConfigurationParameter c")
+    OffsetDateTime lastUpdatedAt();
 }
@@ -0,0 +1,21 @@
+package net.mavroprovato.springcms.repository;
+
+import net.mavroprovato.springcms.entity.ContentDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.OffsetDateTime;
+
+/**
+ * The content deletion repository.
+ */
+public interface ContentDeletionRepository extends JpaRepository<ContentDeletion, Integer> {
+
+    /**
+     * Return the time that a post, a page or a comment was last deleted.
+     *
+     * @return The time of the last deletion, or null if no content was ever deleted.
+     */
+    @Query("SELECT MAX(d.deletedAt) FROM ContentDeletion d")
+    OffsetDateTime findLastDeletedAt();
+}
@@ -0,0 +1,10 @@
+package net.mavroprovato.springcms.repository;
+
+import net.mavroprovato.springcms.entity.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * The import checkpoint repository.
+ */
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, String> {
+}
@@ -3,7 +3,10 @@ package net.mavroprovato.springcms.repository;
 import net.mavroprovato.springcms.entity.Page;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,8 +21,26 @@ public interface PageRepository extends JpaRepository<Page, Integer>  {
      * @return The ordered published pages.
      */
     @Query("SELECT p FROM Page p WHERE p.status = 'PUBLISHED' ORDER BY order")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Page> findAll();
 
+    /**
+     * Return the latest update date of all pages.
+     *
+     * @return The latest update date, or null if there are no pages.
+     */
+    @Query("SELECT MAX(p.updatedAt) FROM Page p")
+    OffsetDateTime findLastUpdatedAt();
+
+    /**
+     * Return the identifier of a page by its slug.
+     *
+     * @param slug The slug.
+     * @return The page identifier.
+     */
+    @Query("SELECT p.id FROM Page p WHERE p.slug = ?1")
+    Optional<Integer> findIdBySlug(String slug);
+
     /**
      * Get a page by slug.
      *
@@ -5,8 +5,9 @@ import net.mavroprovato.springcms.entity.Category;
 import net.mavroprovato.springcms.entity.ContentStatus;
 import net.mavroprovato.springcms.entity.Post;
 import net.mavroprovato.springcms.entity.Tag;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
@@ -17,58 +18,97 @@ import java.util.Optional;
 /**
  * The content repository.
  */
-public interface PostRepository extends JpaRepository<Post, Integer> {
+public interface PostRepository extends JpaRepository<Post, Integer>, PostRepositoryCustom {
 
     /**
-     * Return the number of posts that where published per month.
+     * Return the number of posts that where published per month. This scans all published posts, the archive count
+     * repository should be used to display the archives.
      *
      * @return The number of posts that where published per month.
      */
     @Query(
         "SELECT new net.mavroprovato.springcms.dto.CountByMonth(YEAR(p.publishedAt), MONTH(p.publishedAt), COUNT(p)) " +
         "FROM Post p " +
+        "WHERE p.status = 'PUBLISHED' AND p.publishedAt IS NOT NULL " +
         "GROUP BY YEAR(p.publishedAt), MONTH(p.publishedAt) " +
         "ORDER BY YEAR(p.publishedAt) DESC, MONTH(p.publishedAt) DESC"
     )
     List<CountByMonth> countByMonth();
 
     /**
-     * Return a page of posts by status.
+     * Return a slice of posts by status. The total number of posts is not counted, one more post is fetched instead to
+     * find out if there is a next slice.
      *
      * @param status The content item status.
      * @param pageable The pagination parameters.
-     * @return The content item page.
+     * @return The content item slice.
      */
-    Page<Post> findByStatus(ContentStatus status, Pageable pageable);
+    Slice<Post> findByStatus(ContentStatus status, Pageable pageable);
 
     /**
-     * Return a page of posts published between two dates.
+     * Return a slice of posts published between two dates.
      *
      * @param startDateTime The start dates.
      * @param endDateTime The end dates.
      * @param pageable The pagination parameters.
-     * @return The post page.
+     * @return The post slice.
      */
-    Page<Post> findByStatusAndPublishedAtBetween(ContentStatus status, OffsetDateTime startDateTime,
-                                                 OffsetDateTime endDateTime, Pageable pageable);
+    Slice<Post> findByStatusAndPublishedAtBetween(ContentStatus status, OffsetDateTime startDateTime,
+                                                  OffsetDateTime endDateTime, Pageable pageable);
 
     /**
      * Find posts by status and tag.
      *
      * @param tag The tag.
      * @param pageable The pagination parameters.
-     * @return The post page.
+     * @return The post slice.
      */
-    Page<Post> findByStatusAndTags(ContentStatus status, Tag tag, Pageable pageable);
+    Slice<Post> findByStatusAndTags(ContentStatus status, Tag tag, Pageable pageable);
 
     /**
      * Find post by status and category.
      *
      * @param category The category.
      * @param pageable The pagination parameters.
-     * @return The post page.
+     * @return The post slice.
      */
-    Page<Post> findByStatusAndCategories(ContentStatus status, Category category, Pageable pageable);
+    Slice<Post> findByStatusAndCategories(ContentStatus status, Category category, Pageable pageable);
+
+    /**
+     * Return the latest update date of all posts.
+     *
+     * @return The latest update date, or null if there are no posts.
+     */
+    @Query("SELECT MAX(p.updatedAt) FROM Post p")
+    OffsetDateTime findLastUpdatedAt();
+
+    /**
+     * Return the identifier of a post by its slug.
+     *
+     * @param slug The slug.
+     * @return The post identifier.
+     */
+    @Query("SELECT p.id FROM Post p WHERE p.slug = ?1")
+    Optional<Integer> findIdBySlug(String slug);
+
+    /**
+     * Return a batch of the posts that were stored before excerpts were introduced, ordered by identifier.
+     *
+     * @param afterId Only posts with a greater identifier are returned.
+     * @param pageable The batch size.
+     * @return The posts without an excerpt.
+     */
+    @Query("SELECT p FROM Post p WHERE p.excerpt IS NULL AND p.id > ?1 ORDER BY p.id")
+    List<Post> findWithoutExcerpt(int afterId, Pageable pageable);
+
+    /**
+     * Return a post by its identifier, along with everything that is displayed in the single post view.
+     *
+     * @param id The post identifier.
+     * @return The post.
+     */
+    @EntityGraph(Post.DETAIL_GRAPH)
+    Optional<Post> findDetailById(Integer id);
 
     /**
      * Get a post by slug.
@@ -0,0 +1,35 @@
+package net.mavroprovato.springcms.repository;
+
+import net.mavroprovato.springcms.dto.PostCursor;
+import net.mavroprovato.springcms.dto.PostFilter;
+import net.mavroprovato.springcms.dto.PostSummary;
+
+import java.util.List;
+
+/**
+ * Post repository methods that are implemented manually.
+ */
+public interface PostRepositoryCustom {
+
+    /**
+     * Return the summaries of published posts, with keyset pagination. The posts are ordered by publication date and
+     * identifier, starting from the cursor position.
+     *
+     * @param filter The criteria that select the posts.
+     * @param cursor The cursor, or null to start from the newest post.
+     * @param older True to return the posts that are older than the cursor, newest first. False to return the posts
+     *              that are newer than the cursor, oldest first.
+     * @param offset The number of posts to skip.
+     * @param limit The maximum number of posts to return.
+     * @return The post summaries.
+     */
+    List<PostSummary> findPublished(PostFilter filter, PostCursor cursor, boolean older, int offset, int limit);
+
+    /**
+     * Return the summaries of posts by their identifiers.
+     *
+     * @param ids The post identifiers.
+     * @return The post summaries, in the order of the identifiers. Posts that do not exist are skipped.
+     */
+    List<PostSummary> findSummaries(List<Integer> ids);
+}
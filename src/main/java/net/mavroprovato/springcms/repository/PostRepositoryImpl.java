@@ -0,0 +1,155 @@
+package net.mavroprovato.springcms.repository;
+
+import net.mavroprovato.springcms.dto.PostCursor;
+import net.mavroprovato.springcms.dto.PostFilter;
+import net.mavroprovato.springcms.dto.PostSummary;
+import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.ContentStatus;
+import net.mavroprovato.springcms.entity.Tag;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the post repository methods that are implemented manually.
+ */
+public class PostRepositoryImpl implements PostRepositoryCustom {
+
+    /** The post columns that are selected for the summaries */
+    private static final String SUMMARY_SELECT =
+            "SELECT p.id, p.slug, p.title, p.publishedAt, a.userName, p.excerpt, p.commentCount " +
+            "FROM Post p JOIN p.author a";
+
+    /** The entity manager */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<PostSummary> findPublished(PostFilter filter, PostCursor cursor, boolean older, int offset,
+                                           int limit) {
+        StringBuilder jpql = new StringBuilder(SUMMARY_SELECT);
+        if (filter.getTag() != null) {
+            jpql.append(" JOIN p.tags t");
+        }
+        if (filter.getCategory() != null) {
+            jpql.append(" JOIN p.categories c");
+        }
+        jpql.append(" WHERE p.status = :status AND p.publishedAt IS NOT NULL");
+        if (filter.getStartDateTime() != null) {
+            jpql.append(" AND p.publishedAt BETWEEN :startDateTime AND :endDateTime");
+        }
+        if (filter.getTag() != null) {
+            jpql.append(" AND t = :tag");
+        }
+        if (filter.getCategory() != null) {
+            jpql.append(" AND c = :category");
+        }
+        if (cursor != null) {
+            String comparison = older ? "<" : ">";
+            jpql.append(" AND (p.publishedAt ").append(comparison).append(" :cursorPublishedAt OR ")
+                    .append("(p.publishedAt = :cursorPublishedAt AND p.id ").append(comparison).append(" :cursorId))");
+        }
+        String direction = older ? "DESC" : "ASC";
+        jpql.append(" ORDER BY p.publishedAt ").append(direction).append(", p.id ").append(direction);
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class)
+                .setParameter("status", ContentStatus.PUBLISHED)
+                .setFirstResult(offset)
+                .setMaxResults(limit);
+        if (filter.getStartDateTime() != null) {
+            query.setParameter("startDateTime", filter.getStartDateTime());
+            query.setParameter("endDateTime", filter.getEndDateTime());
+        }
+        if (filter.getTag() != null) {
+            query.setParameter("tag", filter.getTag());
+        }
+        if (filter.getCategory() != null) {
+            query.setParameter("category", filter.getCategory());
+        }
+        if (cursor != null) {
+            query.setParameter("cursorPublishedAt", cursor.getPublishedAt());
+            query.setParameter("cursorId", cursor.getId());
+        }
+
+        return toSummaries(query.getResultList());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<PostSummary> findSummaries(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object[]> rows = entityManager.createQuery(SUMMARY_SELECT + " WHERE p.id IN :ids", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+        Map<Integer, PostSummary> summaries = toSummaries(rows).stream()
+                .collect(Collectors.toMap(PostSummary::getId, Function.identity()));
+
+        return ids.stream().map(summaries::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Create the post summaries from the selected post columns. The tags and the categories of all posts are loaded
+     * with one statement each.
+     *
+     * @param rows The selected post columns.
+     * @return The post summaries, in the order of the rows.
+     */
+    private List<PostSummary> toSummaries(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Integer> ids = rows.stream().map(row -> (Integer) row[0]).collect(Collectors.toList());
+        Map<Integer, List<Tag>> tags = findTerms("tags", Tag.class, ids);
+        Map<Integer, List<Category>> categories = findTerms("categories", Category.class, ids);
+
+        List<PostSummary> summaries = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Integer id = (Integer) row[0];
+            summaries.add(new PostSummary(id, (String) row[1], (String) row[2], (OffsetDateTime) row[3],
+                    (String) row[4], (String) row[5], (Long) row[6], tags.getOrDefault(id, Collections.emptyList()),
+                    categories.getOrDefault(id, Collections.emptyList())));
+        }
+
+        return summaries;
+    }
+
+    /**
+     * Return the tags or the categories of posts.
+     *
+     * @param association The name of the post association.
+     * @param type The term type.
+     * @param ids The post identifiers.
+     * @param <T> The term type.
+     * @return The terms ordered by name, keyed by post identifier.
+     */
+    private <T> Map<Integer, List<T>> findTerms(String association, Class<T> type, List<Integer> ids) {
+        List<Object[]> rows = entityManager.createQuery(
+                "SELECT p.id, t FROM Post p JOIN p." + association + " t WHERE p.id IN :ids ORDER BY t.name",
+                Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+        Map<Integer, List<T>> terms = new HashMap<>();
+        for (Object[] row : rows) {
+            terms.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add(type.cast(row[1]));
+        }
+
+        return terms;
+    }
+}
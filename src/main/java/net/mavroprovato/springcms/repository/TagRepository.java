@@ -2,6 +2,7 @@ package net.mavroprovato.springcms.repository;
 
 import net.mavroprovato.springcms.entity.Tag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.Optional;
 
@@ -10,6 +11,15 @@ import java.util.Optional;
  */
 public interface TagRepository extends JpaRepository<Tag, Integer> {
 
+    /**
+     * Return the identifier of a tag by its slug.
+     *
+     * @param slug The slug.
+     * @return The tag identifier.
+     */
+    @Query("SELECT t.id FROM Tag t WHERE t.slug = ?1")
+    Optional<Integer> findIdBySlug(String slug);
+
     /**
      * Find a tag by slug.
      *
@@ -9,14 +9,17 @@ import net.mavroprovato.springcms.repository.PageRepository;
 import net.mavroprovato.springcms.repository.PostRepository;
 import net.mavroprovato.springcms.repository.TagRepository;
 import net.mavroprovato.springcms.repository.UserRepository;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * The administration service.
@@ -69,6 +72,7 @@ public class AdminService {
      *
      * @return The model for the dashboard page.
      */
+    @Transactional(readOnly = true)
     public Map<String, ?> dashboard() {
         Map<String, Object> model = new HashMap<>();
 
@@ -84,8 +88,13 @@ public class AdminService {
      *
      * @return Posts in order to be displayed in a data table.
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> listPosts(DataTableRequest dataTableRequest) {
-        return getDataTablesModel(dataTableRequest, postRepository);
+        // The tags and categories are displayed in the grid, load them in batches before the transaction ends
+        return getDataTablesModel(dataTableRequest, postRepository, post -> {
+            Hibernate.initialize(post.getTags());
+            Hibernate.initialize(post.getCategories());
+        });
     }
 
     /**
@@ -93,6 +102,7 @@ public class AdminService {
      *
      * @return Pages in order to be displayed in a data table.
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> listPages(DataTableRequest dataTableRequest) {
         return getDataTablesModel(dataTableRequest, pageRepository);
     }
@@ -102,6 +112,7 @@ public class AdminService {
      *
      * @return Categories in order to be displayed in a data table.
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> listCategories(DataTableRequest dataTableRequest) {
         return getDataTablesModel(dataTableRequest, categoryRepository);
     }
@@ -111,6 +122,7 @@ public class AdminService {
      *
      * @return Tags in order to be displayed in a data table.
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> listTags(DataTableRequest dataTableRequest) {
         return getDataTablesModel(dataTableRequest, tagRepository);
     }
@@ -121,6 +133,7 @@ public class AdminService {
      * @param id The tag identifier.
      * @return The page model.
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> tag(Integer id) {
         return tagRepository.findById(id).map(tag -> {
             Map<String, Object> model = new HashMap<>();
@@ -146,17 +159,35 @@ public class AdminService {
      *
      * @return Users in order to be displayed in a data table.
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> listUsers(DataTableRequest dataTableRequest) {
         return getDataTablesModel(dataTableRequest, userRepository);
     }
 
     private Map<String, Object> getDataTablesModel(DataTableRequest dataTableRequest,
                                                    PagingAndSortingRepository<?, ?> repository) {
+        return getDataTablesModel(dataTableRequest, repository, row -> {});
+    }
+
+    /**
+     * Return the model for a data table.
+     *
+     * @param dataTableRequest The data table request.
+     * @param repository The repository that holds the rows.
+     * @param initializer Loads the lazy associations of a row that are displayed in the table.
+     * @param <T> The row type.
+     * @return The data table model.
+     */
+    private <T> Map<String, Object> getDataTablesModel(DataTableRequest dataTableRequest,
+                                                       PagingAndSortingRepository<T, ?> repository,
+                                                       Consumer<T> initializer) {
         Map<String, Object> model = new HashMap<>();
         model.put("draw", dataTableRequest.getDraw());
         model.put("recordsTotal", repository.count());
         model.put("recordsFiltered", repository.count());
-        model.put("data", repository.findAll(dataTableRequest.getPageRequest()).getContent());
+        List<T> rows = repository.findAll(dataTableRequest.getPageRequest()).getContent();
+        rows.forEach(initializer);
+        model.put("data", rows);
 
         return model;
     }
@@ -0,0 +1,93 @@
+package net.mavroprovato.springcms.service;
+
+import net.mavroprovato.springcms.dto.CountByMonth;
+import net.mavroprovato.springcms.entity.ArchiveCount;
+import net.mavroprovato.springcms.repository.ArchiveCountRepository;
+import net.mavroprovato.springcms.repository.PostRepository;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The archive count service. The counts are normally maintained by the {@code ArchiveCountMaintainer} as posts are
+ * written. This service rebuilds them from scratch, in order to repair any drift.
+ */
+@Service
+@Transactional
+public class ArchiveCountService {
+
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(ArchiveCountService.class);
+
+    /**
+     * The statement that locks the archive count table until the end of the transaction. The lock blocks the writes
+     * of the other transactions, but not the reads.
+     */
+    private static final String LOCK_SQL = "LOCK TABLE archive_count IN SHARE ROW EXCLUSIVE MODE";
+
+    /** The entity manager */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /** The archive count repository */
+    private final ArchiveCountRepository archiveCountRepository;
+
+    /** The post repository */
+    private final PostRepository postRepository;
+
+    /**
+     * Create the archive count service.
+     *
+     * @param archiveCountRepository The archive count repository.
+     * @param postRepository The post repository.
+     */
+    @Autowired
+    public ArchiveCountService(ArchiveCountRepository archiveCountRepository, PostRepository postRepository) {
+        this.archiveCountRepository = archiveCountRepository;
+        this.postRepository = postRepository;
+    }
+
+    /**
+     * Build the archive counts when the application starts, if they were never built.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (archiveCountRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuild the archive counts from the posts table. The archive count table is locked first, so that posts that are
+     * written concurrently wait for the rebuild to complete before adjusting the counts. The counts are computed after
+     * the lock is acquired, so they include the posts of the transactions that adjusted them before.
+     */
+    @Scheduled(cron = "${cms.archive.repair-cron:0 30 3 * * *}")
+    public void rebuild() {
+        logger.info("Rebuilding the archive counts.");
+        // The lock is not a query that Hibernate knows about, so it does not invalidate any second level cache region
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(LOCK_SQL);
+            }
+        });
+        List<ArchiveCount> counts = postRepository.countByMonth().stream()
+                .map(c -> new ArchiveCount(c.getMonth().getYear(), c.getMonth().getMonthValue(), c.getCount()))
+                .collect(Collectors.toList());
+        archiveCountRepository.deleteAllInBatch();
+        archiveCountRepository.saveAll(counts);
+        logger.info("Archive counts rebuilt for {} months.", counts.size());
+    }
+}
@@ -0,0 +1,106 @@
+package net.mavroprovato.springcms.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Exposes the hit and miss statistics of the Hibernate second level cache and query cache, so that the cache regions
+ * can be tuned. The statistics are collected when the hibernate.generate_statistics property is set, or after they are
+ * enabled at runtime. Collecting them has a cost for every session, so they can be enabled for the time that the
+ * regions are tuned, on the node that is examined.
+ */
+@Service
+public class CacheStatisticsService {
+
+    /** The message that is reported when the statistics are not collected */
+    private static final String DISABLED_MESSAGE = "The statistics are not collected. Enable them with POST " +
+            "/admin/cache-statistics?enabled=true, or with the hibernate.generate_statistics property.";
+
+    /** The Hibernate statistics */
+    private final Statistics statistics;
+
+    /**
+     * Create the cache statistics service.
+     *
+     * @param entityManagerFactory The entity manager factory.
+     */
+    @Autowired
+    public CacheStatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Start or stop collecting the statistics on this node. The statistics are reset when the collection starts, so
+     * that they only count the activity while they are collected.
+     *
+     * @param enabled True to start collecting the statistics, false to stop.
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        if (enabled && !statistics.isStatisticsEnabled()) {
+            statistics.clear();
+        }
+        statistics.setStatisticsEnabled(enabled);
+    }
+
+    /**
+     * Return the cache statistics.
+     *
+     * @return The totals for the second level cache and the query cache, and the statistics of each cache region.
+     */
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        if (!statistics.isStatisticsEnabled()) {
+            result.put("message", DISABLED_MESSAGE);
+        }
+        result.put("since", statistics.getStartTime());
+        result.put("secondLevelCache", counts(statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount()));
+        result.put("queryCache", counts(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount()));
+
+        Map<String, Object> regions = new TreeMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(regionName);
+            Map<String, Object> regionStatistics = counts(region.getHitCount(), region.getMissCount(),
+                    region.getPutCount());
+            regionStatistics.put("elementsInMemory", region.getElementCountInMemory());
+            regions.put(regionName, regionStatistics);
+        }
+        CacheRegionStatistics queryRegion = statistics.getQueryRegionStatistics(
+                "default-query-results-region");
+        if (queryRegion != null) {
+            regions.put(queryRegion.getRegionName(), counts(queryRegion.getHitCount(), queryRegion.getMissCount(),
+                    queryRegion.getPutCount()));
+        }
+        result.put("regions", regions);
+
+        return result;
+    }
+
+    /**
+     * Return the statistics of a cache.
+     *
+     * @param hits The number of cache hits.
+     * @param misses The number of cache misses.
+     * @param puts The number of cache puts.
+     * @return The statistics.
+     */
+    private static Map<String, Object> counts(long hits, long misses, long puts) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("hits", hits);
+        counts.put("misses", misses);
+        counts.put("puts", puts);
+        counts.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+
+        return counts;
+    }
+}
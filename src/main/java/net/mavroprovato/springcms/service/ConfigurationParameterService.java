@@ -2,49 +2,106 @@ package net.mavroprovato.springcms.service;
 
 import net.mavroprovato.springcms.entity.ConfigurationParameter;
 import net.mavroprovato.springcms.entity.Parameter;
+import net.mavroprovato.springcms.event.EntityChangedEvent;
 import net.mavroprovato.springcms.repository.ConfigurationParameterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.transaction.Transactional;
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
- * The configuration parameter service.
+ * The configuration parameter service. The parameters are held in memory as an immutable snapshot, with their values
+ * already converted to the type of the {@link Parameter}. The snapshot is replaced after a transaction that modified a
+ * parameter commits, or when the version stamp stored in the database shows that another node has modified a
+ * parameter. Reading the parameters does not go through a transaction, since they are read from memory, only the
+ * reload does.
  */
 @Service
-@Transactional
 public class ConfigurationParameterService {
 
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(ConfigurationParameterService.class);
+
     /** The configuration parameter repository. */
     private final ConfigurationParameterRepository configurationParameterRepository;
 
+    /** Runs the reload of the snapshot in its own transaction */
+    private final TransactionTemplate transactionTemplate;
+
+    /** The current snapshot of the configuration parameters */
+    private volatile Snapshot snapshot;
+
+    /**
+     * Immutable snapshot of the configuration parameters.
+     */
+    private static final class Snapshot {
+        /** The version stamp of the parameters when the snapshot was loaded */
+        final String version;
+        /** The typed parameter values, indexed by the parameter ordinal */
+        final Object[] values;
+        /** All parameters as strings, keyed by the parameter name */
+        final Map<String, String> all;
+
+        /**
+         * Create the snapshot.
+         *
+         * @param version The version stamp of the parameters.
+         * @param values The typed parameter values, indexed by the parameter ordinal.
+         * @param all All parameters as strings.
+         */
+        Snapshot(String version, Object[] values, Map<String, String> all) {
+            this.version = version;
+            this.values = values;
+            this.all = all;
+        }
+    }
+
     /**
      * Create the configuration parameter service.
      *
      * @param configurationParameterRepository The configuration parameter repository.
+     * @param transactionManager The transaction manager.
      */
-    public ConfigurationParameterService(ConfigurationParameterRepository configurationParameterRepository) {
+    public ConfigurationParameterService(ConfigurationParameterRepository configurationParameterRepository,
+                                         PlatformTransactionManager transactionManager) {
         this.configurationParameterRepository = configurationParameterRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Load the initial snapshot.
+     */
+    @PostConstruct
+    public void initialize() {
+        refresh();
     }
 
     /**
      * Return all parameters as a map.
      *
-     * @return All parameters as a map.
+     * @return All parameters as an unmodifiable map.
      */
     public Map<String, String> allParameters() {
-        Map<String, String> params = configurationParameterRepository.findAll().stream().collect(
-                Collectors.toMap(ConfigurationParameter::getName, ConfigurationParameter::getValue));
-
-        // Put default values for missing parameters
-        Stream.of(Parameter.values())
-                .filter(p -> !params.containsKey(p.name()))
-                .forEach(p -> params.put(p.name(), p.defaultValue().toString()));
-
-        return params;
+        return snapshot.all;
     }
 
     /**
@@ -54,10 +111,9 @@ public class ConfigurationParameterService {
      * @return The configuration parameter value.
      */
     public String getString(Parameter parameter) {
-        Optional<ConfigurationParameter> configurationParameter = configurationParameterRepository.findOneByName(
-                parameter.name());
+        checkType(parameter, String.class);
 
-        return configurationParameter.map(ConfigurationParameter::getValue).orElse(parameter.defaultValue().toString());
+        return (String) snapshot.values[parameter.ordinal()];
     }
 
     /**
@@ -67,11 +123,134 @@ public class ConfigurationParameterService {
      * @return The configuration parameter value.
      */
     public int getInteger(Parameter parameter) {
-        Optional<ConfigurationParameter> configurationParameter = configurationParameterRepository.findOneByName(
-                parameter.name());
+        checkType(parameter, Integer.class);
 
-        return configurationParameter
-                .map(c -> Integer.valueOf(c.getValue()))
-                .orElse(Integer.valueOf(parameter.defaultValue().toString()));
+        return (Integer) snapshot.values[parameter.ordinal()];
+    }
+
+    /**
+     * Return the version stamp of the parameters that are currently held in memory.
+     *
+     * @return The version stamp.
+     */
+    public String getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * Reload the snapshot when a configuration parameter is modified by this node. The event is published while
+     * Hibernate completes the transaction, so the snapshot is reloaded once the commit is complete, in a new
+     * transaction.
+     *
+     * @param event The entity changed event.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!event.isAbout(ConfigurationParameter.class)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    refreshInNewTransaction();
+                }
+            });
+        } else {
+            refreshInNewTransaction();
+        }
+    }
+
+    /**
+     * Reload the snapshot if the parameters were modified by another node. The check runs on the primary, so that a
+     * node never reloads parameters that are older than the ones it has just written.
+     */
+    @Scheduled(fixedDelayString = "${cms.configuration.refresh-interval:30000}")
+    @Transactional
+    public void checkForUpdates() {
+        if (!versionStamp().equals(snapshot.version)) {
+            logger.info("Configuration parameters were modified, reloading.");
+            refresh();
+        }
+    }
+
+    /**
+     * Load the parameters from the database and replace the snapshot.
+     */
+    private synchronized void refresh() {
+        String version = versionStamp();
+        Map<String, String> stored = configurationParameterRepository.findAll().stream().collect(
+                Collectors.toMap(ConfigurationParameter::getName, ConfigurationParameter::getValue));
+
+        Map<String, String> all = new HashMap<>(stored);
+        Object[] values = new Object[Parameter.values().length];
+        for (Parameter parameter : Parameter.values()) {
+            String value = stored.get(parameter.name());
+            values[parameter.ordinal()] = value == null ? parameter.defaultValue() : convert(parameter, value);
+            // Put default values for missing parameters
+            all.put(parameter.name(), values[parameter.ordinal()].toString());
+        }
+
+        snapshot = new Snapshot(version, values, Collections.unmodifiableMap(all));
+    }
+
+    /**
+     * Load the parameters from the database in a new transaction and replace the snapshot.
+     */
+    private void refreshInNewTransaction() {
+        transactionTemplate.execute(status -> {
+            refresh();
+            return null;
+        });
+    }
+
+    /**
+     * Return a stamp that changes every time a configuration parameter is created, modified or deleted. It is made of
+     * the number of parameters and the time of the last modification.
+     *
+     * @return The version stamp.
+     */
+    private String versionStamp() {
+        OffsetDateTime lastUpdatedAt = configurationParameterRepository.lastUpdatedAt();
+
+        return configurationParameterRepository.count() + "." +
+                (lastUpdatedAt == null ? 0 : ChronoUnit.MICROS.between(Instant.EPOCH, lastUpdatedAt.toInstant()));
+    }
+
+    /**
+     * Convert a stored parameter value to the parameter type.
+     *
+     * @param parameter The configuration parameter.
+     * @param value The stored value.
+     * @return The converted value, or the parameter default value if the stored value cannot be converted.
+     */
+    private Object convert(Parameter parameter, String value) {
+        if (parameter.type() == String.class) {
+            return value;
+        } else if (parameter.type() == Integer.class) {
+            try {
+                return Integer.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Cannot parse the value of {} ({}) as an integer, using the default value.",
+                        parameter, value);
+                return parameter.defaultValue();
+            }
+        }
+
+        throw new IllegalStateException("Unsupported parameter type: " + parameter.type());
+    }
+
+    /**
+     * Check that a parameter is of the expected type.
+     *
+     * @param parameter The configuration parameter.
+     * @param type The expected type.
+     * @throws IllegalArgumentException If the parameter is not of the expected type.
+     */
+    private static void checkType(Parameter parameter, Class<?> type) {
+        if (parameter.type() != type) {
+            throw new IllegalArgumentException("Parameter " + parameter + " is of type " + parameter.type());
+        }
     }
 }
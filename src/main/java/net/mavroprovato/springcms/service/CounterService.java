@@ -0,0 +1,192 @@
+package net.mavroprovato.springcms.service;
+
+import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.Post;
+import net.mavroprovato.springcms.entity.Tag;
+import net.mavroprovato.springcms.event.EntityChangedEvent;
+import org.hibernate.query.NativeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The counter service. The comment counts of the posts and the post counts of the tags and categories are normally
+ * maintained by the {@code CounterMaintainer} as posts and comments are written. This service recounts them, in order
+ * to repair any drift.
+ * <p>
+ * The rows whose counter has drifted are found first. They are then locked, in batches, and recounted by a statement
+ * that runs after the lock is acquired. The transactions that adjust the counters of these rows concurrently either
+ * committed before the lock was acquired, so the recount includes their changes, or they wait for the repair to commit
+ * before applying their relative update. A counter cannot be overwritten with a stale count.
+ * <p>
+ * The repaired entities are not loaded, so the {@link EntityChangedEvent} that is published for each of them has no
+ * entity and no modified properties. It lets the caches that display the entity invalidate it.
+ */
+@Service
+public class CounterService {
+
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(CounterService.class);
+
+    /** The number of rows that are locked and recounted in each transaction */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * The repaired counters.
+     */
+    private enum Counter {
+        /** The number of comments of a post */
+        POST_COMMENTS(Post.class, "content",
+                "SELECT x.id FROM content x LEFT JOIN comment m ON m.post_id = x.id " +
+                "WHERE x.type = 'POST' GROUP BY x.id HAVING x.comment_count <> COUNT(m.id)",
+                "UPDATE content x SET comment_count = " +
+                "(SELECT COUNT(*) FROM comment m WHERE m.post_id = x.id) WHERE x.id IN (:ids)"),
+        /** The number of published posts with a tag */
+        TAG_POSTS(Tag.class, "tag",
+                "SELECT x.id FROM tag x LEFT JOIN content_tags j ON j.tag_id = x.id " +
+                "LEFT JOIN content p ON p.id = j.post_id AND p.type = 'POST' AND p.status = 'PUBLISHED' " +
+                "AND p.published_at IS NOT NULL GROUP BY x.id HAVING x.post_count <> COUNT(p.id)",
+                "UPDATE tag x SET post_count = (SELECT COUNT(*) FROM content_tags j " +
+                "JOIN content p ON p.id = j.post_id WHERE j.tag_id = x.id AND p.type = 'POST' " +
+                "AND p.status = 'PUBLISHED' AND p.published_at IS NOT NULL) WHERE x.id IN (:ids)"),
+        /** The number of published posts in a category */
+        CATEGORY_POSTS(Category.class, "category",
+                "SELECT x.id FROM category x LEFT JOIN content_categories j ON j.category_id = x.id " +
+                "LEFT JOIN content p ON p.id = j.post_id AND p.type = 'POST' AND p.status = 'PUBLISHED' " +
+                "AND p.published_at IS NOT NULL GROUP BY x.id HAVING x.post_count <> COUNT(p.id)",
+                "UPDATE category x SET post_count = (SELECT COUNT(*) FROM content_categories j " +
+                "JOIN content p ON p.id = j.post_id WHERE j.category_id = x.id AND p.type = 'POST' " +
+                "AND p.status = 'PUBLISHED' AND p.published_at IS NOT NULL) WHERE x.id IN (:ids)");
+
+        /** The entity that holds the counter */
+        final Class<?> entityClass;
+        /** The statement that finds the identifiers of the entities whose counter has drifted */
+        final String driftedSql;
+        /** The statement that locks entities */
+        final String lockSql;
+        /** The statement that recounts the counter of entities */
+        final String recountSql;
+
+        /**
+         * Create the counter.
+         *
+         * @param entityClass The entity that holds the counter.
+         * @param table The table of the entity.
+         * @param driftedSql The statement that finds the identifiers of the entities whose counter has drifted.
+         * @param recountSql The statement that recounts the counter of entities.
+         */
+        Counter(Class<?> entityClass, String table, String driftedSql, String recountSql) {
+            this.entityClass = entityClass;
+            this.driftedSql = driftedSql;
+            this.lockSql = "SELECT id FROM " + table + " WHERE id IN (:ids) ORDER BY id FOR UPDATE";
+            this.recountSql = recountSql;
+        }
+    }
+
+    /** The entity manager */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /** Runs each batch of the repair in its own transaction */
+    private final TransactionTemplate transactionTemplate;
+
+    /** Publishes the events for the repaired entities */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** If true, the counters are repaired when the application starts */
+    private final boolean repairOnStartup;
+
+    /**
+     * Create the counter service.
+     *
+     * @param transactionManager The transaction manager.
+     * @param eventPublisher The application event publisher.
+     * @param repairOnStartup If true, the counters are repaired when the application starts.
+     */
+    @Autowired
+    public CounterService(PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                          @Value("${cms.counters.repair-on-startup:false}") boolean repairOnStartup) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.repairOnStartup = repairOnStartup;
+    }
+
+    /**
+     * Repair the counters when the application starts, if it is enabled. This fills the counters of data that was
+     * written while the counters were not maintained, without waiting for the scheduled repair.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (repairOnStartup) {
+            repair();
+        }
+    }
+
+    /**
+     * Recount the counters, and update the ones that have drifted. Only the second level cache regions of the
+     * entities that were updated are evicted.
+     */
+    @Scheduled(cron = "${cms.counters.repair-cron:0 45 3 * * *}")
+    public void repair() {
+        logger.info("Repairing the counters.");
+        int posts = repair(Counter.POST_COMMENTS);
+        int tags = repair(Counter.TAG_POSTS);
+        int categories = repair(Counter.CATEGORY_POSTS);
+        logger.info("Counters repaired for {} posts, {} tags and {} categories.", posts, tags, categories);
+    }
+
+    /**
+     * Recount a counter for the entities whose counter has drifted, and publish their modification when each batch is
+     * committed.
+     *
+     * @param counter The counter.
+     * @return The number of entities that were repaired.
+     */
+    private int repair(Counter counter) {
+        List<Integer> drifted = transactionTemplate.execute(status -> query(counter.driftedSql).getResultList()
+                .stream()
+                .map(id -> ((Number) id).intValue())
+                .collect(Collectors.toList()));
+        int repaired = 0;
+        for (int start = 0; start < drifted.size(); start += BATCH_SIZE) {
+            List<Integer> ids = drifted.subList(start, Math.min(start + BATCH_SIZE, drifted.size()));
+            repaired += transactionTemplate.execute(status -> {
+                query(counter.lockSql).setParameter("ids", ids).getResultList();
+                return query(counter.recountSql)
+                        .addSynchronizedEntityClass(counter.entityClass)
+                        .setParameter("ids", ids)
+                        .executeUpdate();
+            });
+            for (Integer id : ids) {
+                eventPublisher.publishEvent(new EntityChangedEvent(this, EntityChangedEvent.Type.UPDATE,
+                        counter.entityClass, id, null, Collections.emptyMap()));
+            }
+        }
+
+        return repaired;
+    }
+
+    /**
+     * Create a native query.
+     *
+     * @param sql The statement.
+     * @return The query.
+     */
+    private NativeQuery<?> query(String sql) {
+        return entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+    }
+}
@@ -0,0 +1,292 @@
+package net.mavroprovato.springcms.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.mavroprovato.springcms.entity.ContentStatus;
+import net.mavroprovato.springcms.transfer.CommentRecord;
+import net.mavroprovato.springcms.transfer.JsonLinesPostWriter;
+import net.mavroprovato.springcms.transfer.PostRecord;
+import net.mavroprovato.springcms.transfer.RecordType;
+import net.mavroprovato.springcms.transfer.TermRecord;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the posts and the pages, along with their comments, tags and categories, as JSON lines, in the format that
+ * the import command reads. All the tags and the categories are exported first, so that the ones that no post uses
+ * are imported as well. The content is read with a forward only cursor, in chunks of the fetch size. The comments
+ * and the terms of each chunk are read with one query each, the chunk is written to the output, and then the session
+ * is cleared, so the memory that is used does not depend on the amount of content.
+ */
+@Service
+public class ExportService {
+
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    /** The post columns that are exported */
+    private static final String POST_SELECT =
+            "SELECT p.id, p.title, p.slug, p.content, p.status, p.publishedAt, a.userName, a.email, a.name " +
+            "FROM Post p JOIN p.author a ORDER BY p.id";
+
+    /** The tag columns that are exported */
+    private static final String TAG_SELECT = "SELECT t.id, t.name, t.slug, t.description FROM Tag t ORDER BY t.id";
+
+    /** The category columns that are exported */
+    private static final String CATEGORY_SELECT =
+            "SELECT c.id, c.name, c.slug, c.description FROM Category c ORDER BY c.id";
+
+    /** The page columns that are exported */
+    private static final String PAGE_SELECT =
+            "SELECT p.id, p.title, p.slug, p.content, p.status, p.publishedAt, a.userName, a.email, a.name, " +
+            "p.order FROM Page p JOIN p.author a ORDER BY p.id";
+
+    /** The entity manager */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /** The object mapper */
+    private final ObjectMapper objectMapper;
+
+    /** The number of rows that are fetched from the database at once, and the number of posts in a chunk */
+    private final int fetchSize;
+
+    /**
+     * Create the export service.
+     *
+     * @param objectMapper The object mapper.
+     * @param fetchSize The number of rows that are fetched from the database at once.
+     */
+    @Autowired
+    public ExportService(ObjectMapper objectMapper, @Value("${cms.export.fetch-size:500}") int fetchSize) {
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Export all posts and pages to an output stream. The output stream is not closed, but if the output is
+     * compressed, the compressed stream is finished.
+     *
+     * @param outputStream The output stream.
+     * @param gzip True if the output must be compressed with gzip.
+     * @return The number of exported posts and pages.
+     * @throws IOException If the output stream cannot be written.
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream outputStream, boolean gzip) throws IOException {
+        GZIPOutputStream gzipOutputStream = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : null;
+        long count;
+        try (JsonLinesPostWriter writer = new JsonLinesPostWriter(objectMapper,
+                gzip ? gzipOutputStream : outputStream)) {
+            long terms = exportTerms(writer, TAG_SELECT, PostRecord::getTags);
+            terms += exportTerms(writer, CATEGORY_SELECT, PostRecord::getCategories);
+            logger.info("{} tags and categories exported.", terms);
+            count = export(writer, POST_SELECT, RecordType.POST);
+            count += export(writer, PAGE_SELECT, RecordType.PAGE);
+        }
+        if (gzipOutputStream != null) {
+            gzipOutputStream.finish();
+        }
+        outputStream.flush();
+        logger.info("{} posts and pages exported.", count);
+
+        return count;
+    }
+
+    /**
+     * Export the tags or the categories, as term records that hold up to the fetch size of terms each.
+     *
+     * @param writer The record writer.
+     * @param select The query that selects the term columns.
+     * @param terms Returns the list of the record that the terms are added to.
+     * @return The number of exported terms.
+     * @throws IOException If the output stream cannot be written.
+     */
+    private long exportTerms(JsonLinesPostWriter writer, String select,
+                             Function<PostRecord, List<TermRecord>> terms) throws IOException {
+        Session session = entityManager.unwrap(Session.class);
+        long count = 0;
+        try (ScrollableResults results = session.createQuery(select, Object[].class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            PostRecord record = termsRecord();
+            while (results.next()) {
+                terms.apply(record).add(term(results.get()));
+                count++;
+                if (terms.apply(record).size() == fetchSize) {
+                    writer.write(record);
+                    record = termsRecord();
+                }
+            }
+            if (!terms.apply(record).isEmpty()) {
+                writer.write(record);
+            }
+        }
+        writer.flush();
+        entityManager.clear();
+
+        return count;
+    }
+
+    /**
+     * Create an empty term record.
+     *
+     * @return The term record.
+     */
+    private static PostRecord termsRecord() {
+        PostRecord record = new PostRecord();
+        record.setType(RecordType.TERMS);
+
+        return record;
+    }
+
+    /**
+     * Export the content of a type.
+     *
+     * @param writer The record writer.
+     * @param select The query that selects the content columns.
+     * @param type The record type.
+     * @return The number of exported records.
+     * @throws IOException If the output stream cannot be written.
+     */
+    private long export(JsonLinesPostWriter writer, String select, RecordType type) throws IOException {
+        Session session = entityManager.unwrap(Session.class);
+        long count = 0;
+        try (ScrollableResults results = session.createQuery(select, Object[].class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            Map<Integer, PostRecord> chunk = new LinkedHashMap<>();
+            while (results.next()) {
+                Object[] row = results.get();
+                chunk.put((Integer) row[0], record(row, type));
+                if (chunk.size() == fetchSize) {
+                    count += writeChunk(writer, chunk, type);
+                }
+            }
+            count += writeChunk(writer, chunk, type);
+        }
+
+        return count;
+    }
+
+    /**
+     * Convert a row of the content query to a record.
+     *
+     * @param row The row.
+     * @param type The record type.
+     * @return The record.
+     */
+    private static PostRecord record(Object[] row, RecordType type) {
+        PostRecord record = new PostRecord();
+        record.setType(type);
+        record.setTitle((String) row[1]);
+        record.setSlug((String) row[2]);
+        record.setContent((String) row[3]);
+        record.setStatus((ContentStatus) row[4]);
+        record.setPublishedAt((OffsetDateTime) row[5]);
+        record.setAuthor((String) row[6]);
+        record.setAuthorEmail((String) row[7]);
+        record.setAuthorName((String) row[8]);
+        if (type == RecordType.PAGE) {
+            record.setOrder((Integer) row[9]);
+        }
+
+        return record;
+    }
+
+    /**
+     * Complete a chunk of records with their comments and terms, write them, and clear the chunk and the session.
+     *
+     * @param writer The record writer.
+     * @param chunk The records, keyed by content identifier.
+     * @param type The record type.
+     * @return The number of written records.
+     * @throws IOException If the output stream cannot be written.
+     */
+    private int writeChunk(JsonLinesPostWriter writer, Map<Integer, PostRecord> chunk, RecordType type)
+            throws IOException {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        List<Integer> ids = new ArrayList<>(chunk.keySet());
+        if (type == RecordType.POST) {
+            for (Object[] row : query("SELECT p.id, t.name, t.slug, t.description FROM Post p JOIN p.tags t " +
+                    "WHERE p.id IN :ids ORDER BY t.id", ids)) {
+                chunk.get(row[0]).getTags().add(term(row));
+            }
+            for (Object[] row : query("SELECT p.id, c.name, c.slug, c.description FROM Post p JOIN p.categories c " +
+                    "WHERE p.id IN :ids ORDER BY c.id", ids)) {
+                chunk.get(row[0]).getCategories().add(term(row));
+            }
+            for (Object[] row : query("SELECT c.post.id, c.name, c.email, c.webSite, c.comment, c.createdAt " +
+                    "FROM Comment c WHERE c.post.id IN :ids ORDER BY c.id", ids)) {
+                CommentRecord comment = new CommentRecord();
+                comment.setName((String) row[1]);
+                comment.setEmail((String) row[2]);
+                comment.setWebSite((String) row[3]);
+                comment.setComment((String) row[4]);
+                comment.setCreatedAt((OffsetDateTime) row[5]);
+                chunk.get(row[0]).getComments().add(comment);
+            }
+        }
+        for (PostRecord record : chunk.values()) {
+            writer.write(record);
+        }
+        writer.flush();
+        int count = chunk.size();
+        chunk.clear();
+        entityManager.clear();
+
+        return count;
+    }
+
+    /**
+     * Run a query for the children of a chunk of content.
+     *
+     * @param jpql The query, with the content identifiers as the ids parameter.
+     * @param ids The content identifiers.
+     * @return The rows.
+     */
+    private List<Object[]> query(String jpql, List<Integer> ids) {
+        return entityManager.createQuery(jpql, Object[].class)
+                .setParameter("ids", ids)
+                .setHint("org.hibernate.cacheMode", CacheMode.IGNORE)
+                .getResultList();
+    }
+
+    /**
+     * Convert a row of a term query to a term record. The first column is not converted.
+     *
+     * @param row The row.
+     * @return The term record.
+     */
+    private static TermRecord term(Object[] row) {
+        TermRecord term = new TermRecord((String) row[1], (String) row[2]);
+        term.setDescription((String) row[3]);
+
+        return term;
+    }
+}
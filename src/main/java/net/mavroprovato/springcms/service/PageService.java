@@ -1,14 +1,15 @@
 package net.mavroprovato.springcms.service;
 
+import net.mavroprovato.springcms.component.PageDependencies;
+import net.mavroprovato.springcms.component.SidebarModelCache;
+import net.mavroprovato.springcms.component.SlugCache;
 import net.mavroprovato.springcms.entity.Page;
 import net.mavroprovato.springcms.exception.ResourceNotFoundException;
-import net.mavroprovato.springcms.repository.CategoryRepository;
 import net.mavroprovato.springcms.repository.PageRepository;
-import net.mavroprovato.springcms.repository.PostRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -20,34 +21,27 @@ import java.util.Optional;
 @Transactional
 public class PageService {
 
-    /** The post repository */
-    private final PostRepository postRepository;
-
     /** The page repository */
     private final PageRepository pageRepository;
 
-    /** The category repository */
-    private final CategoryRepository categoryRepository;
+    /** The cache for the model that is common to all pages */
+    private final SidebarModelCache sidebarModelCache;
 
-    /** The configuration parameter service */
-    private final ConfigurationParameterService configurationParameterService;
+    /** The slug cache */
+    private final SlugCache slugCache;
 
     /**
      * Create the page service.
      *
      * @param pageRepository The page repository.
-     * @param postRepository The post repository.
-     * @param categoryRepository The category repository.
-     * @param configurationParameterService The configuration parameter service.
+     * @param sidebarModelCache The cache for the model that is common to all pages.
+     * @param slugCache The slug cache.
      */
     @Autowired
-    public PageService(PageRepository pageRepository, PostRepository postRepository,
-                       CategoryRepository categoryRepository,
-                       ConfigurationParameterService configurationParameterService) {
+    public PageService(PageRepository pageRepository, SidebarModelCache sidebarModelCache, SlugCache slugCache) {
         this.pageRepository = pageRepository;
-        this.postRepository = postRepository;
-        this.categoryRepository = categoryRepository;
-        this.configurationParameterService = configurationParameterService;
+        this.sidebarModelCache = sidebarModelCache;
+        this.slugCache = slugCache;
     }
 
     /**
@@ -56,6 +50,7 @@ public class PageService {
      * @param id The page identifier.
      * @return The page model.
      */
+    @Transactional(readOnly = true)
     public Map<String, ?> getById(int id) {
         Optional<Page> page = pageRepository.findById(id);
 
@@ -68,8 +63,10 @@ public class PageService {
      * @param slug The page slug.
      * @return The page model.
      */
+    @Transactional(readOnly = true)
     public Map<String, ?> getBySlug(String slug) {
-        Optional<Page> page = pageRepository.findOneBySlug(slug);
+        Optional<Page> page = slugCache.find(Page.class, slug, pageRepository::findIdBySlug, pageRepository::findById,
+                Page::getSlug);
 
         return page.map(this::getModel).orElseThrow(ResourceNotFoundException::new);
     }
@@ -80,13 +77,11 @@ public class PageService {
      * @param page The page.
      */
     private Map<String, Object> getModel(Page page) {
+        PageDependencies.add(PageDependencies.page(page.getId()));
         Map<String, Object> model = new HashMap<>();
 
         model.put("page", page);
-        model.put("archives", postRepository.countByMonth());
-        model.put("categories", categoryRepository.findAllByOrderByNameAsc());
-        model.put("config", configurationParameterService.allParameters());
-        model.put("pages", pageRepository.findAll());
+        model.putAll(sidebarModelCache.getModel());
 
         return model;
     }
@@ -3,45 +3,77 @@ package net.mavroprovato.springcms.service;
 import com.rometools.rome.feed.atom.Entry;
 import com.rometools.rome.feed.atom.Feed;
 import com.rometools.rome.feed.atom.Link;
+import net.mavroprovato.springcms.component.PageDependencies;
+import net.mavroprovato.springcms.component.SearchIndexProgress;
+import net.mavroprovato.springcms.component.SidebarModelCache;
+import net.mavroprovato.springcms.component.SlugCache;
 import net.mavroprovato.springcms.component.UrlUtils;
+import net.mavroprovato.springcms.dto.CommentCursor;
+import net.mavroprovato.springcms.dto.CommentSlice;
+import net.mavroprovato.springcms.dto.KeysetSlice;
+import net.mavroprovato.springcms.dto.ListPosition;
+import net.mavroprovato.springcms.dto.PostFilter;
+import net.mavroprovato.springcms.dto.PostSummary;
+import net.mavroprovato.springcms.dto.SearchFacet;
+import net.mavroprovato.springcms.dto.SearchFilter;
 import net.mavroprovato.springcms.entity.Category;
 import net.mavroprovato.springcms.entity.Comment;
 import net.mavroprovato.springcms.entity.ContentStatus;
 import net.mavroprovato.springcms.entity.Parameter;
 import net.mavroprovato.springcms.entity.Post;
 import net.mavroprovato.springcms.entity.Tag;
+import net.mavroprovato.springcms.entity.TermsBridge;
 import net.mavroprovato.springcms.exception.ResourceNotFoundException;
 import net.mavroprovato.springcms.repository.CategoryRepository;
 import net.mavroprovato.springcms.repository.CommentRepository;
-import net.mavroprovato.springcms.repository.PageRepository;
 import net.mavroprovato.springcms.repository.PostRepository;
 import net.mavroprovato.springcms.repository.TagRepository;
-import org.apache.lucene.search.Query;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+import org.hibernate.search.engine.ProjectionConstants;
 import org.hibernate.search.jpa.FullTextEntityManager;
 import org.hibernate.search.jpa.FullTextQuery;
 import org.hibernate.search.jpa.Search;
+import org.hibernate.search.query.dsl.BooleanJunction;
 import org.hibernate.search.query.dsl.QueryBuilder;
+import org.hibernate.search.query.engine.spi.FacetManager;
+import org.hibernate.search.query.facet.Facet;
+import org.hibernate.search.query.facet.FacetSortOrder;
+import org.hibernate.search.query.facet.FacetingRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.Month;
 import java.time.OffsetDateTime;
+import java.time.YearMonth;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -51,12 +83,24 @@ import java.util.stream.Collectors;
 @Transactional
 public class PostService {
 
+    /** Logger for the class */
+    private static Logger logger = LoggerFactory.getLogger(PostService.class);
+
+    /** The number of posts that are loaded in each batch when the missing excerpts are set */
+    private static final int EXCERPT_BATCH_SIZE = 500;
+
+    /** The name of the tag search facet */
+    private static final String TAG_FACET = "tag";
+
+    /** The name of the category search facet */
+    private static final String CATEGORY_FACET = "category";
+
+    /** The name of the publication month search facet */
+    private static final String MONTH_FACET = "month";
+
     /** The post repository */
     private final PostRepository postRepository;
 
-    /** The page repository */
-    private final PageRepository pageRepository;
-
     /** The tag repository */
     private final TagRepository tagRepository;
 
@@ -72,6 +116,33 @@ public class PostService {
     /** The URL utilities */
     private final UrlUtils urlUtils;
 
+    /** The cache for the model that is common to all pages */
+    private final SidebarModelCache sidebarModelCache;
+
+    /** The slug cache */
+    private final SlugCache slugCache;
+
+    /** The progress of the search index rebuilds */
+    private final SearchIndexProgress searchIndexProgress;
+
+    /** The maximum number of posts that can be skipped when a list page is located by its number */
+    private final int maxPageOffset;
+
+    /** True if the comments of a post are displayed newest first */
+    private final boolean commentsNewestFirst;
+
+    /** True if the search results are loaded from the database instead of the fields stored in the search index */
+    private final boolean searchLoadsPosts;
+
+    /** The maximum number of values that are displayed for each search facet */
+    private final int maxSearchFacets;
+
+    /** If true, the missing excerpts are set when the application starts */
+    private final boolean fillMissingExcerpts;
+
+    /** Runs each batch of the missing excerpts in its own transaction */
+    private final TransactionTemplate transactionTemplate;
+
     /** The entity manager */
     @PersistenceContext
     private EntityManager entityManager;
@@ -80,45 +151,72 @@ public class PostService {
      * Create the post service.
      *
      * @param postRepository The post repository.
-     * @param pageRepository The page repository
      * @param tagRepository The tag repository
      * @param categoryRepository The category repository.
      * @param commentRepository The comment repository.
      * @param configurationParameterService The configuration parameter service.
      * @param urlUtils The URL utilities.
+     * @param sidebarModelCache The cache for the model that is common to all pages.
+     * @param slugCache The slug cache.
+     * @param searchIndexProgress The progress of the search index rebuilds.
+     * @param maxPageOffset The maximum number of posts that can be skipped when a list page is located by its number.
+     * @param commentsNewestFirst True if the comments of a post are displayed newest first.
+     * @param searchLoadsPosts True if the search results are loaded from the database instead of the fields stored in
+     * the search index.
+     * @param maxSearchFacets The maximum number of values that are displayed for each search facet.
+     * @param fillMissingExcerpts If true, the missing excerpts are set when the application starts.
+     * @param transactionManager The transaction manager.
      */
     @Autowired
-    public PostService(PostRepository postRepository, PageRepository pageRepository, TagRepository tagRepository,
+    public PostService(PostRepository postRepository, TagRepository tagRepository,
                        CategoryRepository categoryRepository, CommentRepository commentRepository,
-                       ConfigurationParameterService configurationParameterService, UrlUtils urlUtils) {
+                       ConfigurationParameterService configurationParameterService, UrlUtils urlUtils,
+                       SidebarModelCache sidebarModelCache, SlugCache slugCache,
+                       SearchIndexProgress searchIndexProgress,
+                       @Value("${cms.pagination.max-page-offset:1000}") int maxPageOffset,
+                       @Value("${cms.comments.newest-first:false}") boolean commentsNewestFirst,
+                       @Value("${cms.search.load-posts:false}") boolean searchLoadsPosts,
+                       @Value("${cms.search.max-facets:10}") int maxSearchFacets,
+                       @Value("${cms.posts.fill-missing-excerpts:false}") boolean fillMissingExcerpts,
+                       PlatformTransactionManager transactionManager) {
         this.postRepository = postRepository;
-        this.pageRepository = pageRepository;
         this.tagRepository = tagRepository;
         this.categoryRepository = categoryRepository;
         this.commentRepository = commentRepository;
         this.configurationParameterService = configurationParameterService;
         this.urlUtils = urlUtils;
+        this.sidebarModelCache = sidebarModelCache;
+        this.slugCache = slugCache;
+        this.searchIndexProgress = searchIndexProgress;
+        this.maxPageOffset = maxPageOffset;
+        this.commentsNewestFirst = commentsNewestFirst;
+        this.searchLoadsPosts = searchLoadsPosts;
+        this.maxSearchFacets = maxSearchFacets;
+        this.fillMissingExcerpts = fillMissingExcerpts;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
      * Get a post page, ordered by publication date.
      *
-     * @param page The page number.
+     * @param position The page position.
      * @return The content items.
      */
-    public Map<String, ?> list(int page) {
-        return listImpl(null, null, null, page);
+    @Transactional(readOnly = true)
+    public Map<String, ?> list(ListPosition position) {
+        return listImpl(null, null, null, position);
     }
 
     /**
      * Get a page of posts published in a year, ordered by publication date.
      *
      * @param year The year.
-     * @param page The page number.
+     * @param position The page position.
      * @return The posts.
      */
-    public Map<String, ?> list(int year, int page) {
-        return listImpl(year, null, null, page);
+    @Transactional(readOnly = true)
+    public Map<String, ?> list(int year, ListPosition position) {
+        return listImpl(year, null, null, position);
     }
 
     /**
@@ -126,11 +224,12 @@ public class PostService {
      *
      * @param year The year.
      * @param month The month number (1 for January, 12 for December)
-     * @param page The page number.
+     * @param position The page position.
      * @return The posts.
      */
-    public Map<String, ?> list(int year, int month, int page) {
-        return listImpl(year, month, null, page);
+    @Transactional(readOnly = true)
+    public Map<String, ?> list(int year, int month, ListPosition position) {
+        return listImpl(year, month, null, position);
     }
 
     /**
@@ -139,11 +238,12 @@ public class PostService {
      * @param year The year.
      * @param month The month number (1 for January, 12 for December)
      * @param day The day number.
-     * @param page The page number.
+     * @param position The page position.
      * @return The posts.
      */
-    public Map<String, ?> list(int year, int month, int day, int page) {
-        return listImpl(year, month, day, page);
+    @Transactional(readOnly = true)
+    public Map<String, ?> list(int year, int month, int day, ListPosition position) {
+        return listImpl(year, month, day, position);
     }
 
     /**
@@ -152,10 +252,10 @@ public class PostService {
      * @param year The year.
      * @param month The month number (1 for January, 12 for December)
      * @param day The day number.
-     * @param page The page number.
+     * @param position The page position.
      * @return The posts.
      */
-    private Map<String, ?> listImpl(Integer year, Integer month, Integer day, int page) {
+    private Map<String, ?> listImpl(Integer year, Integer month, Integer day, ListPosition position) {
         // Calculate the start/end publication date to use for the content query, and the url prefix for the pagination
         // links.
         OffsetDateTime startDateTime = null;
@@ -180,27 +280,26 @@ public class PostService {
             urlPrefix = urlUtils.postListYear(year);
         }
 
+        PageDependencies.add(PageDependencies.dateList(year, month, day));
+
         // Run the query
-        int postsPerPage = configurationParameterService.getInteger(Parameter.POSTS_PER_PAGE);
-        PageRequest pageRequest = PageRequest.of(page - 1, postsPerPage, Sort.Direction.DESC, "publishedAt");
-        Page<Post> posts = startDateTime == null ?
-                postRepository.findByStatus(ContentStatus.PUBLISHED, pageRequest) :
-                postRepository.findByStatusAndPublishedAtBetween(
-                        ContentStatus.PUBLISHED, startDateTime, endDateTime, pageRequest);
+        PostFilter filter = startDateTime == null ?
+                PostFilter.all() : PostFilter.publishedBetween(startDateTime, endDateTime);
 
-        return getListModel(posts, urlPrefix);
+        return getListModel(findPublished(filter, position), urlPrefix);
     }
 
     /**
      * Get a page of posts under a specific tag, specified by its id.
      *
      * @param id The tag identifier.
-     * @param page The page.
+     * @param position The page position.
      * @return The posts.
      */
-    public Map<String, ?> listByTagId(int id, int page) {
+    @Transactional(readOnly = true)
+    public Map<String, ?> listByTagId(int id, ListPosition position) {
         return tagRepository.findById(id)
-                .map(t -> getTagListModel(t, page))
+                .map(t -> getTagListModel(t, position))
                 .orElseThrow(ResourceNotFoundException::new);
     }
 
@@ -208,12 +307,13 @@ public class PostService {
      * Get a page of posts under a specific tag, specified by its slug.
      *
      * @param slug The tag slug.
-     * @param page The page.
+     * @param position The page position.
      * @return The posts.
      */
-    public Map<String, ?> listByTagSlug(String slug, int page) {
-        return tagRepository.findBySlug(slug)
-                .map(t -> getTagListModel(t, page))
+    @Transactional(readOnly = true)
+    public Map<String, ?> listByTagSlug(String slug, ListPosition position) {
+        return slugCache.find(Tag.class, slug, tagRepository::findIdBySlug, tagRepository::findById, Tag::getSlug)
+                .map(t -> getTagListModel(t, position))
                 .orElseThrow(ResourceNotFoundException::new);
     }
 
@@ -221,27 +321,27 @@ public class PostService {
      * Return the model for the list posts by tag.
      *
      * @param tag The tag.
-     * @param page The page number.
+     * @param position The page position.
      * @return The model.
      */
-    private Map<String, ?> getTagListModel(Tag tag, int page) {
-        int postsPerPage = configurationParameterService.getInteger(Parameter.POSTS_PER_PAGE);
-        PageRequest pageRequest = PageRequest.of(page - 1, postsPerPage, Sort.Direction.DESC, "publishedAt");
-        Page<Post> posts = postRepository.findByStatusAndTags(ContentStatus.PUBLISHED, tag, pageRequest);
+    private Map<String, ?> getTagListModel(Tag tag, ListPosition position) {
+        PageDependencies.add(PageDependencies.tag(tag.getId()), PageDependencies.tagList(tag.getId()),
+                PageDependencies.TAXONOMY_LISTS);
 
-        return getListModel(posts, urlUtils.postListByTag(tag));
+        return getListModel(findPublished(PostFilter.tagged(tag), position), urlUtils.postListByTag(tag));
     }
 
     /**
      * Get a page of posts categorized with a specific category, specified by its id.
      *
      * @param id The category identifier.
-     * @param page The page.
+     * @param position The page position.
      * @return The posts.
      */
-    public Map<String, ?> listByCategoryId(int id, int page) {
+    @Transactional(readOnly = true)
+    public Map<String, ?> listByCategoryId(int id, ListPosition position) {
         return categoryRepository.findById(id)
-                .map(c -> getCategoryListModel(c, page))
+                .map(c -> getCategoryListModel(c, position))
                 .orElseThrow(ResourceNotFoundException::new);
     }
 
@@ -249,12 +349,14 @@ public class PostService {
      * Get a page of posts categorized with a specific category, specified by its slug.
      *
      * @param slug The category slug.
-     * @param page The page.
+     * @param position The page position.
      * @return The posts.
      */
-    public Map<String, ?> listByCategorySlug(String slug, int page) {
-        return categoryRepository.findBySlug(slug)
-                .map(c -> getCategoryListModel(c, page))
+    @Transactional(readOnly = true)
+    public Map<String, ?> listByCategorySlug(String slug, ListPosition position) {
+        return slugCache.find(Category.class, slug, categoryRepository::findIdBySlug, categoryRepository::findById,
+                Category::getSlug)
+                .map(c -> getCategoryListModel(c, position))
                 .orElseThrow(ResourceNotFoundException::new);
     }
 
@@ -262,47 +364,245 @@ public class PostService {
      * Return the model for the list posts by category.
      *
      * @param category The category.
-     * @param page The page number.
+     * @param position The page position.
      * @return The model.
      */
-    private Map<String, ?> getCategoryListModel(Category category, int page) {
+    private Map<String, ?> getCategoryListModel(Category category, ListPosition position) {
+        PageDependencies.add(PageDependencies.category(category.getId()),
+                PageDependencies.categoryList(category.getId()), PageDependencies.TAXONOMY_LISTS);
+
+        return getListModel(findPublished(PostFilter.categorized(category), position),
+                urlUtils.postListByCategory(category));
+    }
+
+    /**
+     * Set the excerpt of the posts that were stored before excerpts were introduced, when the application starts. This
+     * is a one off migration, which is enabled with the {@code cms.posts.fill-missing-excerpts} property. The posts are
+     * loaded, so that the excerpts are created the same way as when the content is set, and they are indexed again.
+     * Each batch of posts is updated in its own transaction.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void fillMissingExcerpts() {
+        if (!fillMissingExcerpts) {
+            return;
+        }
+        int count = 0;
+        int lastId = 0;
+        List<Post> posts;
+        do {
+            int afterId = lastId;
+            posts = transactionTemplate.execute(status -> {
+                List<Post> batch = postRepository.findWithoutExcerpt(afterId, PageRequest.of(0, EXCERPT_BATCH_SIZE));
+                batch.forEach(Post::fillExcerpt);
+                return batch;
+            });
+            if (!posts.isEmpty()) {
+                lastId = posts.get(posts.size() - 1).getId();
+            }
+            count += posts.size();
+        } while (posts.size() == EXCERPT_BATCH_SIZE);
+        if (count > 0) {
+            logger.info("Set the excerpt of {} posts.", count);
+        }
+    }
+
+    /**
+     * Find a page of published posts. Pages that are located by a cursor are fetched with keyset pagination. Pages
+     * that are located by their number are fetched with an offset, which is bounded, as the database has to scan all
+     * the skipped posts.
+     *
+     * @param filter The criteria that select the posts.
+     * @param position The page position.
+     * @return The posts.
+     * @throws ResourceNotFoundException If the page number is out of the allowed range.
+     */
+    private KeysetSlice<PostSummary> findPublished(PostFilter filter, ListPosition position) {
         int postsPerPage = configurationParameterService.getInteger(Parameter.POSTS_PER_PAGE);
-        PageRequest pageRequest = PageRequest.of(page - 1, postsPerPage, Sort.Direction.DESC, "publishedAt");
-        Page<Post> posts = postRepository.findByStatusAndCategories(ContentStatus.PUBLISHED, category, pageRequest);
+        if (position.getCursor() == null) {
+            long offset = (long) (position.getPage() - 1) * postsPerPage;
+            if (position.getPage() < 1 || offset > maxPageOffset) {
+                throw new ResourceNotFoundException();
+            }
+            List<PostSummary> posts = postRepository.findPublished(filter, null, true, (int) offset,
+                    postsPerPage + 1);
+            boolean last = posts.size() <= postsPerPage;
+
+            return keysetSlice(posts.subList(0, Math.min(posts.size(), postsPerPage)), position.getPage() == 1, last);
+        }
+
+        // Fetch one more post, to find out if there are more posts after this page
+        List<PostSummary> posts = postRepository.findPublished(filter, position.getCursor(), position.isOlder(), 0,
+                postsPerPage + 1);
+        boolean more = posts.size() > postsPerPage;
+        posts = new ArrayList<>(posts.subList(0, Math.min(posts.size(), postsPerPage)));
+        if (position.isOlder()) {
+            return keysetSlice(posts, false, !more);
+        }
+        // Newer posts are fetched oldest first
+        Collections.reverse(posts);
 
-        return getListModel(posts, urlUtils.postListByCategory(category));
+        return keysetSlice(posts, !more, false);
     }
 
     /**
-     * Perform a full text search on posts.
+     * Create a keyset slice from a list of posts.
      *
-     * @param queryString The query string.
+     * @param posts The posts, newest first.
+     * @param first True if there are no newer posts.
+     * @param last True if there are no older posts.
+     * @return The slice.
+     */
+    private static KeysetSlice<PostSummary> keysetSlice(List<PostSummary> posts, boolean first, boolean last) {
+        if (posts.isEmpty()) {
+            return new KeysetSlice<>(posts, first, last, null, null);
+        }
+
+        return new KeysetSlice<>(posts, first, last, posts.get(0).toCursor(), posts.get(posts.size() - 1).toCursor());
+    }
+
+    /**
+     * Perform a full text search on the published posts. The results are created from the fields that are stored in
+     * the search index, so no statement is executed for them, unless the posts are configured to be loaded from the
+     * database. The results can be refined by tag, category and publication month, and the number of results for each
+     * of them is counted by the same search, as search facets.
+     *
+     * @param filter The search filter.
+     * @param page The page number.
      * @return The posts.
      */
-    public Map<String, ?> search(String queryString, int page) {
+    @Transactional(readOnly = true)
+    public Map<String, ?> search(SearchFilter filter, int page) {
+        PageDependencies.add(PageDependencies.SEARCH);
         int postsPerPage = configurationParameterService.getInteger(Parameter.POSTS_PER_PAGE);
         PageRequest pageRequest = PageRequest.of(page - 1, postsPerPage);
         // Perform the full text search
         FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(entityManager);
         QueryBuilder queryBuilder = fullTextEntityManager.getSearchFactory().buildQueryBuilder()
                 .forEntity(Post.class).get();
-        Query query = queryBuilder
-                .keyword()
-                .onFields("title", "content")
-                .matching(queryString)
-                .createQuery();
+        BooleanJunction<?> junction = queryBuilder.bool()
+                .must(queryBuilder.keyword().onFields("title", "content").matching(filter.getQuery()).createQuery())
+                .must(queryBuilder.keyword().onField("status").matching(ContentStatus.PUBLISHED).createQuery());
+        // The identifiers of the embedded tags and categories are indexed as strings
+        filter.getTags().forEach(id -> junction.must(new TermQuery(new Term("tags.id", id.toString()))));
+        filter.getCategories().forEach(id -> junction.must(new TermQuery(new Term("categories.id", id.toString()))));
+        if (filter.getMonth() != null) {
+            junction.must(queryBuilder.keyword().onField("publishedMonth").matching(filter.getMonth().toString())
+                    .createQuery());
+        }
         FullTextQuery jpaQuery = fullTextEntityManager
-                .createFullTextQuery(query, Post.class)
+                .createFullTextQuery(junction.createQuery(), Post.class)
                 .setFirstResult(postsPerPage * pageRequest.getPageNumber())
                 .setMaxResults(postsPerPage);
-        @SuppressWarnings("unchecked")
-        List<Post> results = jpaQuery.getResultList();
-        int totalResults = jpaQuery.getResultSize();
+        FacetManager facetManager = jpaQuery.getFacetManager();
+        facetManager.enableFaceting(facetingRequest(queryBuilder, TAG_FACET, "tags.facet", FacetSortOrder.COUNT_DESC));
+        facetManager.enableFaceting(
+                facetingRequest(queryBuilder, CATEGORY_FACET, "categories.facet", FacetSortOrder.COUNT_DESC));
+        facetManager.enableFaceting(
+                facetingRequest(queryBuilder, MONTH_FACET, "publishedMonth", FacetSortOrder.FIELD_VALUE));
+        List<PostSummary> summaries;
+        if (searchLoadsPosts) {
+            jpaQuery.setProjection(ProjectionConstants.ID);
+            @SuppressWarnings("unchecked")
+            List<Object[]> results = jpaQuery.getResultList();
+            // Load the summaries of the matching posts, in the order of relevance
+            List<Integer> ids = results.stream().map(result -> (Integer) result[0]).collect(Collectors.toList());
+            summaries = postRepository.findSummaries(ids);
+        } else {
+            jpaQuery.setProjection(ProjectionConstants.ID, "slug", "title", "publishedAt", "author.userName",
+                    "excerpt", ProjectionConstants.DOCUMENT);
+            @SuppressWarnings("unchecked")
+            List<Object[]> results = jpaQuery.getResultList();
+            summaries = results.stream().map(PostService::searchSummary).collect(Collectors.toList());
+        }
+        Page<PostSummary> posts = new PageImpl<>(summaries, pageRequest, jpaQuery.getResultSize());
+
+        // The facets were counted along with the results
+        Map<String, Object> model = new HashMap<>(getListModel(posts, "/search"));
+        model.put("searchFilter", filter);
+        model.put("tagFacets", termFacets(facetManager.getFacets(TAG_FACET), Tag::new, filter.getTags()));
+        model.put("categoryFacets",
+                termFacets(facetManager.getFacets(CATEGORY_FACET), Category::new, filter.getCategories()));
+        model.put("monthFacets", facetManager.getFacets(MONTH_FACET).stream()
+                .map(facet -> {
+                    YearMonth month = YearMonth.parse(facet.getValue());
+                    return new SearchFacet<>(month, facet.getCount(), month.equals(filter.getMonth()));
+                })
+                .collect(Collectors.toList()));
 
-        // Create the page with the results.
-        Page<Post> posts = new PageImpl<>(results, pageRequest, totalResults);
+        return model;
+    }
 
-        return getListModel(posts, "/search");
+    /**
+     * Create a request for the values of a search facet.
+     *
+     * @param queryBuilder The query builder.
+     * @param name The facet name.
+     * @param field The name of the facet field.
+     * @param order The order of the values.
+     * @return The request.
+     */
+    private FacetingRequest facetingRequest(QueryBuilder queryBuilder, String name, String field,
+                                            FacetSortOrder order) {
+        return queryBuilder.facet()
+                .name(name)
+                .onField(field)
+                .discrete()
+                .orderedBy(order)
+                .includeZeroCounts(false)
+                .maxFacetCount(maxSearchFacets)
+                .createFacetingRequest();
+    }
+
+    /**
+     * Create the values of a tag or category search facet.
+     *
+     * @param facets The facet values.
+     * @param factory Creates an empty term.
+     * @param selected The identifiers of the selected terms.
+     * @param <T> The term type.
+     * @return The facet values.
+     */
+    private static <T extends net.mavroprovato.springcms.entity.Term> List<SearchFacet<T>> termFacets(
+            List<Facet> facets, Supplier<T> factory, List<Integer> selected) {
+        return facets.stream()
+                .map(facet -> {
+                    T term = TermsBridge.decode(facet.getValue(), factory);
+                    return new SearchFacet<>(term, facet.getCount(), selected.contains(term.getId()));
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Create the summary of a post from the fields that are stored in the search index.
+     *
+     * @param result The projected fields: the identifier, the slug, the title, the publication date, the author name,
+     * the excerpt and the document, which holds the tags and the categories.
+     * @return The summary.
+     */
+    private static PostSummary searchSummary(Object[] result) {
+        Document document = (Document) result[6];
+
+        return new PostSummary((Integer) result[0], (String) result[1], (String) result[2],
+                (OffsetDateTime) result[3], (String) result[4], (String) result[5], null,
+                TermsBridge.decode(document.getValues("tags"), Tag::new),
+                TermsBridge.decode(document.getValues("categories"), Category::new));
+    }
+
+    /**
+     * Return the model of the search page while the search index is rebuilt. It has no results, and the progress of
+     * the rebuild.
+     *
+     * @param page The page number.
+     * @return The model.
+     */
+    public Map<String, ?> searchUnavailable(int page) {
+        int postsPerPage = configurationParameterService.getInteger(Parameter.POSTS_PER_PAGE);
+        Map<String, Object> model = new HashMap<>(getListModel(
+                new PageImpl<>(Collections.emptyList(), PageRequest.of(page - 1, postsPerPage), 0), "/search"));
+        model.put("searchIndexProgress", searchIndexProgress.getPercentage());
+
+        return model;
     }
 
     /**
@@ -312,7 +612,8 @@ public class PostService {
      * @param urlPrefix The URL prefix.
      * @return The posts page model.
      */
-    private Map<String, ?> getListModel(Page<Post> posts, String urlPrefix) {
+    private Map<String, ?> getListModel(Iterable<PostSummary> posts, String urlPrefix) {
+        posts.forEach(this::addPostDependencies);
         Map<String, Object> model = new HashMap<>();
         model.put("posts", posts);
         model.put("urlPrefix", urlPrefix);
@@ -325,48 +626,117 @@ public class PostService {
      * Return the model for a post page.
      *
      * @param id The content item identifier.
+     * @param commentCursor The cursor of the first comment to display, or null to start from the first comment.
      * @return The page model.
      */
-    public Map<String, ?> getById(int id) {
-        return postRepository.findById(id).map(this::getPostModel).orElseThrow(ResourceNotFoundException::new);
+    @Transactional(readOnly = true)
+    public Map<String, ?> getById(int id, CommentCursor commentCursor) {
+        return postRepository.findDetailById(id)
+                .map(post -> getPostModel(post, commentCursor))
+                .orElseThrow(ResourceNotFoundException::new);
     }
 
     /**
      * Return the model for a post page.
      *
      * @param slug The content slug.
+     * @param commentCursor The cursor of the first comment to display, or null to start from the first comment.
      * @return The post model.
      */
-    public Map<String, ?> getBySlug(String slug) {
-        return postRepository.findOneBySlug(slug).map(this::getPostModel).orElseThrow(ResourceNotFoundException::new);
+    @Transactional(readOnly = true)
+    public Map<String, ?> getBySlug(String slug, CommentCursor commentCursor) {
+        return slugCache.find(Post.class, slug, postRepository::findIdBySlug, postRepository::findDetailById,
+                Post::getSlug)
+                .map(post -> getPostModel(post, commentCursor))
+                .orElseThrow(ResourceNotFoundException::new);
+    }
+
+    /**
+     * Return the model for the fragment with the comments of a post.
+     *
+     * @param id The post identifier.
+     * @param commentCursor The cursor of the first comment to display.
+     * @return The fragment model.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, ?> getComments(int id, CommentCursor commentCursor) {
+        Post post = postRepository.findById(id).orElseThrow(ResourceNotFoundException::new);
+        PageDependencies.add(PageDependencies.post(post.getId()), PageDependencies.comments(post.getId()));
+        Map<String, Object> model = new HashMap<>();
+        model.put("post", post);
+        model.put("comments", findComments(post, commentCursor));
+
+        return model;
     }
 
     /**
      * Get the model for the post page.
      *
      * @param post The post.
+     * @param commentCursor The cursor of the first comment to display, or null to start from the first comment.
      * @return The model for the post page.
      */
-    private Map<String, ?> getPostModel(Post post) {
+    private Map<String, ?> getPostModel(Post post, CommentCursor commentCursor) {
+        addPostDependencies(post);
+        PageDependencies.add(PageDependencies.comments(post.getId()));
         Map<String, Object> model = new HashMap<>();
-        // Make sure comments are loaded
-        post.getComments().size();
         model.put("post", post);
+        model.put("comments", findComments(post, commentCursor));
         addCommonModel(model);
 
         return model;
     }
 
+    /**
+     * Find a page of the comments of a post. One more comment is fetched, to find out where the next page starts.
+     *
+     * @param post The post.
+     * @param cursor The cursor of the first comment to return, or null to start from the first comment.
+     * @return The comments.
+     */
+    private CommentSlice findComments(Post post, CommentCursor cursor) {
+        int commentsPerPage = configurationParameterService.getInteger(Parameter.COMMENTS_PER_PAGE);
+        List<Comment> comments = commentRepository.findByPost(post.getId(), cursor, commentsNewestFirst,
+                commentsPerPage + 1);
+        if (comments.size() <= commentsPerPage) {
+            return new CommentSlice(comments, cursor == null, null);
+        }
+        Comment next = comments.get(commentsPerPage);
+
+        return new CommentSlice(comments.subList(0, commentsPerPage), cursor == null,
+                new CommentCursor(next.getCreatedAt(), next.getId()));
+    }
+
+    /**
+     * Record that the page displays a post, along with its tags and categories.
+     *
+     * @param post The post.
+     */
+    private void addPostDependencies(Post post) {
+        PageDependencies.add(PageDependencies.post(post.getId()));
+        post.getTags().forEach(t -> PageDependencies.add(PageDependencies.tag(t.getId())));
+        post.getCategories().forEach(c -> PageDependencies.add(PageDependencies.category(c.getId())));
+    }
+
+    /**
+     * Record that the page displays a post summary, along with its tags, categories and comment count.
+     *
+     * @param post The post summary.
+     */
+    private void addPostDependencies(PostSummary post) {
+        PageDependencies.add(PageDependencies.post(post.getId()));
+        PageDependencies.add(PageDependencies.comments(post.getId()));
+        post.getTags().forEach(t -> PageDependencies.add(PageDependencies.tag(t.getId())));
+        post.getCategories().forEach(c -> PageDependencies.add(PageDependencies.category(c.getId())));
+    }
+
     /**
      * Add model objects common for all content pages.
      *
      * @param model The model.
      */
     private void addCommonModel(Map<String, Object> model) {
-        model.put("archives", postRepository.countByMonth());
-        model.put("categories", categoryRepository.findAllByOrderByNameAsc());
-        model.put("config", configurationParameterService.allParameters());
-        model.put("pages", pageRepository.findAll());
+        model.putAll(sidebarModelCache.getModel());
     }
 
     /**
@@ -378,8 +748,8 @@ public class PostService {
     public void addComment(int postId, Comment comment) {
         Optional<Post> post = postRepository.findById(postId);
         post.ifPresent(p -> {
+            // The comments of the post are not loaded, the comment is added from its own side only
             comment.setPost(p);
-            p.getComments().add(comment);
             commentRepository.save(comment);
         });
         post.orElseThrow(ResourceNotFoundException::new);
@@ -390,11 +760,12 @@ public class PostService {
      *
      * @return a feed with the latest posts.
      */
+    @Transactional(readOnly = true)
     public Feed latestPostsFeed() {
         // Get the posts to include
         int postsPerPage = configurationParameterService.getInteger(Parameter.POSTS_PER_PAGE);
         PageRequest pageRequest = PageRequest.of(0, postsPerPage, Sort.Direction.DESC, "publishedAt");
-        Page<Post> posts = postRepository.findByStatus(ContentStatus.PUBLISHED, pageRequest);
+        Slice<Post> posts = postRepository.findByStatus(ContentStatus.PUBLISHED, pageRequest);
 
         return createFeed(posts.stream().map(post -> {
             Entry entry = new Entry();
@@ -420,11 +791,12 @@ public class PostService {
      *
      * @return a feed with the latest comments.
      */
+    @Transactional(readOnly = true)
     public Feed latestCommentsFeed() {
         // Get the comments items to include
         int postsPerPage = configurationParameterService.getInteger(Parameter.POSTS_PER_PAGE);
         PageRequest pageRequest = PageRequest.of(0, postsPerPage, Sort.Direction.DESC, "createdAt");
-        Page<Comment> comments = commentRepository.findPublished(pageRequest);
+        Slice<Comment> comments = commentRepository.findPublished(pageRequest);
 
         return createFeed(comments.stream().map(comment -> {
             Entry entry = new Entry();
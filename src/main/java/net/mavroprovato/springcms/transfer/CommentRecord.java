@@ -0,0 +1,32 @@
+package net.mavroprovato.springcms.transfer;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A comment, as it is stored in an import or export file.
+ */
+public class CommentRecord {
+
+    /** The name of the user that posted the comment */
+    @Getter @Setter
+    private String name;
+
+    /** The email of the user that posted the comment */
+    @Getter @Setter
+    private String email;
+
+    /** The web site of the user that posted the comment */
+    @Getter @Setter
+    private String webSite;
+
+    /** The comment content */
+    @Getter @Setter
+    private String comment;
+
+    /** The comment creation date */
+    @Getter @Setter
+    private OffsetDateTime createdAt;
+}
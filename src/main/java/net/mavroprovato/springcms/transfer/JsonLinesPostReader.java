@@ -0,0 +1,52 @@
+package net.mavroprovato.springcms.transfer;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads post records from a JSON lines file, where each line holds one post as a JSON object. The file is parsed with
+ * a streaming parser, one record at a time.
+ */
+public class JsonLinesPostReader implements PostRecordReader {
+
+    /** The iterator over the records */
+    private final MappingIterator<PostRecord> iterator;
+
+    /**
+     * Create the reader.
+     *
+     * @param objectMapper The object mapper.
+     * @param reader The file reader.
+     * @throws IOException If the file cannot be read.
+     */
+    public JsonLinesPostReader(ObjectMapper objectMapper, Reader reader) throws IOException {
+        this.iterator = objectMapper.readerFor(PostRecord.class).readValues(reader);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PostRecord next() {
+        return iterator.next();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        iterator.close();
+    }
+}
@@ -0,0 +1,62 @@
+package net.mavroprovato.springcms.transfer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes post records to a JSON lines file, one post per line, in the format that {@link JsonLinesPostReader} reads.
+ * Each record is written as soon as it is passed to the writer, so the records do not have to be held in memory.
+ */
+public class JsonLinesPostWriter implements Closeable {
+
+    /** The writer of the records */
+    private final SequenceWriter writer;
+
+    /**
+     * Create the writer. The output stream is not closed when the writer is closed.
+     *
+     * @param objectMapper The object mapper.
+     * @param outputStream The output stream.
+     * @throws IOException If the output stream cannot be written.
+     */
+    public JsonLinesPostWriter(ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        this.writer = objectMapper.writerFor(PostRecord.class)
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(outputStream);
+    }
+
+    /**
+     * Write a record.
+     *
+     * @param record The record.
+     * @throws IOException If the record cannot be written.
+     */
+    public void write(PostRecord record) throws IOException {
+        writer.write(record);
+    }
+
+    /**
+     * Flush the records that are written so far to the output stream.
+     *
+     * @throws IOException If the output stream cannot be written.
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,69 @@
+package net.mavroprovato.springcms.transfer;
+
+import lombok.Getter;
+import lombok.Setter;
+import net.mavroprovato.springcms.entity.ContentStatus;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A post or a page, as it is stored in an import or export file, along with its comments. The author, the tags and the
+ * categories are referenced by their user name and slugs, so that they can be resolved against the existing ones.
+ * A record of the {@link RecordType#TERMS} type only holds tags and categories.
+ */
+public class PostRecord {
+
+    /** The record type, a post if it is missing */
+    @Getter @Setter
+    private RecordType type;
+
+    /** The post title */
+    @Getter @Setter
+    private String title;
+
+    /** The post slug */
+    @Getter @Setter
+    private String slug;
+
+    /** The post content */
+    @Getter @Setter
+    private String content;
+
+    /** The post status */
+    @Getter @Setter
+    private ContentStatus status;
+
+    /** The post publication date */
+    @Getter @Setter
+    private OffsetDateTime publishedAt;
+
+    /** The page order, only for pages */
+    @Getter @Setter
+    private Integer order;
+
+    /** The user name of the post author */
+    @Getter @Setter
+    private String author;
+
+    /** The email of the post author */
+    @Getter @Setter
+    private String authorEmail;
+
+    /** The display name of the post author */
+    @Getter @Setter
+    private String authorName;
+
+    /** The post tags */
+    @Getter @Setter
+    private List<TermRecord> tags = new ArrayList<>();
+
+    /** The post categories */
+    @Getter @Setter
+    private List<TermRecord> categories = new ArrayList<>();
+
+    /** The post comments */
+    @Getter @Setter
+    private List<CommentRecord> comments = new ArrayList<>();
+}
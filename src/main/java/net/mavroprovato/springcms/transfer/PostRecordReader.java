@@ -0,0 +1,10 @@
+package net.mavroprovato.springcms.transfer;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Reads the post records of an import file one at a time, so that the whole file is never held in memory.
+ */
+public interface PostRecordReader extends Iterator<PostRecord>, Closeable {
+}
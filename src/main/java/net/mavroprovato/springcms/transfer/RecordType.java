@@ -0,0 +1,13 @@
+package net.mavroprovato.springcms.transfer;
+
+/**
+ * Enumeration of the record types of an import or export file.
+ */
+public enum RecordType {
+    /** A post, along with its comments */
+    POST,
+    /** A page */
+    PAGE,
+    /** Tags and categories, which are imported even if no post uses them */
+    TERMS
+}
@@ -0,0 +1,77 @@
+package net.mavroprovato.springcms.transfer;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * A tag or a category, as it is stored in an import or export file. In JSON it is either an object with a name and a
+ * slug, or just the name, in which case the slug is derived from the name.
+ */
+@NoArgsConstructor
+public class TermRecord {
+
+    /** The term name */
+    @Getter @Setter
+    private String name;
+
+    /** The term slug */
+    @Setter
+    private String slug;
+
+    /** The term description */
+    @Getter @Setter
+    private String description;
+
+    /**
+     * Create a term record from its name.
+     *
+     * @param name The term name.
+     */
+    public TermRecord(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Create a term record.
+     *
+     * @param name The term name.
+     * @param slug The term slug.
+     */
+    public TermRecord(String name, String slug) {
+        this.name = name;
+        this.slug = slug;
+    }
+
+    /**
+     * Return the term slug. If it is missing, it is derived from the name.
+     *
+     * @return The term slug.
+     */
+    public String getSlug() {
+        return slug == null || slug.isEmpty() ? slugify(name) : slug;
+    }
+
+    /**
+     * Create a slug from text. Accents are removed, and any sequence of other characters than letters and digits is
+     * replaced by a dash.
+     *
+     * @param text The text.
+     * @return The slug, or null if the text has no letters or digits.
+     */
+    public static String slugify(String text) {
+        if (text == null) {
+            return null;
+        }
+        String slug = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", "-")
+                .replaceAll("^-|-$", "");
+
+        return slug.isEmpty() ? null : slug;
+    }
+}
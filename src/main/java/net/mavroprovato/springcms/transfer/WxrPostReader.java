@@ -0,0 +1,376 @@
+package net.mavroprovato.springcms.transfer;
+
+import net.mavroprovato.springcms.entity.ContentStatus;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads post records from a WordPress export (WXR) file. The file is parsed with a StAX parser, one item at a time.
+ * Only the items that are posts are read, along with their approved comments. The authors are declared at the start
+ * of the file, and they are held in memory in order to complete the author details of the posts.
+ */
+public class WxrPostReader implements PostRecordReader {
+
+    /** The prefix of the WordPress export namespaces, which end with the export format version */
+    private static final String WP_NAMESPACE_PREFIX = "http://wordpress.org/export/";
+
+    /** The namespace of the post content */
+    private static final String CONTENT_NAMESPACE = "http://purl.org/rss/1.0/modules/content/";
+
+    /** The namespace of the post author */
+    private static final String DC_NAMESPACE = "http://purl.org/dc/elements/1.1/";
+
+    /** The format of the dates */
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * The details of an author, as declared at the start of the file.
+     */
+    private static final class Author {
+        /** The author email */
+        String email;
+        /** The author display name */
+        String name;
+    }
+
+    /** The file input stream */
+    private final InputStream inputStream;
+
+    /** The XML parser */
+    private final XMLStreamReader reader;
+
+    /** The authors, keyed by user name */
+    private final Map<String, Author> authors = new HashMap<>();
+
+    /** The next record, if it has been read */
+    private PostRecord next;
+
+    /** True if the end of the file has been reached */
+    private boolean done;
+
+    /**
+     * Create the reader.
+     *
+     * @param inputStream The file input stream.
+     * @throws IOException If the file cannot be read.
+     */
+    public WxrPostReader(InputStream inputStream) throws IOException {
+        this.inputStream = inputStream;
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        try {
+            this.reader = factory.createXMLStreamReader(inputStream);
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot parse the WXR file.", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            try {
+                next = readPost();
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException("Cannot parse the WXR file.", e);
+            }
+            done = next == null;
+        }
+
+        return next != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PostRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        PostRecord post = next;
+        next = null;
+
+        return post;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot close the WXR file.", e);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Read the next post. The authors that are found before it are stored, and the items that are not posts are
+     * skipped.
+     *
+     * @return The post, or null if there are no more posts.
+     * @throws XMLStreamException If the file cannot be parsed.
+     */
+    private PostRecord readPost() throws XMLStreamException {
+        while (reader.hasNext()) {
+            if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            if (isWp("author")) {
+                readAuthor();
+            } else if (isPlain("item")) {
+                PostRecord post = readItem();
+                if (post != null) {
+                    return post;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Read an author declaration.
+     *
+     * @throws XMLStreamException If the file cannot be parsed.
+     */
+    private void readAuthor() throws XMLStreamException {
+        String login = null;
+        Author author = new Author();
+        while (next(XMLStreamConstants.START_ELEMENT, "author")) {
+            if (isWp("author_login")) {
+                login = reader.getElementText();
+            } else if (isWp("author_email")) {
+                author.email = reader.getElementText();
+            } else if (isWp("author_display_name")) {
+                author.name = reader.getElementText();
+            } else {
+                skipElement();
+            }
+        }
+        if (login != null) {
+            authors.put(login, author);
+        }
+    }
+
+    /**
+     * Read an item.
+     *
+     * @return The post, or null if the item is not a post.
+     * @throws XMLStreamException If the file cannot be parsed.
+     */
+    private PostRecord readItem() throws XMLStreamException {
+        PostRecord post = new PostRecord();
+        String type = null;
+        String date = null;
+        String dateGmt = null;
+        while (next(XMLStreamConstants.START_ELEMENT, "item")) {
+            if (isPlain("title")) {
+                post.setTitle(reader.getElementText());
+            } else if (CONTENT_NAMESPACE.equals(reader.getNamespaceURI()) && isLocal("encoded")) {
+                post.setContent(reader.getElementText());
+            } else if (DC_NAMESPACE.equals(reader.getNamespaceURI()) && isLocal("creator")) {
+                post.setAuthor(reader.getElementText());
+            } else if (isPlain("category")) {
+                String domain = reader.getAttributeValue(null, "domain");
+                String slug = reader.getAttributeValue(null, "nicename");
+                TermRecord term = new TermRecord(reader.getElementText(), slug);
+                if ("post_tag".equals(domain)) {
+                    post.getTags().add(term);
+                } else if ("category".equals(domain)) {
+                    post.getCategories().add(term);
+                }
+            } else if (isWp("post_type")) {
+                type = reader.getElementText();
+            } else if (isWp("post_name")) {
+                post.setSlug(reader.getElementText());
+            } else if (isWp("status")) {
+                post.setStatus(status(reader.getElementText()));
+            } else if (isWp("post_date")) {
+                date = reader.getElementText();
+            } else if (isWp("post_date_gmt")) {
+                dateGmt = reader.getElementText();
+            } else if (isWp("comment")) {
+                CommentRecord comment = readComment();
+                if (comment != null) {
+                    post.getComments().add(comment);
+                }
+            } else {
+                skipElement();
+            }
+        }
+        if (!"post".equals(type)) {
+            return null;
+        }
+        OffsetDateTime publishedAt = parseDate(dateGmt);
+        post.setPublishedAt(publishedAt == null ? parseDate(date) : publishedAt);
+        Author author = authors.get(post.getAuthor());
+        if (author != null) {
+            post.setAuthorEmail(author.email);
+            post.setAuthorName(author.name);
+        }
+
+        return post;
+    }
+
+    /**
+     * Read a comment.
+     *
+     * @return The comment, or null if the comment is not approved, or if it is a pingback or a trackback.
+     * @throws XMLStreamException If the file cannot be parsed.
+     */
+    private CommentRecord readComment() throws XMLStreamException {
+        CommentRecord comment = new CommentRecord();
+        boolean approved = false;
+        String type = "";
+        while (next(XMLStreamConstants.START_ELEMENT, "comment")) {
+            if (isWp("comment_author")) {
+                comment.setName(reader.getElementText());
+            } else if (isWp("comment_author_email")) {
+                comment.setEmail(reader.getElementText());
+            } else if (isWp("comment_author_url")) {
+                comment.setWebSite(reader.getElementText());
+            } else if (isWp("comment_date_gmt")) {
+                comment.setCreatedAt(parseDate(reader.getElementText()));
+            } else if (isWp("comment_content")) {
+                comment.setComment(reader.getElementText());
+            } else if (isWp("comment_approved")) {
+                approved = "1".equals(reader.getElementText());
+            } else if (isWp("comment_type")) {
+                type = reader.getElementText();
+            } else {
+                skipElement();
+            }
+        }
+
+        return approved && (type.isEmpty() || "comment".equals(type)) ? comment : null;
+    }
+
+    /**
+     * Advance to the next child element of an element.
+     *
+     * @param event The event type to stop at.
+     * @param parent The local name of the parent element.
+     * @return True if the parser is at the start of a child element, false if it is at the end of the parent.
+     * @throws XMLStreamException If the file cannot be parsed.
+     */
+    private boolean next(int event, String parent) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int current = reader.next();
+            if (current == event) {
+                return true;
+            } else if (current == XMLStreamConstants.END_ELEMENT && isLocal(parent)) {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Skip the current element along with its children.
+     *
+     * @throws XMLStreamException If the file cannot be parsed.
+     */
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Check if the current element has a local name.
+     *
+     * @param localName The local name.
+     * @return True if the current element has the local name.
+     */
+    private boolean isLocal(String localName) {
+        return localName.equals(reader.getLocalName());
+    }
+
+    /**
+     * Check if the current element has a local name, and no namespace.
+     *
+     * @param localName The local name.
+     * @return True if the current element matches.
+     */
+    private boolean isPlain(String localName) {
+        String namespace = reader.getNamespaceURI();
+
+        return (namespace == null || namespace.isEmpty()) && isLocal(localName);
+    }
+
+    /**
+     * Check if the current element has a local name, in the WordPress export namespace.
+     *
+     * @param localName The local name.
+     * @return True if the current element matches.
+     */
+    private boolean isWp(String localName) {
+        String namespace = reader.getNamespaceURI();
+
+        return namespace != null && namespace.startsWith(WP_NAMESPACE_PREFIX) && isLocal(localName);
+    }
+
+    /**
+     * Convert a WordPress post status to a content status.
+     *
+     * @param status The WordPress post status.
+     * @return The content status.
+     */
+    private static ContentStatus status(String status) {
+        switch (status) {
+            case "publish":
+                return ContentStatus.PUBLISHED;
+            case "trash":
+                return ContentStatus.DELETED;
+            default:
+                return ContentStatus.DRAFT;
+        }
+    }
+
+    /**
+     * Parse a WordPress date, which is written without an offset.
+     *
+     * @param date The date.
+     * @return The date as UTC, or null if the date is missing or empty.
+     */
+    private static OffsetDateTime parseDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(date.trim(), DATE_FORMAT).atOffset(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            // Drafts have a date of zeros
+            return null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+(function() {
+    "use strict";
+    // Replace the "load more" link with the next page of comments, when the browser can fetch the fragment
+    var comments = document.getElementById("comments");
+    if (!comments || !window.fetch) {
+        return;
+    }
+    comments.addEventListener("click", function(e) {
+        var link = e.target.closest(".comments-more a");
+        if (!link) {
+            return;
+        }
+        e.preventDefault();
+        fetch(link.getAttribute("data-fragment"), {credentials: "same-origin"})
+            .then(function(response) {
+                if (!response.ok) {
+                    throw new Error(response.statusText);
+                }
+                return response.text();
+            })
+            .then(function(html) {
+                link.parentNode.outerHTML = html;
+            })
+            .catch(function() {
+                // Fall back to loading the post page from the next comment
+                window.location = link.href;
+            });
+    });
+})();
@@ -0,0 +1,195 @@
+package net.mavroprovato.springcms;
+
+import net.mavroprovato.springcms.datasource.ReadWriteRoutingDataSource;
+import net.mavroprovato.springcms.datasource.ReplicaLagMonitor;
+import net.mavroprovato.springcms.entity.Tag;
+import net.mavroprovato.springcms.repository.TagRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the statements of read only transactions are sent to the replica, and that everything else is sent to
+ * the primary. The replica is a second database that is configured by the {@code replica} profile. The database that
+ * serves a transaction is told apart by its name.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "cms.output-cache.enabled=false")
+@ActiveProfiles("replica")
+@Import(TestContent.class)
+public class ReplicaRoutingTests {
+
+    /** The prefix of the names and slugs of the test data */
+    private static final String PREFIX = "replica-routing-test";
+
+    /** The maximum time to wait for the replica to be used, in milliseconds */
+    private static final long REPLICA_TIMEOUT = 10000;
+
+    /** The data source that is used by the application */
+    @Autowired
+    private DataSource dataSource;
+
+    /** The primary connection pool */
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    /** The replica connection pool */
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    /** The replica lag monitor */
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    /** The transaction manager */
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** The tag repository */
+    @Autowired
+    private TagRepository tagRepository;
+
+    /** The test content helper */
+    @Autowired
+    private TestContent testContent;
+
+    /** The name of the primary database */
+    private String primaryDatabase;
+
+    /** The name of the replica database */
+    private String replicaDatabase;
+
+    /** The tag that is written by a test, or null if no tag is written */
+    private Tag tag;
+
+    /**
+     * Find the names of the two databases, and wait until the replica is used, as the writes of the other tests send
+     * the reads to the primary for a while.
+     *
+     * @throws InterruptedException If the thread is interrupted while it waits.
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        primaryDatabase = databaseName(primaryDataSource);
+        replicaDatabase = databaseName(replicaDataSource);
+        assertNotEquals(primaryDatabase, replicaDatabase);
+
+        awaitReplica();
+    }
+
+    /**
+     * Delete the test data.
+     */
+    @After
+    public void tearDown() {
+        if (tag != null) {
+            testContent.deleteTag(tag);
+        }
+    }
+
+    /**
+     * Test that read only transactions are sent to the replica.
+     */
+    @Test
+    public void readOnlyTransactionUsesReplica() {
+        assertEquals(replicaDatabase, transactionDatabase(dataSource, true));
+    }
+
+    /**
+     * Test that transactions that may write are sent to the primary, even while the replica can be used.
+     */
+    @Test
+    public void writeTransactionUsesPrimary() {
+        assertEquals(primaryDatabase, transactionDatabase(dataSource, false));
+        assertTrue(replicaLagMonitor.isReplicaUsable());
+    }
+
+    /**
+     * Test that after this node writes an entity, the read only transactions are sent to the primary, which is the
+     * only database that holds the entity, until the replica may have caught up with the write.
+     *
+     * @throws InterruptedException If the thread is interrupted while it waits.
+     */
+    @Test
+    public void readsArePinnedAfterLocalWrite() throws InterruptedException {
+        tag = testContent.createTag(PREFIX);
+
+        assertEquals(primaryDatabase, transactionDatabase(dataSource, true));
+        TransactionTemplate readOnlyTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTemplate.setReadOnly(true);
+        assertTrue(readOnlyTemplate.execute(status -> tagRepository.findById(tag.getId()).isPresent()));
+
+        awaitReplica();
+        assertEquals(replicaDatabase, transactionDatabase(dataSource, true));
+    }
+
+    /**
+     * Test that the read only transactions are sent to the primary while the replication lag is over the maximum. The
+     * two databases are independent, so the replica is never lagging. Instead, the maximum lag is set below zero, so
+     * that it is exceeded by any lag.
+     */
+    @Test
+    public void readsArePinnedWhileLagging() {
+        ReplicaLagMonitor laggingMonitor = new ReplicaLagMonitor(replicaDataSource, -1, 500);
+        DataSource laggingDataSource = new ReadWriteRoutingDataSource(
+                primaryDataSource, replicaDataSource, laggingMonitor);
+
+        assertEquals(primaryDatabase, transactionDatabase(laggingDataSource, true));
+        assertEquals(replicaDatabase, transactionDatabase(dataSource, true));
+    }
+
+    /**
+     * Wait until the read only transactions can be sent to the replica.
+     *
+     * @throws InterruptedException If the thread is interrupted while it waits.
+     */
+    private void awaitReplica() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + REPLICA_TIMEOUT;
+        while (!replicaLagMonitor.isReplicaUsable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertTrue(replicaLagMonitor.isReplicaUsable());
+    }
+
+    /**
+     * Return the name of the database that serves the statements of a transaction.
+     *
+     * @param dataSource The data source that the statements are executed on.
+     * @param readOnly True if the transaction is read only.
+     * @return The database name.
+     */
+    private String transactionDatabase(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+
+        return transactionTemplate.execute(status -> databaseName(dataSource));
+    }
+
+    /**
+     * Return the name of the database that a data source connects to.
+     *
+     * @param dataSource The data source.
+     * @return The database name.
+     */
+    private static String databaseName(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT current_database()", String.class);
+    }
+}
@@ -0,0 +1,203 @@
+package net.mavroprovato.springcms;
+
+import net.mavroprovato.springcms.component.BuildSearchIndex;
+import net.mavroprovato.springcms.component.SearchIndexShards;
+import net.mavroprovato.springcms.dto.PostSummary;
+import net.mavroprovato.springcms.dto.SearchFacet;
+import net.mavroprovato.springcms.entity.Post;
+import net.mavroprovato.springcms.entity.Tag;
+import net.mavroprovato.springcms.entity.User;
+import net.mavroprovato.springcms.repository.TagRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the search index can be rebuilt while the searches use it, and that it is kept up to date with the
+ * properties of the tags that the posts store, and with the posts that other nodes delete.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "cms.output-cache.enabled=false")
+@AutoConfigureMockMvc
+@Import(TestContent.class)
+public class SearchIndexTests {
+
+    /** The prefix of the names and slugs of the test data */
+    private static final String PREFIX = "search-index-test";
+
+    /** The maximum time to wait for the background indexing, in milliseconds */
+    private static final long INDEXING_TIMEOUT = 60000;
+
+    /** The MVC test client */
+    @Autowired
+    private MockMvc mockMvc;
+
+    /** The search index builder */
+    @Autowired
+    private BuildSearchIndex buildSearchIndex;
+
+    /** The test content helper */
+    @Autowired
+    private TestContent testContent;
+
+    /** The tag repository */
+    @Autowired
+    private TagRepository tagRepository;
+
+    /** The JDBC template, which modifies the posts without the knowledge of the index */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** The test author */
+    private User author;
+
+    /** The test tag */
+    private Tag tag;
+
+    /** The test post */
+    private Post post;
+
+    /**
+     * Create a published post with a tag, which is indexed in the live shard when it is saved.
+     */
+    @Before
+    public void setUp() {
+        author = testContent.createAuthor(PREFIX);
+        tag = testContent.createTag(PREFIX);
+        post = testContent.createPost(PREFIX, PREFIX + "-post", author, tag, null);
+    }
+
+    /**
+     * Delete the test data.
+     */
+    @After
+    public void tearDown() {
+        testContent.deletePost(post);
+        testContent.deleteTag(tag);
+        testContent.deleteAuthor(author);
+    }
+
+    /**
+     * Test that a rebuild over a live shard that contains all the posts is promoted, and that the searches find the
+     * posts in the rebuilt shard.
+     */
+    @Test
+    public void rebuildOverPopulatedShard() throws Exception {
+        assertEquals(1, searchResultCount());
+        String live = SearchIndexShards.getLive();
+
+        assertTrue(buildSearchIndex.rebuildInBackground());
+        awaitIndexing();
+
+        assertNotEquals(live, SearchIndexShards.getLive());
+        assertEquals(1, searchResultCount());
+    }
+
+    /**
+     * Test that the posts of a tag are indexed again when the tag is renamed, so that the search results and the tag
+     * facet display the new slug.
+     */
+    @Test
+    public void renamedTagIsIndexed() throws Exception {
+        assertEquals(Collections.singletonList(tag.getSlug()), searchResultTagSlugs());
+
+        tag.setSlug(PREFIX + "-renamed-tag");
+        tag = tagRepository.save(tag);
+        long deadline = System.currentTimeMillis() + INDEXING_TIMEOUT;
+        while (!searchResultTagSlugs().contains(tag.getSlug()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        assertEquals(Collections.singletonList(tag.getSlug()), searchResultTagSlugs());
+        @SuppressWarnings("unchecked")
+        List<SearchFacet<Tag>> tagFacets = (List<SearchFacet<Tag>>) mockMvc.perform(get("/search?q=" + PREFIX))
+                .andExpect(status().isOk()).andReturn().getModelAndView().getModel().get("tagFacets");
+        assertEquals(Collections.singletonList(tag.getSlug()),
+                tagFacets.stream().map(facet -> facet.getValue().getSlug()).collect(Collectors.toList()));
+    }
+
+    /**
+     * Test that the update of the index purges a post that was deleted by another node, without rebuilding the index.
+     */
+    @Test
+    public void remoteDeletionIsPurged() throws Exception {
+        assertEquals(1, searchResultCount());
+        awaitIndexing();
+        String live = SearchIndexShards.getLive();
+
+        jdbcTemplate.update("DELETE FROM content_tags WHERE post_id = ?", post.getId());
+        jdbcTemplate.update("DELETE FROM content WHERE id = ?", post.getId());
+        assertEquals(1, searchResultCount());
+        buildSearchIndex.update();
+
+        assertEquals(0, searchResultCount());
+        assertEquals(live, SearchIndexShards.getLive());
+    }
+
+    /**
+     * Wait until the index is no longer brought up to date or rebuilt in the background.
+     *
+     * @throws InterruptedException If the thread is interrupted while it waits.
+     */
+    private void awaitIndexing() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + INDEXING_TIMEOUT;
+        while (buildSearchIndex.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertFalse(buildSearchIndex.isRunning());
+    }
+
+    /**
+     * Return the number of posts that the search for the test prefix finds.
+     *
+     * @return The number of posts.
+     * @throws Exception If the request fails.
+     */
+    private long searchResultCount() throws Exception {
+        return searchResults().getTotalElements();
+    }
+
+    /**
+     * Return the tag slugs of the posts that the search for the test prefix finds.
+     *
+     * @return The tag slugs.
+     * @throws Exception If the request fails.
+     */
+    private List<String> searchResultTagSlugs() throws Exception {
+        return searchResults().stream()
+                .flatMap(summary -> summary.getTags().stream())
+                .map(Tag::getSlug)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Return the posts that the search for the test prefix finds.
+     *
+     * @return The posts.
+     * @throws Exception If the request fails.
+     */
+    @SuppressWarnings("unchecked")
+    private org.springframework.data.domain.Page<PostSummary> searchResults() throws Exception {
+        return (org.springframework.data.domain.Page<PostSummary>) mockMvc.perform(get("/search?q=" + PREFIX))
+                .andExpect(status().isOk()).andReturn().getModelAndView().getModel().get("posts");
+    }
+}
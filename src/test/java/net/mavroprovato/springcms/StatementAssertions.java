@@ -0,0 +1,90 @@
+package net.mavroprovato.springcms;
+
+import net.mavroprovato.springcms.component.RequestStatements;
+import net.mavroprovato.springcms.component.StatementCountFilter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Assertions on the SQL statements that the requests execute, as they are recorded by the statement count filter.
+ */
+final class StatementAssertions {
+
+    /**
+     * Hide the constructor of the utility class.
+     */
+    private StatementAssertions() {
+    }
+
+    /**
+     * Perform a request and return the statements that it executed.
+     *
+     * @param mockMvc The MVC test client.
+     * @param request The request.
+     * @return The statements.
+     * @throws Exception If the request fails.
+     */
+    static RequestStatements statements(MockMvc mockMvc, RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        int status = result.getResponse().getStatus();
+        assertTrue("Unexpected status " + status + " for " + result.getRequest().getRequestURI(),
+                status >= 200 && status < 400);
+        RequestStatements statements =
+                (RequestStatements) result.getRequest().getAttribute(StatementCountFilter.STATEMENTS_ATTRIBUTE);
+        assertNotNull("The statements of the request were not recorded", statements);
+
+        return statements;
+    }
+
+    /**
+     * Assert that a GET route executes at most a number of statements, and that it does not execute any statement
+     * more than once, which would be the sign of an N+1 pattern. The route is requested once before it is measured,
+     * so that the in memory snapshots are loaded.
+     *
+     * @param max The maximum number of statements.
+     * @param mockMvc The MVC test client.
+     * @param url The route URL.
+     * @throws Exception If the request fails.
+     */
+    static void assertAtMostStatements(int max, MockMvc mockMvc, String url) throws Exception {
+        statements(mockMvc, get(url));
+        RequestStatements statements = statements(mockMvc, get(url));
+        assertAtMostStatements(max, statements, url);
+        assertNoRepeatedStatements(statements, url);
+    }
+
+    /**
+     * Assert that recorded statements are at most a number.
+     *
+     * @param max The maximum number of statements.
+     * @param statements The statements.
+     * @param description The description of the request, for the failure message.
+     */
+    static void assertAtMostStatements(int max, RequestStatements statements, String description) {
+        if (statements.getStatementCount() > max) {
+            fail(description + " executed " + statements.getStatementCount() + " statements, expected at most " +
+                    max + ": " + statements.repeatedShapes(1).keySet());
+        }
+    }
+
+    /**
+     * Assert that no statement shape was executed more than once.
+     *
+     * @param statements The statements.
+     * @param description The description of the request, for the failure message.
+     */
+    static void assertNoRepeatedStatements(RequestStatements statements, String description) {
+        Map<String, Integer> repeated = statements.repeatedShapes(2);
+        if (!repeated.isEmpty()) {
+            fail(description + " repeated statements: " + repeated);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package net.mavroprovato.springcms;
+
+import net.mavroprovato.springcms.dto.CommentCursor;
+import net.mavroprovato.springcms.dto.PostSummary;
+import net.mavroprovato.springcms.dto.SearchFacet;
+import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.Comment;
+import net.mavroprovato.springcms.entity.Page;
+import net.mavroprovato.springcms.entity.Post;
+import net.mavroprovato.springcms.entity.Tag;
+import net.mavroprovato.springcms.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static net.mavroprovato.springcms.StatementAssertions.assertAtMostStatements;
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the number of statements that the public routes execute. The output cache and the second level cache are
+ * disabled, so that the statements that the fetch plans need are counted. Every route is requested once before it is
+ * measured, so that the in memory snapshots (configuration, sidebar, slugs and feeds) are loaded. The test data has two
+ * posts, so that a statement that is executed for each post shows up as a repeated statement.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "cms.output-cache.enabled=false",
+        "cms.configuration.refresh-interval=3600000",
+        "cms.content-version.refresh-interval=3600000",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+@Import(TestContent.class)
+public class StatementCountTests {
+
+    /** The prefix of the names and slugs of the test data */
+    private static final String PREFIX = "statement-count-test";
+
+    /** The MVC test client */
+    @Autowired
+    private MockMvc mockMvc;
+
+    /** The entity manager factory */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /** The test content helper */
+    @Autowired
+    private TestContent testContent;
+
+    /** The test author */
+    private User author;
+
+    /** The test tag */
+    private Tag tag;
+
+    /** The test category */
+    private Category category;
+
+    /** The test post */
+    private Post post;
+
+    /** The test comment */
+    private Comment comment;
+
+    /** The second test post */
+    private Post otherPost;
+
+    /** The test page */
+    private Page page;
+
+    /**
+     * Create two published posts, with a tag, a category and a comment each, and a published page.
+     */
+    @Before
+    public void setUp() {
+        author = testContent.createAuthor(PREFIX);
+        tag = testContent.createTag(PREFIX);
+        category = testContent.createCategory(PREFIX);
+        otherPost = testContent.createPost(PREFIX, PREFIX + "-other-post", author, tag, category);
+        testContent.createComment(PREFIX, otherPost);
+        post = testContent.createPost(PREFIX, PREFIX + "-post", author, tag, category);
+        comment = testContent.createComment(PREFIX, post);
+        page = testContent.createPage(PREFIX, author);
+    }
+
+    /**
+     * Delete the test data, along with the comments that the tests post.
+     */
+    @After
+    public void tearDown() {
+        testContent.deletePage(page);
+        testContent.deletePost(otherPost);
+        testContent.deletePost(post);
+        testContent.deleteCategory(category);
+        testContent.deleteTag(tag);
+        testContent.deleteAuthor(author);
+    }
+
+    /**
+     * Test that the search results are created from the fields that are stored in the search index, without executing
+     * any statement.
+     */
+    @Test
+    public void searchFromIndex() throws Exception {
+        MvcResult result = mockMvc.perform(get("/search?q=" + PREFIX)).andExpect(status().isOk()).andReturn();
+        @SuppressWarnings("unchecked")
+        org.springframework.data.domain.Page<PostSummary> posts =
+                (org.springframework.data.domain.Page<PostSummary>) result.getModelAndView().getModel().get("posts");
+        assertEquals(2, posts.getTotalElements());
+        for (PostSummary summary : posts) {
+            assertEquals(author.getUserName(), summary.getAuthorName());
+            assertEquals(PREFIX, summary.getExcerpt());
+            assertEquals(Collections.singletonList(tag.getSlug()),
+                    summary.getTags().stream().map(Tag::getSlug).collect(Collectors.toList()));
+            assertEquals(Collections.singletonList(category.getSlug()),
+                    summary.getCategories().stream().map(Category::getSlug).collect(Collectors.toList()));
+        }
+        assertEquals(0, statementCount("/search?q=" + PREFIX));
+    }
+
+    /**
+     * Test that the search counts the results for each tag, category and publication month, and that the results can
+     * be refined with them without executing any statement.
+     */
+    @Test
+    public void searchFacets() throws Exception {
+        Map<String, Object> model = mockMvc.perform(get("/search?q=" + PREFIX)).andExpect(status().isOk())
+                .andReturn().getModelAndView().getModel();
+        @SuppressWarnings("unchecked")
+        List<SearchFacet<Tag>> tagFacets = (List<SearchFacet<Tag>>) model.get("tagFacets");
+        assertEquals(1, tagFacets.size());
+        assertEquals(tag.getId(), tagFacets.get(0).getValue().getId());
+        assertEquals(2, tagFacets.get(0).getCount());
+        @SuppressWarnings("unchecked")
+        List<SearchFacet<Category>> categoryFacets = (List<SearchFacet<Category>>) model.get("categoryFacets");
+        assertEquals(1, categoryFacets.size());
+        assertEquals(category.getSlug(), categoryFacets.get(0).getValue().getSlug());
+        assertEquals(2, categoryFacets.get(0).getCount());
+        @SuppressWarnings("unchecked")
+        List<SearchFacet<YearMonth>> monthFacets = (List<SearchFacet<YearMonth>>) model.get("monthFacets");
+        YearMonth month = YearMonth.from(post.getPublishedAt().withOffsetSameInstant(ZoneOffset.UTC));
+        assertEquals(month, monthFacets.get(monthFacets.size() - 1).getValue());
+
+        String refined = "/search?q=" + PREFIX + "&tag=" + tag.getId() + "&category=" + category.getId() +
+                "&month=" + month;
+        org.springframework.data.domain.Page<?> posts = (org.springframework.data.domain.Page<?>) mockMvc
+                .perform(get(refined)).andExpect(status().isOk()).andReturn().getModelAndView().getModel().get("posts");
+        assertEquals(2, posts.getTotalElements());
+        assertEquals(0, statementCount(refined));
+
+        posts = (org.springframework.data.domain.Page<?>) mockMvc.perform(get(refined + "&tag=" + (tag.getId() + 1)))
+                .andExpect(status().isOk()).andReturn().getModelAndView().getModel().get("posts");
+        assertEquals(0, posts.getTotalElements());
+    }
+
+    /**
+     * Test that every route of the public controllers executes at most a number of statements, without repeating a
+     * statement for each post, tag, category or comment. The lists run one statement for the posts along with their
+     * authors, and one for each of the tags and the categories of all posts. The feeds are served from memory.
+     */
+    @Test
+    public void everyRouteStatementLimits() throws Exception {
+        OffsetDateTime publishedAt = post.getPublishedAt();
+        String year = "/" + publishedAt.getYear();
+        String month = year + "/" + publishedAt.getMonthValue();
+        String day = month + "/" + publishedAt.getDayOfMonth();
+
+        // Post list routes
+        assertAtMostStatements(3, mockMvc, "/");
+        assertAtMostStatements(3, mockMvc, "/page/1");
+        assertAtMostStatements(3, mockMvc, year);
+        assertAtMostStatements(3, mockMvc, year + "/page/1");
+        assertAtMostStatements(3, mockMvc, month);
+        assertAtMostStatements(3, mockMvc, month + "/page/1");
+        assertAtMostStatements(3, mockMvc, day);
+        assertAtMostStatements(3, mockMvc, day + "/page/1");
+        assertAtMostStatements(4, mockMvc, "/tag/" + tag.getId());
+        assertAtMostStatements(4, mockMvc, "/tag/" + tag.getId() + "/page/1");
+        assertAtMostStatements(4, mockMvc, "/tag/" + tag.getSlug());
+        assertAtMostStatements(4, mockMvc, "/tag/" + tag.getSlug() + "/page/1");
+        assertAtMostStatements(4, mockMvc, "/category/" + category.getId());
+        assertAtMostStatements(4, mockMvc, "/category/" + category.getId() + "/page/1");
+        assertAtMostStatements(4, mockMvc, "/category/" + category.getSlug());
+        assertAtMostStatements(4, mockMvc, "/category/" + category.getSlug() + "/page/1");
+        assertAtMostStatements(0, mockMvc, "/search?q=" + PREFIX);
+        assertAtMostStatements(0, mockMvc, "/search/page/1?q=" + PREFIX);
+        assertAtMostStatements(0, mockMvc, "/feed");
+        assertAtMostStatements(0, mockMvc, "/comments/feed");
+
+        // Post routes: the post along with its author, tags and categories, and then the comments
+        assertAtMostStatements(2, mockMvc, "/post/" + post.getId());
+        assertAtMostStatements(2, mockMvc, "/post/" + post.getSlug());
+        String from = new CommentCursor(comment.getCreatedAt(), comment.getId()).toToken();
+        assertAtMostStatements(2, mockMvc, "/post/" + post.getId() + "/comments?from=" + from);
+
+        // Page routes
+        assertAtMostStatements(1, mockMvc, "/page/id/" + page.getId());
+        assertAtMostStatements(1, mockMvc, "/page/" + page.getSlug());
+
+        // Posting a comment: the post, the comment, the comment counter and the identifier sequence
+        MockHttpSession session = new MockHttpSession();
+        MvcResult form = mockMvc.perform(get("/post/" + post.getId()).session(session))
+                .andExpect(status().isOk()).andReturn();
+        CsrfToken csrfToken = (CsrfToken) form.getRequest().getAttribute(CsrfToken.class.getName());
+        StatementAssertions.assertAtMostStatements(4, StatementAssertions.statements(mockMvc,
+                post("/post/" + post.getId() + "/comment").session(session)
+                        .param(csrfToken.getParameterName(), csrfToken.getToken())
+                        .param("name", PREFIX)
+                        .param("email", PREFIX + "@example.com")
+                        .param("comment", PREFIX + " posted comment")), "POST /post/" + post.getId() + "/comment");
+    }
+
+    /**
+     * Return the number of statements that a request to a route executes, once the in memory snapshots are loaded.
+     *
+     * @param url The route URL.
+     * @return The number of statements.
+     * @throws Exception If the request fails.
+     */
+    private long statementCount(String url) throws Exception {
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+
+        return statistics.getPrepareStatementCount();
+    }
+}
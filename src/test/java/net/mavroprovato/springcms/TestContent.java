@@ -0,0 +1,223 @@
+package net.mavroprovato.springcms;
+
+import net.mavroprovato.springcms.entity.Category;
+import net.mavroprovato.springcms.entity.Comment;
+import net.mavroprovato.springcms.entity.ContentStatus;
+import net.mavroprovato.springcms.entity.Page;
+import net.mavroprovato.springcms.entity.Post;
+import net.mavroprovato.springcms.entity.Role;
+import net.mavroprovato.springcms.entity.Tag;
+import net.mavroprovato.springcms.entity.User;
+import net.mavroprovato.springcms.repository.CategoryRepository;
+import net.mavroprovato.springcms.repository.CommentRepository;
+import net.mavroprovato.springcms.repository.PageRepository;
+import net.mavroprovato.springcms.repository.PostRepository;
+import net.mavroprovato.springcms.repository.TagRepository;
+import net.mavroprovato.springcms.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Creates and deletes the content of the integration tests. The names and the slugs of the content start with a prefix
+ * that is different for each test class, so that the content of a test can be told apart from existing content.
+ */
+@TestComponent
+class TestContent {
+
+    /** The user repository */
+    private final UserRepository userRepository;
+
+    /** The tag repository */
+    private final TagRepository tagRepository;
+
+    /** The category repository */
+    private final CategoryRepository categoryRepository;
+
+    /** The post repository */
+    private final PostRepository postRepository;
+
+    /** The comment repository */
+    private final CommentRepository commentRepository;
+
+    /** The page repository */
+    private final PageRepository pageRepository;
+
+    /**
+     * Create the test content helper.
+     *
+     * @param userRepository The user repository.
+     * @param tagRepository The tag repository.
+     * @param categoryRepository The category repository.
+     * @param postRepository The post repository.
+     * @param commentRepository The comment repository.
+     * @param pageRepository The page repository.
+     */
+    @Autowired
+    TestContent(UserRepository userRepository, TagRepository tagRepository, CategoryRepository categoryRepository,
+                PostRepository postRepository, CommentRepository commentRepository, PageRepository pageRepository) {
+        this.userRepository = userRepository;
+        this.tagRepository = tagRepository;
+        this.categoryRepository = categoryRepository;
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.pageRepository = pageRepository;
+    }
+
+    /**
+     * Create an author.
+     *
+     * @param prefix The prefix of the user name and the email.
+     * @return The author.
+     */
+    User createAuthor(String prefix) {
+        User author = new User();
+        author.setUserName(prefix);
+        author.setEmail(prefix + "@example.com");
+        author.setPassword(prefix);
+        author.setRole(Role.AUTHOR);
+
+        return userRepository.save(author);
+    }
+
+    /**
+     * Create a tag.
+     *
+     * @param prefix The prefix of the name and the slug.
+     * @return The tag.
+     */
+    Tag createTag(String prefix) {
+        Tag tag = new Tag();
+        tag.setName(prefix);
+        tag.setSlug(prefix + "-tag");
+
+        return tagRepository.save(tag);
+    }
+
+    /**
+     * Create a category.
+     *
+     * @param prefix The prefix of the name and the slug.
+     * @return The category.
+     */
+    Category createCategory(String prefix) {
+        Category category = new Category();
+        category.setName(prefix);
+        category.setSlug(prefix + "-category");
+
+        return categoryRepository.save(category);
+    }
+
+    /**
+     * Create a post that is published now.
+     *
+     * @param prefix The title and the content of the post.
+     * @param slug The post slug.
+     * @param author The post author.
+     * @param tag The post tag.
+     * @param category The post category, or null if the post has no category.
+     * @return The post.
+     */
+    Post createPost(String prefix, String slug, User author, Tag tag, Category category) {
+        Post post = new Post();
+        post.setTitle(prefix);
+        post.setContent(prefix);
+        post.setSlug(slug);
+        post.setStatus(ContentStatus.PUBLISHED);
+        post.setPublishedAt(OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS));
+        post.setAuthor(author);
+        post.getTags().add(tag);
+        if (category != null) {
+            post.getCategories().add(category);
+        }
+
+        return postRepository.save(post);
+    }
+
+    /**
+     * Create a comment for a post.
+     *
+     * @param prefix The prefix of the name, the email and the comment.
+     * @param post The post.
+     * @return The comment.
+     */
+    Comment createComment(String prefix, Post post) {
+        Comment comment = new Comment();
+        comment.setName(prefix);
+        comment.setEmail(prefix + "@example.com");
+        comment.setComment(prefix + " comment");
+        comment.setPost(post);
+
+        return commentRepository.save(comment);
+    }
+
+    /**
+     * Create a page that is published now.
+     *
+     * @param prefix The prefix of the title, the content and the slug.
+     * @param author The page author.
+     * @return The page.
+     */
+    Page createPage(String prefix, User author) {
+        Page page = new Page();
+        page.setTitle(prefix);
+        page.setContent(prefix);
+        page.setSlug(prefix + "-page");
+        page.setStatus(ContentStatus.PUBLISHED);
+        page.setPublishedAt(OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS));
+        page.setAuthor(author);
+
+        return pageRepository.save(page);
+    }
+
+    /**
+     * Delete a post along with its comments, if it has not been deleted already.
+     *
+     * @param post The post.
+     */
+    void deletePost(Post post) {
+        postRepository.findById(post.getId()).ifPresent(existing -> {
+            commentRepository.deleteByPost(existing);
+            postRepository.delete(existing);
+        });
+    }
+
+    /**
+     * Delete a page.
+     *
+     * @param page The page.
+     */
+    void deletePage(Page page) {
+        pageRepository.deleteById(page.getId());
+    }
+
+    /**
+     * Delete a tag.
+     *
+     * @param tag The tag.
+     */
+    void deleteTag(Tag tag) {
+        tagRepository.deleteById(tag.getId());
+    }
+
+    /**
+     * Delete a category.
+     *
+     * @param category The category.
+     */
+    void deleteCategory(Category category) {
+        categoryRepository.deleteById(category.getId());
+    }
+
+    /**
+     * Delete an author.
+     *
+     * @param author The author.
+     */
+    void deleteAuthor(User author) {
+        userRepository.deleteById(author.getId());
+    }
+}
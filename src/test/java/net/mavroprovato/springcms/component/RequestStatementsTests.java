@@ -0,0 +1,59 @@
+package net.mavroprovato.springcms.component;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the grouping of the statements of a request by shape.
+ */
+public class RequestStatementsTests {
+
+    /**
+     * Test that the string and numeric literals are removed from the shape.
+     */
+    @Test
+    public void literalsRemoved() {
+        assertEquals("select * from post where slug = ? and id > ? and score < ?",
+                RequestStatements.shape("select * from post where slug = 'it''s' and id > 10 and score < 1.5"));
+    }
+
+    /**
+     * Test that the parameter lists of any length have the same shape.
+     */
+    @Test
+    public void parameterListsCollapsed() {
+        assertEquals("select * from tag where id in (?)", RequestStatements.shape("select * from tag where id in (?)"));
+        assertEquals("select * from tag where id in (?)",
+                RequestStatements.shape("select * from tag where id in ( ?, ?,? )"));
+    }
+
+    /**
+     * Test that the digits of the Hibernate aliases are kept, so that different columns are not merged.
+     */
+    @Test
+    public void aliasesKept() {
+        assertEquals("select post0_.id as id1_3_ from post post0_ where post0_.id = ?",
+                RequestStatements.shape("select post0_.id as id1_3_ from post post0_ where post0_.id = 5"));
+    }
+
+    /**
+     * Test that the statements that are repeated for each item of a list are reported as one repeated shape.
+     */
+    @Test
+    public void repeatedShapes() {
+        RequestStatements statements = new RequestStatements();
+        statements.statement("select * from post");
+        for (int id = 1; id <= 3; id++) {
+            statements.statement("select * from comment where post_id = " + id);
+        }
+
+        Map<String, Integer> repeated = statements.repeatedShapes(2);
+
+        assertEquals(4, statements.getStatementCount());
+        assertEquals(Collections.singletonMap("select * from comment where post_id = ?", 3), repeated);
+    }
+}
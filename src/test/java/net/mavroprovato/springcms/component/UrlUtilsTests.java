@@ -0,0 +1,43 @@
+package net.mavroprovato.springcms.component;
+
+import net.mavroprovato.springcms.dto.CommentCursor;
+import net.mavroprovato.springcms.entity.Comment;
+import net.mavroprovato.springcms.entity.Post;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the URLs of the comments.
+ */
+public class UrlUtilsTests {
+
+    /** The URL utilities. The configuration is only needed for the absolute URLs */
+    private final UrlUtils urlUtils = new UrlUtils(null);
+
+    /**
+     * Test that the comment URL points to the post page, starting the comments from the comment.
+     */
+    @Test
+    public void comment() {
+        Post post = new Post();
+        post.setSlug("a-post");
+        Comment comment = new Comment();
+        comment.setPost(post);
+        ReflectionTestUtils.setField(comment, "id", 7);
+        comment.setCreatedAt(OffsetDateTime.of(2018, 6, 1, 12, 0, 0, 0, ZoneOffset.UTC));
+
+        UriComponents url = UriComponentsBuilder.fromUriString(urlUtils.comment(comment)).build();
+
+        assertEquals("/post/a-post", url.getPath());
+        assertEquals("comment-7", url.getFragment());
+        assertEquals(new CommentCursor(comment.getCreatedAt(), comment.getId()),
+                CommentCursor.fromToken(url.getQueryParams().getFirst("comments")));
+    }
+}
@@ -0,0 +1,53 @@
+package net.mavroprovato.springcms.controller;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the parsing of the Accept-Encoding header that decides if the feeds are served compressed.
+ */
+public class PostListControllerTests {
+
+    /**
+     * Test that gzip is accepted when it is listed, with or without a quality value.
+     */
+    @Test
+    public void gzipAccepted() {
+        assertTrue(PostListController.acceptsGzip("gzip"));
+        assertTrue(PostListController.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(PostListController.acceptsGzip("x-gzip"));
+        assertTrue(PostListController.acceptsGzip("br;q=1.0, *;q=0.1"));
+    }
+
+    /**
+     * Test that gzip is not accepted when the header is missing or does not list it.
+     */
+    @Test
+    public void gzipNotListed() {
+        assertFalse(PostListController.acceptsGzip(null));
+        assertFalse(PostListController.acceptsGzip(""));
+        assertFalse(PostListController.acceptsGzip("identity"));
+        assertFalse(PostListController.acceptsGzip("deflate, br"));
+    }
+
+    /**
+     * Test that a zero quality value refuses gzip, and that it takes precedence over the wildcard.
+     */
+    @Test
+    public void gzipRefusedWithZeroQuality() {
+        assertFalse(PostListController.acceptsGzip("gzip;q=0"));
+        assertFalse(PostListController.acceptsGzip("gzip; q=0.000"));
+        assertFalse(PostListController.acceptsGzip("gzip;q=0, *"));
+        assertFalse(PostListController.acceptsGzip("*;q=0"));
+    }
+
+    /**
+     * Test that a malformed quality value refuses the coding.
+     */
+    @Test
+    public void malformedQuality() {
+        assertFalse(PostListController.acceptsGzip("gzip;q=high"));
+    }
+}
@@ -0,0 +1,82 @@
+package net.mavroprovato.springcms.dto;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks the encoding of the keyset pagination cursors as tokens.
+ */
+public class CursorTokensTests {
+
+    /**
+     * Test that a cursor survives the round trip through its token, with the date converted to UTC.
+     */
+    @Test
+    public void roundTrip() {
+        OffsetDateTime createdAt = OffsetDateTime.of(2018, 12, 31, 23, 59, 59, 123456789, ZoneOffset.ofHours(2));
+        CommentCursor cursor = CommentCursor.fromToken(new CommentCursor(createdAt, 42).toToken());
+
+        assertEquals(createdAt.toInstant(), cursor.getCreatedAt().toInstant());
+        assertEquals(ZoneOffset.UTC, cursor.getCreatedAt().getOffset());
+        assertEquals(42, cursor.getId());
+    }
+
+    /**
+     * Test that the token can be used in a URL without escaping.
+     */
+    @Test
+    public void tokenIsUrlSafe() {
+        String token = CursorTokens.encode(OffsetDateTime.now(ZoneOffset.UTC), Integer.MAX_VALUE);
+
+        assertFalse(token.matches(".*[^A-Za-z0-9_-].*"));
+    }
+
+    /**
+     * Test that a token that is not valid base64 is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedBase64() {
+        CommentCursor.fromToken("not a token!");
+    }
+
+    /**
+     * Test that a token with a missing part is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void missingPart() {
+        CommentCursor.fromToken(token("1546300799.0"));
+    }
+
+    /**
+     * Test that a token with a part that is not a number is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void tamperedIdentifier() {
+        PostCursor.fromToken(token("1546300799.0.1 OR 1=1"));
+    }
+
+    /**
+     * Test that a token with a date that is out of range is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void dateOutOfRange() {
+        PostCursor.fromToken(token(Long.MAX_VALUE + ".0.1"));
+    }
+
+    /**
+     * Encode a value as a token.
+     *
+     * @param value The value.
+     * @return The token.
+     */
+    private static String token(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+    }
+}
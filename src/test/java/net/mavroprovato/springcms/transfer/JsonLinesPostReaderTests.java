@@ -0,0 +1,116 @@
+package net.mavroprovato.springcms.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.mavroprovato.springcms.entity.ContentStatus;
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the reading of the posts of JSON lines files.
+ */
+public class JsonLinesPostReaderTests {
+
+    /** The object mapper, configured as the application configures it */
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    /**
+     * Test that each line is read as a post, with its terms and comments.
+     */
+    @Test
+    public void readsRecords() throws IOException {
+        try (JsonLinesPostReader reader = reader(
+                "{\"title\":\"First\",\"slug\":\"first\",\"status\":\"PUBLISHED\",\"author\":\"jdoe\"," +
+                "\"tags\":[{\"name\":\"A tag\",\"slug\":\"a-tag\"}],\"categories\":[{\"name\":\"News\"}]," +
+                "\"comments\":[{\"name\":\"A reader\",\"comment\":\"A comment\"}],\"unknown\":true}\n" +
+                "{\"type\":\"PAGE\",\"title\":\"About\",\"order\":2}\n")) {
+            assertTrue(reader.hasNext());
+            PostRecord post = reader.next();
+            assertEquals("First", post.getTitle());
+            assertEquals(ContentStatus.PUBLISHED, post.getStatus());
+            assertEquals("a-tag", post.getTags().get(0).getSlug());
+            assertEquals("News", post.getCategories().get(0).getName());
+            assertEquals("A comment", post.getComments().get(0).getComment());
+
+            PostRecord page = reader.next();
+            assertEquals(RecordType.PAGE, page.getType());
+            assertEquals(Integer.valueOf(2), page.getOrder());
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    /**
+     * Test that a term record holds the tags and the categories that it declares, by name or with their details.
+     */
+    @Test
+    public void termRecord() throws IOException {
+        try (JsonLinesPostReader reader = reader("{\"type\":\"TERMS\",\"tags\":[\"Unused Tag\"]," +
+                "\"categories\":[{\"name\":\"News\",\"slug\":\"news\",\"description\":\"The news\"}]}\n")) {
+            PostRecord record = reader.next();
+            assertEquals(RecordType.TERMS, record.getType());
+            assertEquals("unused-tag", record.getTags().get(0).getSlug());
+            assertEquals("The news", record.getCategories().get(0).getDescription());
+        }
+    }
+
+    /**
+     * Test that the dates keep their instant whatever their offset, and that they are read as UTC.
+     */
+    @Test
+    public void datesWithOffset() throws IOException {
+        try (JsonLinesPostReader reader = reader(
+                "{\"title\":\"Dated\",\"publishedAt\":\"2018-06-01T14:30:00+02:00\"," +
+                "\"comments\":[{\"comment\":\"A comment\",\"createdAt\":\"2018-06-02T08:00:00.123456Z\"}]}\n")) {
+            PostRecord post = reader.next();
+            assertEquals(OffsetDateTime.of(2018, 6, 1, 12, 30, 0, 0, ZoneOffset.UTC), post.getPublishedAt());
+            assertEquals(OffsetDateTime.of(2018, 6, 2, 8, 0, 0, 123456000, ZoneOffset.UTC),
+                    post.getComments().get(0).getCreatedAt());
+        }
+    }
+
+    /**
+     * Test that the records before a malformed line are read, and that the malformed line fails the reading.
+     */
+    @Test
+    public void malformedLine() throws IOException {
+        try (JsonLinesPostReader reader = reader("{\"title\":\"Valid\"}\n{\"title\":\"Unclosed\n")) {
+            assertEquals("Valid", reader.next().getTitle());
+            try {
+                reader.next();
+                fail("The malformed line was read");
+            } catch (RuntimeException e) {
+                // Expected
+            }
+        }
+    }
+
+    /**
+     * Test that a date that cannot be parsed fails the reading.
+     */
+    @Test(expected = RuntimeException.class)
+    public void malformedDate() throws IOException {
+        try (JsonLinesPostReader reader = reader("{\"title\":\"Dated\",\"publishedAt\":\"yesterday\"}\n")) {
+            reader.next();
+        }
+    }
+
+    /**
+     * Create a reader for a file.
+     *
+     * @param file The file content.
+     * @return The reader.
+     * @throws IOException If the file cannot be read.
+     */
+    private JsonLinesPostReader reader(String file) throws IOException {
+        return new JsonLinesPostReader(objectMapper, new StringReader(file));
+    }
+}
@@ -0,0 +1,173 @@
+package net.mavroprovato.springcms.transfer;
+
+import net.mavroprovato.springcms.entity.ContentStatus;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the reading of the posts of WordPress export files.
+ */
+public class WxrPostReaderTests {
+
+    /** The start of the export files, with the namespace declarations and an author */
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<rss version=\"2.0\" xmlns:content=\"http://purl.org/rss/1.0/modules/content/\" " +
+            "xmlns:dc=\"http://purl.org/dc/elements/1.1/\" xmlns:wp=\"http://wordpress.org/export/1.2/\">\n" +
+            "<channel>\n" +
+            "<wp:author><wp:author_login>jdoe</wp:author_login><wp:author_email>jdoe@example.com</wp:author_email>" +
+            "<wp:author_display_name><![CDATA[John Doe]]></wp:author_display_name></wp:author>\n";
+
+    /** The end of the export files */
+    private static final String FOOTER = "</channel>\n</rss>\n";
+
+    /**
+     * Test that the posts are read with their author, terms and approved comments, and that the other items are
+     * skipped.
+     */
+    @Test
+    public void readsPosts() throws IOException {
+        List<PostRecord> posts = read(
+                "<item><title>First post</title><dc:creator>jdoe</dc:creator>" +
+                "<content:encoded><![CDATA[<p>Hello & welcome</p>]]></content:encoded>" +
+                "<category domain=\"post_tag\" nicename=\"a-tag\"><![CDATA[A tag]]></category>" +
+                "<category domain=\"category\" nicename=\"news\"><![CDATA[News]]></category>" +
+                "<wp:post_name>first-post</wp:post_name><wp:status>publish</wp:status>" +
+                "<wp:post_type>post</wp:post_type>" +
+                "<wp:post_date>2018-06-01 14:30:00</wp:post_date>" +
+                "<wp:post_date_gmt>2018-06-01 12:30:00</wp:post_date_gmt>" +
+                comment("1", "", "Approved comment") +
+                comment("0", "", "Pending comment") +
+                comment("1", "pingback", "A pingback") +
+                "</item>\n" +
+                "<item><title>About</title><wp:post_type>page</wp:post_type></item>\n" +
+                "<item><title>Image</title><wp:post_type>attachment</wp:post_type></item>\n");
+
+        assertEquals(1, posts.size());
+        PostRecord post = posts.get(0);
+        assertEquals("First post", post.getTitle());
+        assertEquals("first-post", post.getSlug());
+        assertEquals("<p>Hello & welcome</p>", post.getContent());
+        assertEquals(ContentStatus.PUBLISHED, post.getStatus());
+        assertEquals("jdoe", post.getAuthor());
+        assertEquals("jdoe@example.com", post.getAuthorEmail());
+        assertEquals("John Doe", post.getAuthorName());
+        assertEquals(Arrays.asList("a-tag"), post.getTags().stream().map(TermRecord::getSlug)
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList("news"), post.getCategories().stream().map(TermRecord::getSlug)
+                .collect(Collectors.toList()));
+        assertEquals(1, post.getComments().size());
+        CommentRecord comment = post.getComments().get(0);
+        assertEquals("Approved comment", comment.getComment());
+        assertEquals(OffsetDateTime.of(2018, 6, 2, 8, 0, 0, 0, ZoneOffset.UTC), comment.getCreatedAt());
+    }
+
+    /**
+     * Test that the publication date is read from the UTC date, and from the local date when the UTC date is not set,
+     * as in the drafts.
+     */
+    @Test
+    public void publicationDate() throws IOException {
+        List<PostRecord> posts = read(
+                "<item><title>Published</title><wp:post_type>post</wp:post_type><wp:status>publish</wp:status>" +
+                "<wp:post_date>2018-06-01 14:30:00</wp:post_date>" +
+                "<wp:post_date_gmt> 2018-06-01 12:30:00 </wp:post_date_gmt></item>\n" +
+                "<item><title>Draft</title><wp:post_type>post</wp:post_type><wp:status>draft</wp:status>" +
+                "<wp:post_date>2018-07-01 09:00:00</wp:post_date>" +
+                "<wp:post_date_gmt>0000-00-00 00:00:00</wp:post_date_gmt></item>\n" +
+                "<item><title>Undated</title><wp:post_type>post</wp:post_type><wp:status>trash</wp:status>" +
+                "<wp:post_date>not a date</wp:post_date></item>\n");
+
+        assertEquals(3, posts.size());
+        assertEquals(OffsetDateTime.of(2018, 6, 1, 12, 30, 0, 0, ZoneOffset.UTC), posts.get(0).getPublishedAt());
+        assertEquals(OffsetDateTime.of(2018, 7, 1, 9, 0, 0, 0, ZoneOffset.UTC), posts.get(1).getPublishedAt());
+        assertEquals(ContentStatus.DRAFT, posts.get(1).getStatus());
+        assertNull(posts.get(2).getPublishedAt());
+        assertEquals(ContentStatus.DELETED, posts.get(2).getStatus());
+    }
+
+    /**
+     * Test that a file with an external entity is rejected, so that the file cannot read other files.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void externalEntityRejected() throws IOException {
+        read("<!DOCTYPE rss [<!ENTITY secret SYSTEM \"file:///etc/passwd\">]>\n",
+                "<item><title>&secret;</title><wp:post_type>post</wp:post_type></item>\n");
+    }
+
+    /**
+     * Test that a file with internal entities is rejected, so that the entities cannot expand exponentially.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void entityExpansionRejected() throws IOException {
+        read("<!DOCTYPE rss [<!ENTITY a \"aaaaaaaaaa\"><!ENTITY b \"&a;&a;&a;&a;&a;&a;&a;&a;&a;&a;\">]>\n",
+                "<item><title>&b;</title><wp:post_type>post</wp:post_type></item>\n");
+    }
+
+    /**
+     * Test that a file that is not well formed is rejected.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void malformedFile() throws IOException {
+        read("<item><title>Unclosed</title><wp:post_type>post</wp:post_type>\n</channel>");
+    }
+
+    /**
+     * Create a comment element.
+     *
+     * @param approved The approval flag.
+     * @param type The comment type.
+     * @param text The comment text.
+     * @return The comment element.
+     */
+    private static String comment(String approved, String type, String text) {
+        return "<wp:comment><wp:comment_author>A reader</wp:comment_author>" +
+                "<wp:comment_author_email>reader@example.com</wp:comment_author_email>" +
+                "<wp:comment_date>2018-06-02 10:00:00</wp:comment_date>" +
+                "<wp:comment_date_gmt>2018-06-02 08:00:00</wp:comment_date_gmt>" +
+                "<wp:comment_content><![CDATA[" + text + "]]></wp:comment_content>" +
+                "<wp:comment_approved>" + approved + "</wp:comment_approved>" +
+                "<wp:comment_type>" + type + "</wp:comment_type></wp:comment>";
+    }
+
+    /**
+     * Read the posts of an export file.
+     *
+     * @param items The items of the file.
+     * @return The posts.
+     * @throws IOException If the file cannot be read.
+     */
+    private static List<PostRecord> read(String items) throws IOException {
+        return read("", items);
+    }
+
+    /**
+     * Read the posts of an export file that has a document type declaration.
+     *
+     * @param doctype The document type declaration.
+     * @param items The items of the file.
+     * @return The posts.
+     * @throws IOException If the file cannot be read.
+     */
+    private static List<PostRecord> read(String doctype, String items) throws IOException {
+        String header = HEADER.replaceFirst("\n", "\n" + doctype);
+        byte[] file = (header + items + FOOTER).getBytes(StandardCharsets.UTF_8);
+        List<PostRecord> posts = new ArrayList<>();
+        try (WxrPostReader reader = new WxrPostReader(new ByteArrayInputStream(file))) {
+            reader.forEachRemaining(posts::add);
+        }
+
+        return posts;
+    }
+}